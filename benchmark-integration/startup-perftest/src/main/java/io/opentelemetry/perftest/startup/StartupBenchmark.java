@@ -0,0 +1,202 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.perftest.startup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Starts a server jar without and with javaagents, sends it a first request and writes the startup
+ * timings of every run to a csv file. Besides the time to the first response and the latency of
+ * that first request, which are measured here, the agent reports how long its startup phases took
+ * and how many classes it transformed until the server was stopped through {@code
+ * otel.javaagent.experimental.startup-timings.file}. All durations are in microseconds, phases that
+ * weren't reported (e.g. without an agent, or with an agent version that doesn't report them) are
+ * left empty.
+ */
+@Command(
+    mixinStandardHelpOptions = true,
+    description = "Measures the startup of a server with and without javaagents")
+public class StartupBenchmark implements Callable<Integer> {
+
+  private static final String NO_AGENT = "NoAgent";
+
+  // phases reported by io.opentelemetry.javaagent.bootstrap.AgentStartupTimings
+  private static final List<String> AGENT_PHASES =
+      Arrays.asList(
+          "premain",
+          "extensionLoading",
+          "openTelemetryInstaller",
+          "byteBuddyInstallation",
+          "classesTransformedUntilShutdown");
+
+  @Option(
+      names = "--server-jar",
+      required = true,
+      description = "Executable jar of a server that serves --url once it has started")
+  private File serverJar;
+
+  @Option(
+      names = "--url",
+      defaultValue = "http://localhost:8080/work",
+      description = "Url of the first request (default: ${DEFAULT-VALUE})")
+  private URL url;
+
+  @Option(
+      names = "--runs",
+      defaultValue = "5",
+      description = "Number of server starts per agent (default: ${DEFAULT-VALUE})")
+  private int runs;
+
+  @Option(
+      names = "--timeout",
+      defaultValue = "120",
+      description = "Time, in seconds, to wait for the first response (default: ${DEFAULT-VALUE})")
+  private int timeoutSeconds;
+
+  @Option(
+      names = "--output",
+      defaultValue = "/tmp/startup_results.csv",
+      description = "Csv file the results are written to (default: ${DEFAULT-VALUE})")
+  private File output;
+
+  @Parameters(
+      arity = "1..*",
+      description = "Javaagent jars to test, or " + NO_AGENT + " for a baseline without agent")
+  private List<String> agents;
+
+  public static void main(String[] args) {
+    System.exit(new CommandLine(new StartupBenchmark()).execute(args));
+  }
+
+  @Override
+  public Integer call() throws Exception {
+    List<String> header = new ArrayList<>();
+    header.add("agent");
+    header.add("run");
+    header.add("timeToFirstResponse");
+    header.add("firstRequestLatency");
+    header.addAll(AGENT_PHASES);
+
+    try (PrintWriter results = new PrintWriter(output, StandardCharsets.UTF_8.name())) {
+      results.println(String.join(",", header));
+      for (String agent : agents) {
+        String label = NO_AGENT.equals(agent) ? NO_AGENT : agentVersion(new File(agent));
+        List<Long> timesToFirstResponse = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+          List<String> row = run(NO_AGENT.equals(agent) ? null : new File(agent));
+          timesToFirstResponse.add(Long.parseLong(row.get(0)));
+          results.println(label + "," + run + "," + String.join(",", row));
+          results.flush();
+        }
+        Collections.sort(timesToFirstResponse);
+        System.out.printf(
+            "%s: median time to first response %d ms%n",
+            label, TimeUnit.MICROSECONDS.toMillis(timesToFirstResponse.get(runs / 2)));
+      }
+    }
+    System.out.println("Results saved to " + output);
+    return 0;
+  }
+
+  private List<String> run(File agentJar) throws Exception {
+    File timingsFile = File.createTempFile("startup-timings", ".properties");
+    File serverOutput = File.createTempFile("startup-server", ".log");
+    List<String> command = new ArrayList<>();
+    command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+    if (agentJar != null) {
+      command.add("-javaagent:" + agentJar.getAbsolutePath());
+      command.add("-Dotel.javaagent.experimental.startup-timings.file=" + timingsFile);
+      command.add("-Dio.opentelemetry.javaagent.slf4j.simpleLogger.defaultLogLevel=off");
+    }
+    command.add("-jar");
+    command.add(serverJar.getAbsolutePath());
+
+    long startNanos = System.nanoTime();
+    Process server =
+        new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(serverOutput).start();
+    try {
+      long firstRequestLatency = firstRequest(server, startNanos);
+      long timeToFirstResponse = System.nanoTime() - startNanos;
+
+      // the agent writes its timings from a shutdown hook
+      server.destroy();
+      server.waitFor();
+
+      List<String> row = new ArrayList<>();
+      row.add(String.valueOf(TimeUnit.NANOSECONDS.toMicros(timeToFirstResponse)));
+      row.add(String.valueOf(TimeUnit.NANOSECONDS.toMicros(firstRequestLatency)));
+      Properties timings = new Properties();
+      if (agentJar != null && timingsFile.length() > 0) {
+        try (InputStream in = new FileInputStream(timingsFile)) {
+          timings.load(in);
+        }
+      }
+      for (String phase : AGENT_PHASES) {
+        row.add(timings.getProperty(phase, ""));
+      }
+      return row;
+    } finally {
+      server.destroyForcibly();
+      Files.deleteIfExists(timingsFile.toPath());
+      Files.deleteIfExists(serverOutput.toPath());
+    }
+  }
+
+  // polls the server until it responds and returns the latency of the successful request
+  private long firstRequest(Process server, long startNanos) throws Exception {
+    long deadline = startNanos + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    while (System.nanoTime() < deadline) {
+      if (!server.isAlive()) {
+        throw new IllegalStateException("Server exited with " + server.exitValue());
+      }
+      long requestStartNanos = System.nanoTime();
+      try {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+          if (connection.getResponseCode() == 200) {
+            return System.nanoTime() - requestStartNanos;
+          }
+        } finally {
+          connection.disconnect();
+        }
+      } catch (IOException e) {
+        // not listening yet
+      }
+      Thread.sleep(10);
+    }
+    throw new IllegalStateException("No response from " + url + " in " + timeoutSeconds + "s");
+  }
+
+  private static String agentVersion(File agentJar) throws IOException {
+    try (JarFile jarFile = new JarFile(agentJar)) {
+      Manifest manifest = jarFile.getManifest();
+      String version =
+          manifest != null ? manifest.getMainAttributes().getValue("Implementation-Version") : null;
+      return version != null ? version : agentJar.getName();
+    }
+  }
+}
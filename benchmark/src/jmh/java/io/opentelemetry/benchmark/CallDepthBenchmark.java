@@ -0,0 +1,99 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.benchmark;
+
+import io.opentelemetry.javaagent.instrumentation.api.CallDepthThreadLocalMap;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares an advice recursion guard (increment on enter, decrement on exit) using the {@link
+ * Class} keyed methods of {@link CallDepthThreadLocalMap}, the slot keyed methods, and the previous
+ * implementation which kept one {@link ThreadLocal} per key class in a {@link ClassValue}.
+ */
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class CallDepthBenchmark {
+
+  private static final int SLOT = CallDepthThreadLocalMap.slotFor(Statement.class);
+
+  @Benchmark
+  @Threads(1)
+  public void threads01_classValueThreadLocal(Blackhole blackhole) {
+    blackhole.consume(ClassValueCallDepth.incrementCallDepth(Statement.class));
+    blackhole.consume(ClassValueCallDepth.decrementCallDepth(Statement.class));
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void threads01_class(Blackhole blackhole) {
+    blackhole.consume(CallDepthThreadLocalMap.incrementCallDepth(Statement.class));
+    blackhole.consume(CallDepthThreadLocalMap.decrementCallDepth(Statement.class));
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void threads01_slot(Blackhole blackhole) {
+    blackhole.consume(CallDepthThreadLocalMap.incrementCallDepth(SLOT));
+    blackhole.consume(CallDepthThreadLocalMap.decrementCallDepth(SLOT));
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void threads08_classValueThreadLocal(Blackhole blackhole) {
+    blackhole.consume(ClassValueCallDepth.incrementCallDepth(Statement.class));
+    blackhole.consume(ClassValueCallDepth.decrementCallDepth(Statement.class));
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void threads08_class(Blackhole blackhole) {
+    blackhole.consume(CallDepthThreadLocalMap.incrementCallDepth(Statement.class));
+    blackhole.consume(CallDepthThreadLocalMap.decrementCallDepth(Statement.class));
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void threads08_slot(Blackhole blackhole) {
+    blackhole.consume(CallDepthThreadLocalMap.incrementCallDepth(SLOT));
+    blackhole.consume(CallDepthThreadLocalMap.decrementCallDepth(SLOT));
+  }
+
+  /** The previous implementation of {@link CallDepthThreadLocalMap}. */
+  private static final class ClassValueCallDepth {
+
+    private static final ClassValue<ThreadLocal<int[]>> TLS =
+        new ClassValue<ThreadLocal<int[]>>() {
+          @Override
+          protected ThreadLocal<int[]> computeValue(Class<?> type) {
+            return ThreadLocal.withInitial(() -> new int[1]);
+          }
+        };
+
+    static int incrementCallDepth(Class<?> k) {
+      return TLS.get(k).get()[0]++;
+    }
+
+    static int decrementCallDepth(Class<?> k) {
+      return --TLS.get(k).get()[0];
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.benchmark;
+
+import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
+import io.opentelemetry.javaagent.tooling.context.FieldBackedProvider;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures concurrent {@code putIfAbsent} calls on a context store generated by {@link
+ * FieldBackedProvider} for keys without an injected field, e.g. tasks of classes loaded before the
+ * agent which are submitted to executors. The keys are plain {@link Runnable}s that are never
+ * transformed, so every call goes through the fallback map of the store, exactly like {@code
+ * InstrumentationContext.get(Runnable.class, ...)} in an instrumentation.
+ *
+ * <p>The store is generated and loaded the way the agent does it, without the agent: the generated
+ * classes aren't exposed by {@link FieldBackedProvider}, so they are read reflectively during
+ * setup. Run the benchmark before and after a change of the store implementation to compare them.
+ */
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ContextStoreFallbackBenchmark {
+
+  private static final Object CONTEXT = new Object();
+
+  private ContextStore<Runnable, Object> contextStore;
+
+  @Setup
+  public void setUp() throws Exception {
+    contextStore = fieldBackedContextStore(Runnable.class, Object.class);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object threads01() {
+    return contextStore.putIfAbsent(new Task(), CONTEXT);
+  }
+
+  @Benchmark
+  @Threads(5)
+  public Object threads05() {
+    return contextStore.putIfAbsent(new Task(), CONTEXT);
+  }
+
+  @Benchmark
+  @Threads(10)
+  public Object threads10() {
+    return contextStore.putIfAbsent(new Task(), CONTEXT);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, C> ContextStore<K, C> fieldBackedContextStore(
+      Class<K> keyClass, Class<C> contextClass) throws Exception {
+    FieldBackedProvider provider =
+        new FieldBackedProvider(
+            ContextStoreFallbackBenchmark.class,
+            Collections.singletonMap(keyClass.getName(), contextClass.getName()));
+    DynamicType.Unloaded<?> contextStoreImplementation =
+        onlyType(provider, "contextStoreImplementations");
+    // the store checks whether a key implements the accessor interface of its injected field
+    DynamicType.Unloaded<?> fieldAccessorInterface = onlyType(provider, "fieldAccessorInterfaces");
+    Class<?> contextStoreClass =
+        contextStoreImplementation
+            .include(fieldAccessorInterface)
+            .load(
+                ContextStoreFallbackBenchmark.class.getClassLoader(),
+                ClassLoadingStrategy.Default.WRAPPER)
+            .getLoaded();
+    return (ContextStore<K, C>)
+        contextStoreClass
+            .getMethod("getContextStore", Class.class, Class.class)
+            .invoke(null, keyClass, contextClass);
+  }
+
+  private static DynamicType.Unloaded<?> onlyType(FieldBackedProvider provider, String fieldName)
+      throws ReflectiveOperationException {
+    Field field = FieldBackedProvider.class.getDeclaredField(fieldName);
+    field.setAccessible(true);
+    Map<?, ?> types = (Map<?, ?>) field.get(provider);
+    return (DynamicType.Unloaded<?>) types.values().iterator().next();
+  }
+
+  // a task class without an injected context field
+  private static final class Task implements Runnable {
+    @Override
+    public void run() {}
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.benchmark;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.instrumenter.AttributesExtractor;
+import io.opentelemetry.instrumentation.api.instrumenter.Instrumenter;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-request overhead of {@link Instrumenter#start(Context, Object)} and {@link
+ * Instrumenter#end(Context, Object, Object, Throwable)}. Run with the {@code gc} profiler (enabled
+ * by default for this module) to compare the allocation rate of an instrumenter without request
+ * listeners, where attributes are written directly to the span, with one that has a listener and
+ * therefore has to materialize {@link Attributes}.
+ */
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class InstrumenterBenchmark {
+
+  private static final OpenTelemetrySdk openTelemetry =
+      OpenTelemetrySdk.builder().setTracerProvider(SdkTracerProvider.builder().build()).build();
+
+  private static final Instrumenter<String, String> withoutListeners =
+      Instrumenter.<String, String>newBuilder(openTelemetry, "benchmark", request -> request)
+          .addAttributesExtractors(new Extractor(), new Extractor())
+          .newInstrumenter();
+
+  private static final Instrumenter<String, String> withListener =
+      Instrumenter.<String, String>newBuilder(openTelemetry, "benchmark", request -> request)
+          .addAttributesExtractors(new Extractor(), new Extractor())
+          .addRequestMetrics(meter -> new NoopRequestListener())
+          .newInstrumenter();
+
+  @Benchmark
+  public Context startEnd_withoutListeners() {
+    Context context = withoutListeners.start(Context.root(), "request");
+    withoutListeners.end(context, "request", "response", null);
+    return context;
+  }
+
+  @Benchmark
+  public Context startEnd_withListener() {
+    Context context = withListener.start(Context.root(), "request");
+    withListener.end(context, "request", "response", null);
+    return context;
+  }
+
+  static class Extractor extends AttributesExtractor<String, String> {
+
+    @Override
+    protected void onStart(AttributesBuilder attributes, String request) {
+      attributes.put("request.a", request);
+      attributes.put("request.b", request.length());
+      attributes.put("request.c", true);
+    }
+
+    @Override
+    protected void onEnd(AttributesBuilder attributes, String request, String response) {
+      attributes.put("response.a", response);
+      attributes.put("response.b", response.length());
+    }
+  }
+
+  static class NoopRequestListener implements RequestListener {
+
+    @Override
+    public Context start(Context context, Attributes requestAttributes) {
+      return context;
+    }
+
+    @Override
+    public void end(Context context, Attributes responseAttributes) {}
+  }
+}
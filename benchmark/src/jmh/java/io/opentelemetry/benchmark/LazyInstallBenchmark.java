@@ -0,0 +1,72 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.benchmark;
+
+import io.opentelemetry.benchmark.classes.HttpClass;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the startup of a fresh JVM with the agent installing all instrumentations in premain,
+ * and with instrumentations installed lazily when their classes are loaded. The startup time is the
+ * JVM uptime when the benchmark starts, which includes premain; the benchmark itself is the time to
+ * the first served request, which includes installing the instrumentations of jetty and of the
+ * http client in lazy mode. Every fork runs a single measurement.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class LazyInstallBenchmark {
+
+  private static final String AGENT =
+      "-javaagent:/path/to/opentelemetry-java-instrumentation"
+          + "/javaagent/build/libs/opentelemetry-javaagent.jar";
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class StartupCounters {
+    public long startupMillis;
+
+    @Setup(Level.Trial)
+    public void recordStartup() {
+      startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+  }
+
+  @Benchmark
+  public void timeToFirstRequest(StartupCounters counters) throws Exception {
+    Server jettyServer = new HttpClass().buildJettyServer();
+    jettyServer.start();
+    try {
+      new HttpClass().executeRequest();
+    } finally {
+      jettyServer.stop();
+      jettyServer.destroy();
+    }
+  }
+
+  @Fork(value = 10, jvmArgsAppend = AGENT)
+  public static class WithAgent extends LazyInstallBenchmark {}
+
+  @Fork(
+      value = 10,
+      jvmArgsAppend = {AGENT, "-Dotel.javaagent.experimental.lazy-install.enabled=true"})
+  public static class WithLazyInstall extends LazyInstallBenchmark {}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.benchmark;
+
+import io.opentelemetry.benchmark.classes.HttpClass;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to the first served request in a fresh JVM, i.e. the time it takes to load
+ * (and transform) the classes of a jetty server and client, with the transformed class cache
+ * disabled, empty (cold) and populated (warm). Every fork runs a single measurement.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class TransformedClassCacheBenchmark {
+
+  private static final String AGENT =
+      "-javaagent:/path/to/opentelemetry-java-instrumentation"
+          + "/javaagent/build/libs/opentelemetry-javaagent.jar";
+  private static final String COLD_CACHE_DIR = "/tmp/otel-transformed-class-cache-cold";
+  private static final String WARM_CACHE_DIR = "/tmp/otel-transformed-class-cache-warm";
+  private static final String CACHE_DIR_PROPERTY =
+      "otel.javaagent.experimental.transformed-class-cache.dir";
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+    @TearDown(Level.Trial)
+    public void clearColdCache() throws IOException {
+      // the cold cache must be empty again in the next fork
+      if (COLD_CACHE_DIR.equals(System.getProperty(CACHE_DIR_PROPERTY))) {
+        deleteRecursively(Paths.get(COLD_CACHE_DIR));
+      }
+    }
+  }
+
+  @Benchmark
+  public void timeToFirstRequest(BenchmarkState state) throws Exception {
+    Server jettyServer = new HttpClass().buildJettyServer();
+    jettyServer.start();
+    try {
+      new HttpClass().executeRequest();
+    } finally {
+      jettyServer.stop();
+      jettyServer.destroy();
+    }
+  }
+
+  private static void deleteRecursively(Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Fork(value = 10, jvmArgsAppend = AGENT)
+  public static class WithAgent extends TransformedClassCacheBenchmark {}
+
+  @Fork(
+      value = 10,
+      jvmArgsAppend = {AGENT, "-D" + CACHE_DIR_PROPERTY + "=" + COLD_CACHE_DIR})
+  public static class WithColdCache extends TransformedClassCacheBenchmark {}
+
+  // the warmup fork populates the cache
+  @Fork(
+      value = 10,
+      warmups = 1,
+      jvmArgsAppend = {AGENT, "-D" + CACHE_DIR_PROPERTY + "=" + WARM_CACHE_DIR})
+  public static class WithWarmCache extends TransformedClassCacheBenchmark {}
+}
@@ -7,20 +7,37 @@ package io.opentelemetry.benchmark;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import io.opentelemetry.javaagent.spi.IgnoreMatcherProvider;
+import io.opentelemetry.javaagent.tooling.bytebuddy.AgentCachingPoolStrategy;
+import io.opentelemetry.javaagent.tooling.matcher.GlobalIgnoresMatcher;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.pool.TypePool;
+import org.openjdk.jmh.annotations.AuxCounters;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
 
 @BenchmarkMode(Mode.SingleShotTime)
 @Fork(5)
@@ -30,6 +47,11 @@ import org.openjdk.jmh.annotations.Warmup;
 public class TypeMatchingBenchmark {
 
   private static final Set<String> classNames;
+  private static final List<TypeDescription> typeDescriptions;
+
+  private static final ElementMatcher<TypeDescription> IGNORES_MATCHER =
+      GlobalIgnoresMatcher.globalIgnoresMatcher(
+          true, new DefaultIgnoreMatcherProvider(), Collections.emptyList());
 
   static {
     classNames = new HashSet<>();
@@ -53,6 +75,10 @@ public class TypeMatchingBenchmark {
         throw new RuntimeException(e);
       }
     }
+    typeDescriptions = new ArrayList<>();
+    for (String className : classNames) {
+      typeDescriptions.add(new TypeDescription.Latent(className, 0, null));
+    }
   }
 
   @Benchmark
@@ -66,9 +92,107 @@ public class TypeMatchingBenchmark {
     }
   }
 
+  /**
+   * Classifies every class name of the class path with the global ignores matcher, the same way as
+   * the agent does on every class load.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @Fork(3)
+  @Warmup(iterations = 5, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  public void globalIgnoresMatcher(Blackhole blackhole) {
+    for (TypeDescription type : typeDescriptions) {
+      blackhole.consume(IGNORES_MATCHER.matches(type));
+    }
+  }
+
+  /**
+   * Describes every class of the class path through a fresh agent type pool and walks its super
+   * types, the way hierarchy matchers do while an application starts, and counts how many class
+   * files had to be read.
+   */
+  @Benchmark
+  public void typePoolHierarchyWalk(TypePoolCounters counters, Blackhole blackhole) {
+    ClassLoader classLoader = TypeMatchingBenchmark.class.getClassLoader();
+    CountingClassFileLocator locator =
+        new CountingClassFileLocator(ClassFileLocator.ForClassLoader.of(classLoader));
+    AgentCachingPoolStrategy poolStrategy = new AgentCachingPoolStrategy();
+    TypePool typePool = poolStrategy.typePool(locator, classLoader);
+    for (String className : classNames) {
+      TypePool.Resolution resolution = typePool.describe(className);
+      if (resolution.isResolved()) {
+        walkHierarchy(resolution.resolve(), blackhole);
+      }
+    }
+    AgentCachingPoolStrategy.Stats stats = poolStrategy.stats();
+    counters.classFileReads += locator.reads;
+    counters.typeCacheHits += stats.hitCount() + stats.pinnedHitCount();
+  }
+
+  private static void walkHierarchy(TypeDefinition type, Blackhole blackhole) {
+    try {
+      TypeDefinition typeDefinition = type;
+      while (typeDefinition != null) {
+        for (TypeDescription.Generic interfaceType : typeDefinition.getInterfaces()) {
+          walkHierarchy(interfaceType, blackhole);
+        }
+        blackhole.consume(typeDefinition.asErasure().getName());
+        typeDefinition = typeDefinition.getSuperClass();
+      }
+    } catch (RuntimeException e) {
+      // super types with optional dependencies which are not present
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class TypePoolCounters {
+    public long classFileReads;
+    public long typeCacheHits;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      classFileReads = 0;
+      typeCacheHits = 0;
+    }
+  }
+
+  private static class CountingClassFileLocator implements ClassFileLocator {
+    private final ClassFileLocator delegate;
+    private long reads;
+
+    private CountingClassFileLocator(ClassFileLocator delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Resolution locate(String name) throws IOException {
+      reads++;
+      return delegate.locate(name);
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
   @Fork(
       jvmArgsAppend =
           "-javaagent:/path/to/opentelemetry-java-instrumentation"
               + "/javaagent/build/libs/opentelemetry-javaagent.jar")
   public static class WithAgent extends TypeMatchingBenchmark {}
+
+  private static class DefaultIgnoreMatcherProvider implements IgnoreMatcherProvider {
+    @Override
+    public Result type(TypeDescription target) {
+      return Result.DEFAULT;
+    }
+
+    @Override
+    public Result classloader(ClassLoader classLoader) {
+      return Result.DEFAULT;
+    }
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.benchmark;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of running tasks on virtual threads from within a context, with {@code
+ * Executors.newVirtualThreadPerTaskExecutor()} and with threads started from {@code
+ * Thread.ofVirtual().factory()}. Compare {@link WithAgent} to this benchmark to get the overhead of
+ * propagating the context to the virtual threads.
+ *
+ * <p>Virtual threads need java 21, run with {@code ./gradlew :benchmark:jmh -PjmhJavaVersion=21
+ * -PjmhIncludeSingleClass=VirtualThreadBenchmark}. The benchmark is compiled for java 8, so the
+ * virtual thread API is looked up reflectively during setup.
+ */
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+  private static final Context CONTEXT =
+      Context.root()
+          .with(
+              Span.wrap(
+                  SpanContext.create(
+                      "ff01020304050600ff0a0b0c0d0e0f00",
+                      "090a0b0c0d0e0f00",
+                      TraceFlags.getSampled(),
+                      TraceState.getDefault())));
+
+  private ExecutorService executor;
+  private ThreadFactory threadFactory;
+
+  @Setup
+  public void setUp() throws Exception {
+    executor =
+        (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+    threadFactory = (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object threads01_executor() throws Exception {
+    return submit();
+  }
+
+  @Benchmark
+  @Threads(5)
+  public Object threads05_executor() throws Exception {
+    return submit();
+  }
+
+  @Benchmark
+  @Threads(10)
+  public Object threads10_executor() throws Exception {
+    return submit();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object threads01_threadFactory() throws Exception {
+    return startAndJoin();
+  }
+
+  @Benchmark
+  @Threads(5)
+  public Object threads05_threadFactory() throws Exception {
+    return startAndJoin();
+  }
+
+  @Benchmark
+  @Threads(10)
+  public Object threads10_threadFactory() throws Exception {
+    return startAndJoin();
+  }
+
+  private Object submit() throws ExecutionException, InterruptedException {
+    try (io.opentelemetry.context.Scope ignored = CONTEXT.makeCurrent()) {
+      return executor.submit(Context::current).get();
+    }
+  }
+
+  private Object startAndJoin() throws InterruptedException {
+    Context[] result = new Context[1];
+    try (io.opentelemetry.context.Scope ignored = CONTEXT.makeCurrent()) {
+      Thread thread = threadFactory.newThread(() -> result[0] = Context.current());
+      thread.start();
+      thread.join();
+    }
+    return result[0];
+  }
+
+  @Fork(
+      jvmArgsAppend =
+          "-javaagent:/path/to/opentelemetry-java-instrumentation"
+              + "/javaagent/build/libs/opentelemetry-javaagent.jar")
+  public static class WithAgent extends VirtualThreadBenchmark {}
+}
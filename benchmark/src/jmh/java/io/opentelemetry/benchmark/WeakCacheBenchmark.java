@@ -0,0 +1,101 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.benchmark;
+
+import io.opentelemetry.context.internal.shaded.WeakConcurrentMap;
+import io.opentelemetry.instrumentation.api.caching.Cache;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@code computeIfAbsent} misses on a weak keyed {@link Cache} under contention, e.g. when
+ * many threads create new prepared statements at the same time, compared to the previous
+ * implementation which computed every miss under a single monitor.
+ */
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class WeakCacheBenchmark {
+
+  private static final Function<Object, Object> MAPPING_FUNCTION =
+      key -> {
+        // simulates the work done to compute a value, e.g. parsing a connection url
+        Blackhole.consumeCPU(100);
+        return Boolean.TRUE;
+      };
+
+  private final Cache<Object, Object> cache = Cache.newBuilder().setWeakKeys().build();
+  private final SynchronizedWeakCache synchronizedCache = new SynchronizedWeakCache();
+
+  @Benchmark
+  @Threads(1)
+  public Object threads01_cache() {
+    return cache.computeIfAbsent(new Object(), MAPPING_FUNCTION);
+  }
+
+  @Benchmark
+  @Threads(5)
+  public Object threads05_cache() {
+    return cache.computeIfAbsent(new Object(), MAPPING_FUNCTION);
+  }
+
+  @Benchmark
+  @Threads(10)
+  public Object threads10_cache() {
+    return cache.computeIfAbsent(new Object(), MAPPING_FUNCTION);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object threads01_synchronized() {
+    return synchronizedCache.computeIfAbsent(new Object(), MAPPING_FUNCTION);
+  }
+
+  @Benchmark
+  @Threads(5)
+  public Object threads05_synchronized() {
+    return synchronizedCache.computeIfAbsent(new Object(), MAPPING_FUNCTION);
+  }
+
+  @Benchmark
+  @Threads(10)
+  public Object threads10_synchronized() {
+    return synchronizedCache.computeIfAbsent(new Object(), MAPPING_FUNCTION);
+  }
+
+  /** The previous implementation of the weak keyed cache. */
+  private static final class SynchronizedWeakCache {
+    private final WeakConcurrentMap<Object, Object> delegate =
+        new WeakConcurrentMap.WithInlinedExpunction<>();
+
+    Object computeIfAbsent(Object key, Function<Object, Object> mappingFunction) {
+      Object value = delegate.getIfPresent(key);
+      if (value != null) {
+        return value;
+      }
+      synchronized (delegate) {
+        value = delegate.getIfPresent(key);
+        if (value != null) {
+          return value;
+        }
+        value = mappingFunction.apply(key);
+        Object previous = delegate.putIfAbsent(key, value);
+        return previous != null ? previous : value;
+      }
+    }
+  }
+}
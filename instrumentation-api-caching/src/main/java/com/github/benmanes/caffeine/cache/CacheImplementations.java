@@ -17,6 +17,13 @@ final class CacheImplementations {
   SSMS<?, ?> ssms; // cache
   PSMS<?, ?> psms; // node
 
+  // Strong keys, strong values, maximum weight
+  SSMW<?, ?> ssmw; // cache
+  PSMW<?, ?> psmw; // node
+
+  // Strong keys, strong values, removal listener, maximum weight
+  SSLiMW<?, ?> sslimw; // cache
+
   // Weak keys, strong values, maximum size
   WSMS<?, ?> wsms; // cache
   FSMS<?, ?> fsms; // node
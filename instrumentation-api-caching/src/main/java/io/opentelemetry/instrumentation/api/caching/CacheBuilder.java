@@ -7,6 +7,8 @@ package io.opentelemetry.instrumentation.api.caching;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntBiFunction;
 
 /** A builder of {@link Cache}. */
 public final class CacheBuilder {
@@ -15,6 +17,9 @@ public final class CacheBuilder {
 
   private boolean weakKeys;
   private long maximumSize = UNSET;
+  private long maximumWeight = UNSET;
+  private ToIntBiFunction<?, ?> weigher = null;
+  private BiConsumer<?, ?> evictionListener = null;
   private Executor executor = null;
 
   /** Sets the maximum size of the cache. */
@@ -23,6 +28,26 @@ public final class CacheBuilder {
     return this;
   }
 
+  /**
+   * Sets the maximum total weight of the cache, where the weight of each entry is computed by
+   * {@code weigher} when it is added. Cannot be combined with {@link #setMaximumSize(long)}.
+   */
+  public <K, V> CacheBuilder setMaximumWeight(
+      long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+    this.maximumWeight = maximumWeight;
+    this.weigher = weigher;
+    return this;
+  }
+
+  /**
+   * Sets a listener which is called with the key and value of every entry evicted because the cache
+   * exceeded its maximum size or weight. Explicit removals do not notify the listener.
+   */
+  public <K, V> CacheBuilder setEvictionListener(BiConsumer<? super K, ? super V> listener) {
+    this.evictionListener = listener;
+    return this;
+  }
+
   /**
    * Sets that keys should be referenced weakly. If used, keys will use identity comparison, not
    * {@link Object#equals(Object)}.
@@ -39,25 +64,40 @@ public final class CacheBuilder {
   }
 
   /** Returns a new {@link Cache} with the settings of this {@link CacheBuilder}. */
+  @SuppressWarnings("unchecked")
   public <K, V> Cache<K, V> build() {
-    if (weakKeys && maximumSize == UNSET) {
+    if (maximumSize != UNSET && maximumWeight != UNSET) {
+      throw new IllegalStateException("Maximum size and maximum weight cannot be combined");
+    }
+    if (weakKeys && maximumSize == UNSET && maximumWeight == UNSET) {
       return new WeakLockFreeCache<>();
     }
-    Caffeine<?, ?> caffeine = Caffeine.newBuilder();
+    Caffeine<Object, Object> caffeine = Caffeine.newBuilder();
     if (weakKeys) {
       caffeine.weakKeys();
     }
     if (maximumSize != UNSET) {
       caffeine.maximumSize(maximumSize);
     }
+    if (maximumWeight != UNSET) {
+      ToIntBiFunction<Object, Object> weigher = (ToIntBiFunction<Object, Object>) this.weigher;
+      caffeine.maximumWeight(maximumWeight).weigher(weigher::applyAsInt);
+    }
+    if (evictionListener != null) {
+      BiConsumer<Object, Object> listener = (BiConsumer<Object, Object>) evictionListener;
+      caffeine.removalListener(
+          (key, value, cause) -> {
+            if (cause.wasEvicted()) {
+              listener.accept(key, value);
+            }
+          });
+    }
     if (executor != null) {
       caffeine.executor(executor);
     } else {
       caffeine.executor(Runnable::run);
     }
-    @SuppressWarnings("unchecked")
-    com.github.benmanes.caffeine.cache.Cache<K, V> delegate =
-        (com.github.benmanes.caffeine.cache.Cache<K, V>) caffeine.build();
+    com.github.benmanes.caffeine.cache.Cache<K, V> delegate = caffeine.build();
     return new CaffeineCache<>(delegate);
   }
 
@@ -6,44 +6,127 @@
 package io.opentelemetry.instrumentation.api.caching;
 
 import com.blogspot.mydailyjava.weaklockfree.WeakConcurrentMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 final class WeakLockFreeCache<K, V> implements Cache<K, V> {
 
-  private final WeakConcurrentMap<K, V> delegate;
+  // the pending computation each thread is waiting for, in any weak cache
+  private static final ConcurrentHashMap<Thread, Pending<?>> waitingThreads =
+      new ConcurrentHashMap<>();
+
+  // values are either V or a Pending placeholder for a value that is still being computed
+  private final WeakConcurrentMap<K, Object> delegate;
 
   WeakLockFreeCache() {
     this.delegate = new WeakConcurrentMap.WithInlinedExpunction<>();
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-    V value = get(key);
-    if (value != null) {
-      return value;
-    }
-    // Best we can do, we don't expect high contention with this implementation. Note, this
-    // prevents executing mappingFunction twice but it does not prevent executing mappingFunction
-    // if there is a concurrent put operation as would be the case for ConcurrentHashMap. However,
-    // we would never expect an order guarantee in this case anyways so it still has the same
-    // safety.
-    synchronized (delegate) {
-      value = get(key);
-      if (value != null) {
-        return value;
+    Thread thread = Thread.currentThread();
+    while (true) {
+      Object current = delegate.getIfPresent(key);
+      if (current == null) {
+        // claim the key with a placeholder, the thread that succeeds computes the value outside of
+        // any lock while other threads computing the same key wait for it; threads computing other
+        // keys are not blocked at all
+        Pending<V> pending = new Pending<>(thread);
+        current = delegate.putIfAbsent(key, pending);
+        if (current == null) {
+          return compute(key, pending, mappingFunction);
+        }
+      }
+      if (!(current instanceof Pending)) {
+        return (V) current;
+      }
+      Pending<V> pending = (Pending<V>) current;
+      if (pending.claim(thread)) {
+        // the previous computation failed or had no value, compute it again
+        return compute(key, pending, mappingFunction);
       }
+      // registered before looking for a deadlock, so that of two threads waiting for each other at
+      // least one sees the other waiting
+      waitingThreads.put(thread, pending);
+      try {
+        if (!waitsFor(pending, thread)) {
+          if (pending.await()) {
+            return pending.getIfDone();
+          }
+          // the computation failed or had no value, try to compute the value again
+          continue;
+        }
+      } finally {
+        waitingThreads.remove(thread);
+      }
+      // the owner of the pending computation is this thread (recursion on the same key), or waits
+      // for a computation of this thread (recursion across keys on several threads), so waiting
+      // would never end. Compute the value inline instead, it's stored by the owner.
+      return mappingFunction.apply(key);
+    }
+  }
+
+  private V compute(K key, Pending<V> pending, Function<? super K, ? extends V> mappingFunction) {
+    V value;
+    try {
       value = mappingFunction.apply(key);
-      V previous = delegate.putIfAbsent(key, value);
-      if (previous != null) {
-        return previous;
+    } catch (Throwable t) {
+      // the placeholder stays in the map, the next thread asking for the key claims it again;
+      // removing it could remove a value that was put concurrently
+      pending.release();
+      throw t;
+    }
+    if (value == null) {
+      pending.release();
+      return null;
+    }
+    // Note, this replaces a value that was put concurrently while computing, which is the same as
+    // if the put had happened just before the computation. We would never expect an order
+    // guarantee in this case anyways.
+    delegate.put(key, value);
+    pending.complete(value);
+    return value;
+  }
+
+  /**
+   * Returns whether the owner of {@code pending} is {@code thread}, or waits, directly or through
+   * other threads, for a computation of {@code thread}.
+   */
+  private static boolean waitsFor(Pending<?> pending, Thread thread) {
+    Set<Thread> visited = null;
+    Pending<?> next = pending;
+    while (next != null) {
+      Thread owner = next.owner;
+      if (owner == thread) {
+        return true;
       }
-      return value;
+      if (owner == null) {
+        return false;
+      }
+      if (visited == null) {
+        visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      }
+      if (!visited.add(owner)) {
+        // a chain of waiting threads that this thread is not part of, one of them stops waiting
+        return false;
+      }
+      next = waitingThreads.get(owner);
     }
+    return false;
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public V get(K key) {
-    return delegate.getIfPresent(key);
+    Object value = delegate.getIfPresent(key);
+    if (value instanceof Pending) {
+      return ((Pending<V>) value).getIfDone();
+    }
+    return (V) value;
   }
 
   @Override
@@ -60,4 +143,58 @@ final class WeakLockFreeCache<K, V> implements Cache<K, V> {
   int size() {
     return delegate.approximateSize();
   }
+
+  private static final class Pending<V> {
+    // the thread computing the value, null once the computation has ended
+    private volatile Thread owner;
+    // guarded by this
+    private V value;
+
+    private Pending(Thread owner) {
+      this.owner = owner;
+    }
+
+    /** Claims a placeholder whose computation failed or had no value for {@code thread}. */
+    synchronized boolean claim(Thread thread) {
+      if (owner != null || value != null) {
+        return false;
+      }
+      owner = thread;
+      return true;
+    }
+
+    synchronized void complete(V value) {
+      this.value = value;
+      owner = null;
+      notifyAll();
+    }
+
+    synchronized void release() {
+      owner = null;
+      notifyAll();
+    }
+
+    synchronized V getIfDone() {
+      return value;
+    }
+
+    /** Waits for the computation and returns whether it completed with a value. */
+    synchronized boolean await() {
+      boolean interrupted = false;
+      try {
+        while (owner != null) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        return value != null;
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
 }
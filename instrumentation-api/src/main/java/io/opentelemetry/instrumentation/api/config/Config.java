@@ -92,6 +92,16 @@ public abstract class Config {
     return getTypedProperty(name, Boolean::parseBoolean, defaultValue);
   }
 
+  /**
+   * Returns an integer property value or {@code defaultValue} if a property with name {@code name}
+   * did not exist or could not be parsed.
+   *
+   * @see #getProperty(String, String)
+   */
+  public int getIntProperty(String name, int defaultValue) {
+    return getTypedProperty(name, Integer::parseInt, defaultValue);
+  }
+
   /**
    * Returns a list-of-strings property value or empty list if a property with name {@code name} did
    * not exist.
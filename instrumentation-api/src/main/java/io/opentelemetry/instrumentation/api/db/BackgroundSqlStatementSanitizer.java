@@ -0,0 +1,57 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.db;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sanitizes statements on a single background thread, which warms up the {@link
+ * SqlStatementSanitizer} cache without adding lexing latency to the application thread. Statements
+ * are dropped when the queue is full; they will then be sanitized synchronously when the span ends.
+ */
+final class BackgroundSqlStatementSanitizer {
+
+  private static final BlockingQueue<String> queue = new ArrayBlockingQueue<>(1000);
+  // statements that are queued, so that a statement that's executed concurrently by many threads is
+  // sanitized only once
+  private static final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+  static {
+    Thread thread = new Thread(BackgroundSqlStatementSanitizer::run);
+    thread.setName("otel-sql-statement-sanitizer");
+    thread.setDaemon(true);
+    thread.setContextClassLoader(null);
+    thread.start();
+  }
+
+  static void submit(String statement) {
+    if (pending.add(statement) && !queue.offer(statement)) {
+      pending.remove(statement);
+    }
+  }
+
+  private static void run() {
+    while (true) {
+      String statement;
+      try {
+        statement = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      try {
+        SqlStatementSanitizer.sanitize(statement);
+      } finally {
+        pending.remove(statement);
+      }
+    }
+  }
+
+  private BackgroundSqlStatementSanitizer() {}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.db;
+
+import java.io.Reader;
+
+/**
+ * A {@link Reader} over a {@link CharSequence}. Unlike {@link java.io.StringReader} it does not
+ * require converting the sequence into a {@link String} first, and characters are only read as far
+ * as the consumer actually gets.
+ */
+final class CharSequenceReader extends Reader {
+
+  private final CharSequence chars;
+  private int position = 0;
+
+  CharSequenceReader(CharSequence chars) {
+    this.chars = chars;
+  }
+
+  @Override
+  public int read(char[] buffer, int offset, int length) {
+    int remaining = chars.length() - position;
+    if (remaining <= 0) {
+      return -1;
+    }
+    int count = Math.min(length, remaining);
+    int end = position + count;
+    if (chars instanceof String) {
+      ((String) chars).getChars(position, end, buffer, offset);
+    } else if (chars instanceof StringBuilder) {
+      ((StringBuilder) chars).getChars(position, end, buffer, offset);
+    } else {
+      for (int i = position; i < end; i++) {
+        buffer[offset++] = chars.charAt(i);
+      }
+    }
+    position = end;
+    return count;
+  }
+
+  @Override
+  public void close() {}
+}
@@ -5,33 +5,151 @@
 
 package io.opentelemetry.instrumentation.api.db;
 
+import static io.opentelemetry.instrumentation.api.db.StatementSanitizationConfig.isDeferredStatementSanitizationEnabled;
 import static io.opentelemetry.instrumentation.api.db.StatementSanitizationConfig.isStatementSanitizationEnabled;
+import static io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics.CounterNames.SQL_STATEMENT_SANITIZER_CACHE_EVICTION;
+import static io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics.CounterNames.SQL_STATEMENT_SANITIZER_CACHE_HIT;
 import static io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics.CounterNames.SQL_STATEMENT_SANITIZER_CACHE_MISS;
 
 import io.opentelemetry.instrumentation.api.caching.Cache;
 import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * This class is responsible for masking potentially sensitive parameters in SQL (and SQL-like)
  * statements and queries.
  */
 public final class SqlStatementSanitizer {
-  private static final SupportabilityMetrics supportability = SupportabilityMetrics.instance();
+  private static final SupportabilityMetrics.Counter cacheHits =
+      SupportabilityMetrics.instance().counter(SQL_STATEMENT_SANITIZER_CACHE_HIT);
+  private static final SupportabilityMetrics.Counter cacheMisses =
+      SupportabilityMetrics.instance().counter(SQL_STATEMENT_SANITIZER_CACHE_MISS);
+  private static final SupportabilityMetrics.Counter cacheEvictions =
+      SupportabilityMetrics.instance().counter(SQL_STATEMENT_SANITIZER_CACHE_EVICTION);
 
-  private static final Cache<String, SqlStatementInfo> sqlToStatementInfoCache =
-      Cache.newBuilder().setMaximumSize(1000).build();
+  // the caches are bounded by the number of characters they retain, not by the number of entries,
+  // so that a few huge statements can't pin megabytes of memory
+  private static final long MAX_CACHED_CHARACTERS = 1024 * 1024;
+  // longer statements are sanitized on every call; caching them would evict many smaller ones
+  private static final int MAX_CACHED_STATEMENT_LENGTH = 32 * 1024;
+
+  // raw SQL -> sanitized statement info, striped to spread contention on cache maintenance
+  private static final Cache<String, SqlStatementInfo>[] sqlToStatementInfoCaches =
+      newStripedCaches();
+  // sanitized SQL -> sanitized statement info, so that all statements that differ only by their
+  // literal values share one SqlStatementInfo (and one sanitized string)
+  private static final Cache<String, SqlStatementInfo> sanitizedToStatementInfoCache =
+      newCache(MAX_CACHED_CHARACTERS);
 
   public static SqlStatementInfo sanitize(String statement) {
     if (!isStatementSanitizationEnabled() || statement == null) {
       return SqlStatementInfo.create(statement, null, null);
     }
-    return sqlToStatementInfoCache.computeIfAbsent(
+    if (statement.length() > MAX_CACHED_STATEMENT_LENGTH) {
+      cacheMisses.increment();
+      return AutoSqlSanitizer.sanitize(statement);
+    }
+
+    Cache<String, SqlStatementInfo> cache = stripeFor(statement);
+    SqlStatementInfo cached = cache.get(statement);
+    if (cached != null) {
+      cacheHits.increment();
+      return cached;
+    }
+    return cache.computeIfAbsent(
         statement,
         k -> {
-          supportability.incrementCounter(SQL_STATEMENT_SANITIZER_CACHE_MISS);
-          return AutoSqlSanitizer.sanitize(statement);
+          cacheMisses.increment();
+          return intern(AutoSqlSanitizer.sanitize(statement));
         });
   }
 
+  /**
+   * Returns whether sanitization of statements that are not cached yet should be deferred until
+   * the end of the operation, see {@link #sanitizeIfCached(String)}.
+   */
+  public static boolean isDeferredSanitizationEnabled() {
+    return isStatementSanitizationEnabled() && isDeferredStatementSanitizationEnabled();
+  }
+
+  /**
+   * Returns the sanitized statement if it is already cached. Otherwise returns {@code null} and
+   * schedules sanitization of the statement on a background thread, so that a later call (e.g. when
+   * the operation ends) is likely to hit the cache. Statements too long to be cached are sanitized
+   * right away, since they would never be found in the cache.
+   */
+  @Nullable
+  public static SqlStatementInfo sanitizeIfCached(String statement) {
+    if (!isStatementSanitizationEnabled() || statement == null) {
+      return SqlStatementInfo.create(statement, null, null);
+    }
+    if (statement.length() > MAX_CACHED_STATEMENT_LENGTH) {
+      return sanitize(statement);
+    }
+    SqlStatementInfo cached = stripeFor(statement).get(statement);
+    if (cached != null) {
+      cacheHits.increment();
+      return cached;
+    }
+    BackgroundSqlStatementSanitizer.submit(statement);
+    return null;
+  }
+
+  /**
+   * Sanitizes a statement that is not available as a {@link String}, e.g. one that is still being
+   * built in a {@link StringBuilder}. The statement is lexed directly, without copying it into a
+   * {@link String} first; since it can't be used as a cache key, only the sanitized result is
+   * cached.
+   */
+  public static SqlStatementInfo sanitize(CharSequence statement) {
+    if (statement instanceof String || statement == null) {
+      return sanitize((String) statement);
+    }
+    if (!isStatementSanitizationEnabled()) {
+      return SqlStatementInfo.create(statement.toString(), null, null);
+    }
+    cacheMisses.increment();
+    return intern(AutoSqlSanitizer.sanitize(statement));
+  }
+
+  private static SqlStatementInfo intern(SqlStatementInfo statementInfo) {
+    String sanitized = statementInfo.getFullStatement();
+    if (sanitized == null || sanitized.length() > MAX_CACHED_STATEMENT_LENGTH) {
+      return statementInfo;
+    }
+    return sanitizedToStatementInfoCache.computeIfAbsent(sanitized, k -> statementInfo);
+  }
+
+  private static Cache<String, SqlStatementInfo> stripeFor(String statement) {
+    int hash = statement.hashCode();
+    // mix the high bits into the low bits that are used to select the stripe
+    hash ^= hash >>> 16;
+    return sqlToStatementInfoCaches[hash & (sqlToStatementInfoCaches.length - 1)];
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Cache<String, SqlStatementInfo>[] newStripedCaches() {
+    int stripes = stripeCount(Runtime.getRuntime().availableProcessors());
+    Cache<String, SqlStatementInfo>[] caches = new Cache[stripes];
+    for (int i = 0; i < stripes; i++) {
+      caches[i] = newCache(MAX_CACHED_CHARACTERS / stripes);
+    }
+    return caches;
+  }
+
+  private static int stripeCount(int availableProcessors) {
+    // a power of two, so that a stripe can be selected with a mask; never more than 16 so that each
+    // stripe is still large enough to be useful
+    int stripes = Integer.highestOneBit(Math.max(1, availableProcessors));
+    return Math.min(stripes, 16);
+  }
+
+  private static Cache<String, SqlStatementInfo> newCache(long maximumWeight) {
+    return Cache.newBuilder()
+        .setMaximumWeight(maximumWeight, (String sql, SqlStatementInfo info) -> sql.length())
+        .setEvictionListener((String sql, SqlStatementInfo info) -> cacheEvictions.increment())
+        .build();
+  }
+
   private SqlStatementSanitizer() {}
 }
@@ -14,9 +14,30 @@ final class StatementSanitizationConfig {
       Config.get()
           .getBooleanProperty("otel.instrumentation.common.db-statement-sanitizer.enabled", true);
 
+  private static final int EXTRACTED_STATEMENT_MAX_LENGTH =
+      Config.get()
+          .getIntProperty(
+              "otel.instrumentation.common.db-statement-sanitizer.max-length", 32 * 1024);
+
+  private static final boolean DEFERRED_STATEMENT_SANITIZATION_ENABLED =
+      Config.get()
+          .getBooleanProperty("otel.instrumentation.common.db-statement-sanitizer.deferred", false);
+
   static boolean isStatementSanitizationEnabled() {
     return STATEMENT_SANITIZATION_ENABLED;
   }
 
+  static boolean isDeferredStatementSanitizationEnabled() {
+    return DEFERRED_STATEMENT_SANITIZATION_ENABLED;
+  }
+
+  /**
+   * Returns the number of characters after which the sanitizer stops lexing a statement once its
+   * operation and table are known.
+   */
+  static int getExtractedStatementMaxLength() {
+    return EXTRACTED_STATEMENT_MAX_LENGTH;
+  }
+
   private StatementSanitizationConfig() {}
 }
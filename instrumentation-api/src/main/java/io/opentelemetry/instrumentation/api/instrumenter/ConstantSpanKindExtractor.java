@@ -0,0 +1,34 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter;
+
+import io.opentelemetry.api.trace.SpanKind;
+
+/**
+ * A {@link SpanKindExtractor} that always returns the same {@link SpanKind}. {@link Instrumenter}
+ * recognizes it and resolves the kind once at construction instead of on every request.
+ */
+final class ConstantSpanKindExtractor<REQUEST> implements SpanKindExtractor<REQUEST> {
+
+  static <REQUEST> SpanKindExtractor<REQUEST> of(SpanKind spanKind) {
+    return new ConstantSpanKindExtractor<>(spanKind);
+  }
+
+  private final SpanKind spanKind;
+
+  private ConstantSpanKindExtractor(SpanKind spanKind) {
+    this.spanKind = spanKind;
+  }
+
+  SpanKind getSpanKind() {
+    return spanKind;
+  }
+
+  @Override
+  public SpanKind extract(REQUEST request) {
+    return spanKind;
+  }
+}
@@ -19,7 +19,6 @@ import io.opentelemetry.instrumentation.api.InstrumentationVersion;
 import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
 import io.opentelemetry.instrumentation.api.tracer.ClientSpan;
 import io.opentelemetry.instrumentation.api.tracer.ServerSpan;
-import java.util.ArrayList;
 import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -50,28 +49,35 @@ public class Instrumenter<REQUEST, RESPONSE> {
     return new InstrumenterBuilder<>(openTelemetry, instrumentationName, spanNameExtractor);
   }
 
-  private static final SupportabilityMetrics supportability = SupportabilityMetrics.instance();
-
   private final String instrumentationName;
+  private final SupportabilityMetrics.SuppressedSpanCounter suppressedSpans;
   private final Tracer tracer;
   private final SpanNameExtractor<? super REQUEST> spanNameExtractor;
   private final SpanKindExtractor<? super REQUEST> spanKindExtractor;
   private final SpanStatusExtractor<? super REQUEST, ? super RESPONSE> spanStatusExtractor;
-  private final List<? extends AttributesExtractor<? super REQUEST, ? super RESPONSE>> extractors;
-  private final List<? extends RequestListener> requestListeners;
+  // the span kind of every request if it's known to be constant, null otherwise
+  @Nullable private final SpanKind constantSpanKind;
+  private final AttributesExtractor<? super REQUEST, ? super RESPONSE>[] extractors;
+  private final RequestListener[] requestListeners;
   private final ErrorCauseExtractor errorCauseExtractor;
   private final StartTimeExtractor<REQUEST> startTimeExtractor;
   private final EndTimeExtractor<RESPONSE> endTimeExtractor;
 
   Instrumenter(InstrumenterBuilder<REQUEST, RESPONSE> builder) {
     this.instrumentationName = builder.instrumentationName;
+    this.suppressedSpans =
+        SupportabilityMetrics.instance().suppressedSpanCounter(instrumentationName);
     this.tracer =
         builder.openTelemetry.getTracer(instrumentationName, InstrumentationVersion.VERSION);
     this.spanNameExtractor = builder.spanNameExtractor;
     this.spanKindExtractor = builder.spanKindExtractor;
     this.spanStatusExtractor = builder.spanStatusExtractor;
-    this.extractors = new ArrayList<>(builder.attributesExtractors);
-    this.requestListeners = new ArrayList<>(builder.requestListeners);
+    this.constantSpanKind =
+        spanKindExtractor instanceof ConstantSpanKindExtractor
+            ? ((ConstantSpanKindExtractor<?>) spanKindExtractor).getSpanKind()
+            : null;
+    this.extractors = toArray(builder.attributesExtractors);
+    this.requestListeners = builder.requestListeners.toArray(new RequestListener[0]);
     this.errorCauseExtractor = builder.errorCauseExtractor;
     this.startTimeExtractor = builder.startTimeExtractor;
     this.endTimeExtractor = builder.endTimeExtractor;
@@ -85,7 +91,7 @@ public class Instrumenter<REQUEST, RESPONSE> {
    */
   public boolean shouldStart(Context parentContext, REQUEST request) {
     boolean suppressed = false;
-    SpanKind spanKind = spanKindExtractor.extract(request);
+    SpanKind spanKind = extractSpanKind(request);
     switch (spanKind) {
       case SERVER:
         suppressed = ServerSpan.fromContextOrNull(parentContext) != null;
@@ -97,7 +103,7 @@ public class Instrumenter<REQUEST, RESPONSE> {
         break;
     }
     if (suppressed) {
-      supportability.recordSuppressedSpan(spanKind, instrumentationName);
+      suppressedSpans.increment(spanKind);
     }
     return !suppressed;
   }
@@ -110,7 +116,7 @@ public class Instrumenter<REQUEST, RESPONSE> {
    * Throwable)} when it is finished.
    */
   public Context start(Context parentContext, REQUEST request) {
-    SpanKind spanKind = spanKindExtractor.extract(request);
+    SpanKind spanKind = extractSpanKind(request);
     SpanBuilder spanBuilder =
         tracer
             .spanBuilder(spanNameExtractor.extract(request))
@@ -121,19 +127,29 @@ public class Instrumenter<REQUEST, RESPONSE> {
       spanBuilder.setStartTimestamp(startTimeExtractor.extract(request));
     }
 
-    AttributesBuilder attributesBuilder = Attributes.builder();
-    for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : extractors) {
-      extractor.onStart(attributesBuilder, request);
-    }
-    Attributes attributes = attributesBuilder.build();
-
     Context context = parentContext;
 
-    for (RequestListener requestListener : requestListeners) {
-      context = requestListener.start(context, attributes);
+    if (requestListeners.length == 0) {
+      // nobody else needs the attributes, so there's no need to build an intermediate Attributes
+      SpanAttributesBuilder attributesBuilder = new SpanAttributesBuilder();
+      for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : extractors) {
+        extractor.onStart(attributesBuilder, request);
+      }
+      attributesBuilder.writeTo(spanBuilder);
+    } else {
+      AttributesBuilder attributesBuilder = Attributes.builder();
+      for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : extractors) {
+        extractor.onStart(attributesBuilder, request);
+      }
+      Attributes attributes = attributesBuilder.build();
+
+      for (RequestListener requestListener : requestListeners) {
+        context = requestListener.start(context, attributes);
+      }
+
+      attributes.forEach((key, value) -> spanBuilder.setAttribute((AttributeKey) key, value));
     }
 
-    attributes.forEach((key, value) -> spanBuilder.setAttribute((AttributeKey) key, value));
     Span span = spanBuilder.startSpan();
     context = context.with(span);
     switch (spanKind) {
@@ -155,17 +171,25 @@ public class Instrumenter<REQUEST, RESPONSE> {
   public void end(Context context, REQUEST request, RESPONSE response, @Nullable Throwable error) {
     Span span = Span.fromContext(context);
 
-    AttributesBuilder attributesBuilder = Attributes.builder();
-    for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : extractors) {
-      extractor.onEnd(attributesBuilder, request, response);
-    }
-    Attributes attributes = attributesBuilder.build();
+    if (requestListeners.length == 0) {
+      SpanAttributesBuilder attributesBuilder = new SpanAttributesBuilder();
+      for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : extractors) {
+        extractor.onEnd(attributesBuilder, request, response);
+      }
+      attributesBuilder.writeTo(span);
+    } else {
+      AttributesBuilder attributesBuilder = Attributes.builder();
+      for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : extractors) {
+        extractor.onEnd(attributesBuilder, request, response);
+      }
+      Attributes attributes = attributesBuilder.build();
 
-    for (RequestListener requestListener : requestListeners) {
-      requestListener.end(context, attributes);
-    }
+      for (RequestListener requestListener : requestListeners) {
+        requestListener.end(context, attributes);
+      }
 
-    attributes.forEach((key, value) -> span.setAttribute((AttributeKey) key, value));
+      attributes.forEach((key, value) -> span.setAttribute((AttributeKey) key, value));
+    }
 
     if (error != null) {
       error = errorCauseExtractor.extractCause(error);
@@ -183,4 +207,16 @@ public class Instrumenter<REQUEST, RESPONSE> {
       span.end();
     }
   }
+
+  private SpanKind extractSpanKind(REQUEST request) {
+    SpanKind spanKind = constantSpanKind;
+    return spanKind != null ? spanKind : spanKindExtractor.extract(request);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <REQUEST, RESPONSE>
+      AttributesExtractor<? super REQUEST, ? super RESPONSE>[] toArray(
+          List<AttributesExtractor<? super REQUEST, ? super RESPONSE>> extractors) {
+    return extractors.toArray(new AttributesExtractor[0]);
+  }
 }
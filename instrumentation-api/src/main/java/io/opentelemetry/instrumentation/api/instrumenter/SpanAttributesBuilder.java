@@ -0,0 +1,80 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link AttributesBuilder} which only records the attributes in the order they were put, to be
+ * written into a {@link SpanBuilder} or a {@link Span} afterwards, instead of sorting and
+ * deduplicating them into an intermediate {@link Attributes}. {@link Instrumenter} uses it when
+ * there are no {@link RequestListener}s that need to see the extracted attributes, which saves
+ * building and then copying an {@link Attributes} on every request. An extractor which calls
+ * {@link #build()} still gets the attributes it has put so far.
+ */
+final class SpanAttributesBuilder implements AttributesBuilder {
+
+  // alternating keys and values; a key put twice is written twice, the last value wins
+  private final List<Object> data = new ArrayList<>();
+
+  @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public Attributes build() {
+    AttributesBuilder attributes = Attributes.builder();
+    for (int i = 0; i < data.size(); i += 2) {
+      attributes.put((AttributeKey) data.get(i), data.get(i + 1));
+    }
+    return attributes.build();
+  }
+
+  @Override
+  public <T> AttributesBuilder put(AttributeKey<Long> key, int value) {
+    if (key != null) {
+      data.add(key);
+      data.add((long) value);
+    }
+    return this;
+  }
+
+  @Override
+  public <T> AttributesBuilder put(AttributeKey<T> key, T value) {
+    if (key != null && value != null) {
+      data.add(key);
+      data.add(value);
+    }
+    return this;
+  }
+
+  @Override
+  public AttributesBuilder putAll(Attributes attributes) {
+    attributes.forEach(
+        (key, value) -> {
+          data.add(key);
+          data.add(value);
+        });
+    return this;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  void writeTo(SpanBuilder spanBuilder) {
+    for (int i = 0; i < data.size(); i += 2) {
+      spanBuilder.setAttribute((AttributeKey) data.get(i), data.get(i + 1));
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  void writeTo(Span span) {
+    for (int i = 0; i < data.size(); i += 2) {
+      span.setAttribute((AttributeKey) data.get(i), data.get(i + 1));
+    }
+  }
+}
@@ -17,27 +17,27 @@ public interface SpanKindExtractor<REQUEST> {
 
   /** Returns a {@link SpanNameExtractor} which always returns {@link SpanKind#INTERNAL}. */
   static <REQUEST> SpanKindExtractor<REQUEST> alwaysInternal() {
-    return request -> SpanKind.INTERNAL;
+    return ConstantSpanKindExtractor.of(SpanKind.INTERNAL);
   }
 
   /** Returns a {@link SpanNameExtractor} which always returns {@link SpanKind#CLIENT}. */
   static <REQUEST> SpanKindExtractor<REQUEST> alwaysClient() {
-    return request -> SpanKind.CLIENT;
+    return ConstantSpanKindExtractor.of(SpanKind.CLIENT);
   }
 
   /** Returns a {@link SpanNameExtractor} which always returns {@link SpanKind#SERVER}. */
   static <REQUEST> SpanKindExtractor<REQUEST> alwaysServer() {
-    return request -> SpanKind.SERVER;
+    return ConstantSpanKindExtractor.of(SpanKind.SERVER);
   }
 
   /** Returns a {@link SpanNameExtractor} which always returns {@link SpanKind#PRODUCER}. */
   static <REQUEST> SpanKindExtractor<REQUEST> alwaysProducer() {
-    return request -> SpanKind.PRODUCER;
+    return ConstantSpanKindExtractor.of(SpanKind.PRODUCER);
   }
 
   /** Returns a {@link SpanNameExtractor} which always returns {@link SpanKind#CONSUMER}. */
   static <REQUEST> SpanKindExtractor<REQUEST> alwaysConsumer() {
-    return request -> SpanKind.CONSUMER;
+    return ConstantSpanKindExtractor.of(SpanKind.CONSUMER);
   }
 
   /** Returns the {@link SpanKind} corresponding to the {@link REQUEST}. */
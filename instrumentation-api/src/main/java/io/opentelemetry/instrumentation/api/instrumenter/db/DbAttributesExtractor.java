@@ -31,7 +31,13 @@ public abstract class DbAttributesExtractor<REQUEST> extends AttributesExtractor
   }
 
   @Override
-  protected final void onEnd(AttributesBuilder attributes, REQUEST request, Void unused) {}
+  protected final void onEnd(AttributesBuilder attributes, REQUEST request, Void unused) {
+    onEndDeferred(attributes, request);
+  }
+
+  // lets SqlAttributesExtractor add the statement attributes it deferred to the end of the request
+  // without opening onEnd to subclasses in other packages
+  void onEndDeferred(AttributesBuilder attributes, REQUEST request) {}
 
   @Nullable
   protected abstract String system(REQUEST request);
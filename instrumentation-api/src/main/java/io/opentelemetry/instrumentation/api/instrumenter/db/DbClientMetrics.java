@@ -0,0 +1,74 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter.db;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.annotations.UnstableApi;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestMetrics;
+import io.opentelemetry.instrumentation.api.internal.DurationRequestListener;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link RequestListener} which records the duration of database client operations as the {@code
+ * db.client.duration} metric, labeled with the database system, name and operation and the peer
+ * the operation was sent to.
+ *
+ * <p>To use this class, you may need to add the {@code opentelemetry-api-metrics} artifact to your
+ * dependencies.
+ *
+ * <p>Request listeners are called whether or not the span is sampled, so the duration is recorded
+ * for every operation. The labels are taken from the start attributes and completed by the end
+ * attributes, so that e.g. an operation that is only extracted when sanitizing deferred SQL
+ * statements is still recorded.
+ */
+@UnstableApi
+public final class DbClientMetrics implements RequestListener {
+
+  private static final List<AttributeKey<?>> LABEL_KEYS =
+      Arrays.asList(
+          SemanticAttributes.DB_SYSTEM,
+          SemanticAttributes.DB_NAME,
+          SemanticAttributes.DB_OPERATION,
+          SemanticAttributes.NET_PEER_NAME,
+          SemanticAttributes.NET_PEER_PORT);
+
+  /**
+   * Returns a {@link RequestMetrics} which can be used to enable recording of {@link
+   * DbClientMetrics} on an {@link
+   * io.opentelemetry.instrumentation.api.instrumenter.InstrumenterBuilder}.
+   */
+  @UnstableApi
+  public static RequestMetrics get() {
+    return DbClientMetrics::new;
+  }
+
+  private final RequestListener duration;
+
+  private DbClientMetrics(Meter meter) {
+    duration =
+        DurationRequestListener.create(
+            meter,
+            "db.client.duration",
+            "The duration of the database operation",
+            LABEL_KEYS);
+  }
+
+  @Override
+  public Context start(Context context, Attributes requestAttributes) {
+    return duration.start(context, requestAttributes);
+  }
+
+  @Override
+  public void end(Context context, Attributes responseAttributes) {
+    duration.end(context, responseAttributes);
+  }
+}
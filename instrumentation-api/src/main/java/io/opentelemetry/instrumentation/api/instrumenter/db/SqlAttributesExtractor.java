@@ -9,6 +9,7 @@ import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.instrumentation.api.db.SqlStatementInfo;
 import io.opentelemetry.instrumentation.api.db.SqlStatementSanitizer;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -21,9 +22,19 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  *   <li>It sanitizes the raw SQL query and removes all parameters;
  *   <li>It enables adding the table name extracted by the sanitizer as a parameter.
  * </ul>
+ *
+ * <p>If {@code otel.instrumentation.common.db-statement-sanitizer.deferred} is enabled, statements
+ * that have not been sanitized before are not sanitized on the application thread when the request
+ * starts. The statement, operation and table attributes of such requests are added when the request
+ * ends instead, and the span keeps the provisional name it was started with. By then the statement
+ * has usually been sanitized in the background; if it hasn't, it is sanitized when the request
+ * ends.
  */
 public abstract class SqlAttributesExtractor<REQUEST> extends DbAttributesExtractor<REQUEST> {
 
+  private static final boolean DEFERRED = SqlStatementSanitizer.isDeferredSanitizationEnabled();
+  private static final SqlStatementInfo PROVISIONAL = SqlStatementInfo.create(null, null, null);
+
   @Override
   protected final void onStart(AttributesBuilder attributes, REQUEST request) {
     super.onStart(attributes, request);
@@ -33,6 +44,23 @@ public abstract class SqlAttributesExtractor<REQUEST> extends DbAttributesExtrac
     }
   }
 
+  @Override
+  final void onEndDeferred(AttributesBuilder attributes, REQUEST request) {
+    if (!DEFERRED) {
+      return;
+    }
+    // the background sanitizer has most likely cached the statement by now; if it hasn't, the
+    // statement is sanitized here so that the attributes aren't lost. Requests that started with a
+    // cached statement get the same attributes again from the cache
+    SqlStatementInfo statementInfo = SqlStatementSanitizer.sanitize(rawStatement(request));
+    set(attributes, SemanticAttributes.DB_STATEMENT, statementInfo.getFullStatement());
+    set(attributes, SemanticAttributes.DB_OPERATION, statementInfo.getOperation());
+    AttributeKey<String> dbTable = dbTableAttribute();
+    if (dbTable != null) {
+      set(attributes, dbTable, statementInfo.getTable());
+    }
+  }
+
   @Nullable
   @Override
   protected final String statement(REQUEST request) {
@@ -52,6 +80,11 @@ public abstract class SqlAttributesExtractor<REQUEST> extends DbAttributesExtrac
 
   private SqlStatementInfo sanitize(REQUEST request) {
     // sanitized statement is cached
+    if (DEFERRED) {
+      SqlStatementInfo statementInfo =
+          SqlStatementSanitizer.sanitizeIfCached(rawStatement(request));
+      return statementInfo == null ? PROVISIONAL : statementInfo;
+    }
     return SqlStatementSanitizer.sanitize(rawStatement(request));
   }
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter.http;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.annotations.UnstableApi;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestMetrics;
+import io.opentelemetry.instrumentation.api.internal.DurationRequestListener;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link RequestListener} which keeps track of <a
+ * href="https://github.com/open-telemetry/opentelemetry-specification/blob/main/specification/metrics/semantic_conventions/http-metrics.md#http-client">HTTP
+ * client metrics</a>.
+ *
+ * <p>To use this class, you may need to add the {@code opentelemetry-api-metrics} artifact to your
+ * dependencies.
+ *
+ * <p>Request listeners are called whether or not the span is sampled, so the duration is recorded
+ * for every request. The labels are taken from the request attributes and completed by the response
+ * attributes (e.g. {@code http.status_code}); the instruments bound to them are reused the same way
+ * as in {@link HttpServerMetrics}.
+ */
+@UnstableApi
+public final class HttpClientMetrics implements RequestListener {
+
+  private static final List<AttributeKey<?>> LABEL_KEYS =
+      Arrays.asList(
+          SemanticAttributes.HTTP_METHOD,
+          SemanticAttributes.HTTP_HOST,
+          SemanticAttributes.HTTP_SCHEME,
+          SemanticAttributes.HTTP_FLAVOR,
+          SemanticAttributes.NET_PEER_NAME,
+          SemanticAttributes.HTTP_STATUS_CODE,
+          SemanticAttributes.NET_PEER_PORT);
+
+  /**
+   * Returns a {@link RequestMetrics} which can be used to enable recording of {@link
+   * HttpClientMetrics} on an {@link
+   * io.opentelemetry.instrumentation.api.instrumenter.InstrumenterBuilder}.
+   */
+  @UnstableApi
+  public static RequestMetrics get() {
+    return HttpClientMetrics::new;
+  }
+
+  private final RequestListener duration;
+
+  private HttpClientMetrics(Meter meter) {
+    duration =
+        DurationRequestListener.create(
+            meter,
+            "http.client.duration",
+            "The duration of the outbound HTTP request",
+            LABEL_KEYS);
+  }
+
+  @Override
+  public Context start(Context context, Attributes requestAttributes) {
+    return duration.start(context, requestAttributes);
+  }
+
+  @Override
+  public void end(Context context, Attributes responseAttributes) {
+    duration.end(context, responseAttributes);
+  }
+}
@@ -6,8 +6,10 @@
 package io.opentelemetry.instrumentation.api.instrumenter.http;
 
 import com.google.auto.value.AutoValue;
-import io.opentelemetry.api.common.AttributeType;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.BoundDoubleValueRecorder;
+import io.opentelemetry.api.metrics.BoundLongUpDownCounter;
 import io.opentelemetry.api.metrics.DoubleValueRecorder;
 import io.opentelemetry.api.metrics.LongUpDownCounter;
 import io.opentelemetry.api.metrics.Meter;
@@ -18,6 +20,10 @@ import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.instrumentation.api.annotations.UnstableApi;
 import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
 import io.opentelemetry.instrumentation.api.instrumenter.RequestMetrics;
+import io.opentelemetry.instrumentation.api.internal.BoundInstrumentCache;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +35,12 @@ import org.slf4j.LoggerFactory;
  *
  * <p>To use this class, you may need to add the {@code opentelemetry-api-metrics} artifact to your
  * dependencies.
+ *
+ * <p>Instruments are bound once for every distinct combination of label values and the bound
+ * instruments are reused by all later requests with the same values, so that recording doesn't
+ * need to build and look up label sets on every request. At most {@link #MAX_BOUND_LABEL_SETS}
+ * combinations are bound; requests with any further combination are recorded with a single
+ * overflow label set.
  */
 @UnstableApi
 public final class HttpServerMetrics implements RequestListener {
@@ -40,6 +52,22 @@ public final class HttpServerMetrics implements RequestListener {
 
   private static final Logger logger = LoggerFactory.getLogger(HttpServerMetrics.class);
 
+  // visible for testing
+  static final int MAX_BOUND_LABEL_SETS = BoundInstrumentCache.MAX_LABEL_SETS;
+  static final Labels OVERFLOW_LABELS = BoundInstrumentCache.OVERFLOW_LABELS;
+
+  // the attributes used as labels of the duration; the active requests use a subset of them
+  private static final List<AttributeKey<?>> LABEL_KEYS =
+      Arrays.asList(
+          SemanticAttributes.HTTP_METHOD,
+          SemanticAttributes.HTTP_HOST,
+          SemanticAttributes.HTTP_SCHEME,
+          SemanticAttributes.HTTP_FLAVOR,
+          SemanticAttributes.HTTP_SERVER_NAME,
+          SemanticAttributes.NET_HOST_NAME,
+          SemanticAttributes.HTTP_STATUS_CODE,
+          SemanticAttributes.NET_HOST_PORT);
+
   /**
    * Returns a {@link RequestMetrics} which can be used to enable recording of {@link
    * HttpServerMetrics} on an {@link
@@ -52,6 +80,7 @@ public final class HttpServerMetrics implements RequestListener {
 
   private final LongUpDownCounter activeRequests;
   private final DoubleValueRecorder duration;
+  private final BoundInstrumentCache<BoundInstruments> boundInstruments;
 
   private HttpServerMetrics(Meter meter) {
     activeRequests =
@@ -67,18 +96,19 @@ public final class HttpServerMetrics implements RequestListener {
             .setUnit("milliseconds")
             .setDescription("The duration of the inbound HTTP request")
             .build();
+
+    boundInstruments = new BoundInstrumentCache<>(LABEL_KEYS, this::bind);
   }
 
   @Override
   public Context start(Context context, Attributes requestAttributes) {
     long startTimeNanos = System.nanoTime();
-    Labels activeRequestLabels = activeRequestLabels(requestAttributes);
-    Labels durationLabels = durationLabels(requestAttributes);
-    activeRequests.add(1, activeRequestLabels);
+    BoundInstruments instruments = boundInstruments.get(requestAttributes);
+    instruments.activeRequests().add(1);
 
     return context.with(
         HTTP_SERVER_REQUEST_METRICS_STATE,
-        new AutoValue_HttpServerMetrics_State(activeRequestLabels, durationLabels, startTimeNanos));
+        new AutoValue_HttpServerMetrics_State(instruments, startTimeNanos));
   }
 
   @Override
@@ -89,67 +119,45 @@ public final class HttpServerMetrics implements RequestListener {
           "No state present when ending context {}. Cannot reset HTTP request metrics.", context);
       return;
     }
-    activeRequests.add(-1, state.activeRequestLabels());
-    duration.record(
-        (System.nanoTime() - state.startTimeNanos()) / NANOS_PER_MS, state.durationLabels());
+    BoundInstruments instruments = state.instruments();
+    instruments.activeRequests().add(-1);
+    instruments.duration().record((System.nanoTime() - state.startTimeNanos()) / NANOS_PER_MS);
   }
 
-  private static Labels activeRequestLabels(Attributes attributes) {
-    LabelsBuilder labels = Labels.builder();
-    attributes.forEach(
-        (key, value) -> {
-          if (key.getType() != AttributeType.STRING) {
-            return;
-          }
-          switch (key.getKey()) {
-            case "http.method":
-            case "http.host":
-            case "http.scheme":
-            case "http.flavor":
-            case "http.server_name":
-              labels.put(key.getKey(), (String) value);
-              break;
-            default:
-              // fall through
-          }
-        });
-    return labels.build();
+  private BoundInstruments bind(Labels durationLabels) {
+    return new AutoValue_HttpServerMetrics_BoundInstruments(
+        activeRequests.bind(activeRequestLabels(durationLabels)), duration.bind(durationLabels));
   }
 
-  private static Labels durationLabels(Attributes attributes) {
+  private static Labels activeRequestLabels(Labels durationLabels) {
     LabelsBuilder labels = Labels.builder();
-    attributes.forEach(
+    durationLabels.forEach(
         (key, value) -> {
-          switch (key.getKey()) {
-            case "http.method":
-            case "http.host":
-            case "http.scheme":
-            case "http.flavor":
-            case "http.server_name":
+          switch (key) {
             case "net.host.name":
-              if (value instanceof String) {
-                labels.put(key.getKey(), (String) value);
-              }
-              break;
-            case "http.status_code":
             case "net.host.port":
-              if (value instanceof Long) {
-                labels.put(key.getKey(), Long.toString((long) value));
-              }
+            case "http.status_code":
+              // only used by the duration
               break;
             default:
-              // fall through
+              labels.put(key, value);
           }
         });
     return labels.build();
   }
 
   @AutoValue
-  abstract static class State {
+  abstract static class BoundInstruments {
 
-    abstract Labels activeRequestLabels();
+    abstract BoundLongUpDownCounter activeRequests();
+
+    abstract BoundDoubleValueRecorder duration();
+  }
+
+  @AutoValue
+  abstract static class State {
 
-    abstract Labels durationLabels();
+    abstract BoundInstruments instruments();
 
     abstract long startTimeNanos();
   }
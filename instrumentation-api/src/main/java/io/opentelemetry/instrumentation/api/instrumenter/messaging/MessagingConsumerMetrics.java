@@ -0,0 +1,72 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter.messaging;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.annotations.UnstableApi;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestMetrics;
+import io.opentelemetry.instrumentation.api.internal.DurationRequestListener;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link RequestListener} which records the duration of receiving or processing messages as the
+ * {@code messaging.consumer.duration} metric, labeled with the messaging system, the destination
+ * and the operation.
+ *
+ * <p>To use this class, you may need to add the {@code opentelemetry-api-metrics} artifact to your
+ * dependencies.
+ *
+ * <p>Request listeners are called whether or not the span is sampled, so the duration is recorded
+ * for every message. The labels are taken from the start attributes and completed by the end
+ * attributes.
+ */
+@UnstableApi
+public final class MessagingConsumerMetrics implements RequestListener {
+
+  private static final List<AttributeKey<?>> LABEL_KEYS =
+      Arrays.asList(
+          SemanticAttributes.MESSAGING_SYSTEM,
+          SemanticAttributes.MESSAGING_DESTINATION,
+          SemanticAttributes.MESSAGING_DESTINATION_KIND,
+          SemanticAttributes.MESSAGING_OPERATION);
+
+  /**
+   * Returns a {@link RequestMetrics} which can be used to enable recording of {@link
+   * MessagingConsumerMetrics} on an {@link
+   * io.opentelemetry.instrumentation.api.instrumenter.InstrumenterBuilder}.
+   */
+  @UnstableApi
+  public static RequestMetrics get() {
+    return MessagingConsumerMetrics::new;
+  }
+
+  private final RequestListener duration;
+
+  private MessagingConsumerMetrics(Meter meter) {
+    duration =
+        DurationRequestListener.create(
+            meter,
+            "messaging.consumer.duration",
+            "The duration of receiving or processing a message",
+            LABEL_KEYS);
+  }
+
+  @Override
+  public Context start(Context context, Attributes requestAttributes) {
+    return duration.start(context, requestAttributes);
+  }
+
+  @Override
+  public void end(Context context, Attributes responseAttributes) {
+    duration.end(context, responseAttributes);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.common.Labels;
+import io.opentelemetry.api.metrics.common.LabelsBuilder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A cache of bound instruments, keyed by the values of a fixed list of attributes that are used as
+ * metric labels. Instruments are bound once for every distinct combination of values, so that
+ * recording a request does not need to build and look up a {@link Labels} instance every time. At
+ * most {@link #MAX_LABEL_SETS} combinations are bound; any further combination is given the
+ * instruments bound to {@link #OVERFLOW_LABELS}, which bounds the metric cardinality.
+ *
+ * <p>This class is internal and is hence not for public use. Its APIs are unstable and can change
+ * at any time.
+ */
+public final class BoundInstrumentCache<B> {
+
+  public static final int MAX_LABEL_SETS = 1000;
+  public static final Labels OVERFLOW_LABELS = Labels.of("otel.metrics.overflow", "true");
+
+  private final AttributeKey<?>[] labelKeys;
+  private final Function<Labels, B> binder;
+  private final ConcurrentMap<LabelValues, B> cache = new ConcurrentHashMap<>();
+  private final B overflow;
+
+  /**
+   * Creates a new cache. {@code binder} is called with the labels built from the values of {@code
+   * labelKeys} and should return the instruments bound to these labels.
+   */
+  public BoundInstrumentCache(List<AttributeKey<?>> labelKeys, Function<Labels, B> binder) {
+    this.labelKeys = labelKeys.toArray(new AttributeKey<?>[0]);
+    this.binder = binder;
+    this.overflow = binder.apply(OVERFLOW_LABELS);
+  }
+
+  /** Returns the instruments bound to the labels of the given {@code attributes}. */
+  public B get(Attributes attributes) {
+    Object[] values = new Object[labelKeys.length];
+    for (int i = 0; i < labelKeys.length; i++) {
+      values[i] = attributes.get(labelKeys[i]);
+    }
+    return get(new LabelValues(values));
+  }
+
+  /**
+   * Returns the instruments bound to the labels of the given {@code startAttributes}, completed by
+   * the labels of {@code endAttributes} that are not present in {@code startAttributes}.
+   */
+  public B get(Attributes startAttributes, Attributes endAttributes) {
+    Object[] values = new Object[labelKeys.length];
+    for (int i = 0; i < labelKeys.length; i++) {
+      Object value = startAttributes.get(labelKeys[i]);
+      values[i] = value != null ? value : endAttributes.get(labelKeys[i]);
+    }
+    return get(new LabelValues(values));
+  }
+
+  private B get(LabelValues key) {
+    B bound = cache.get(key);
+    if (bound != null) {
+      return bound;
+    }
+    // the size check is racy, the number of label sets may exceed the limit by a few entries
+    if (cache.size() >= MAX_LABEL_SETS) {
+      return overflow;
+    }
+    return cache.computeIfAbsent(key, this::bind);
+  }
+
+  private B bind(LabelValues key) {
+    LabelsBuilder labels = Labels.builder();
+    for (int i = 0; i < labelKeys.length; i++) {
+      Object value = key.values[i];
+      if (value != null) {
+        labels.put(labelKeys[i].getKey(), String.valueOf(value));
+      }
+    }
+    return binder.apply(labels.build());
+  }
+
+  private static final class LabelValues {
+    private final Object[] values;
+    private final int hashCode;
+
+    private LabelValues(Object[] values) {
+      this.values = values;
+      this.hashCode = Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof LabelValues && Arrays.equals(values, ((LabelValues) obj).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
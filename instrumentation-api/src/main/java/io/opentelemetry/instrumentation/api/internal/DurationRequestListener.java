@@ -0,0 +1,92 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal;
+
+import com.google.auto.value.AutoValue;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.BoundDoubleValueRecorder;
+import io.opentelemetry.api.metrics.DoubleValueRecorder;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RequestListener} which records the duration of requests, in milliseconds, to a {@link
+ * DoubleValueRecorder}. The labels are the values of a fixed list of attributes, taken from the
+ * start attributes and completed by the end attributes, and the instruments bound to them are
+ * reused through a {@link BoundInstrumentCache}.
+ *
+ * <p>This class is internal and is hence not for public use. Its APIs are unstable and can change
+ * at any time.
+ */
+public final class DurationRequestListener implements RequestListener {
+
+  private static final double NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final Logger logger = LoggerFactory.getLogger(DurationRequestListener.class);
+
+  /**
+   * Returns a listener which records to a new {@code metricName} recorder of {@code meter}, labeled
+   * with the values of {@code labelKeys}.
+   */
+  public static DurationRequestListener create(
+      Meter meter, String metricName, String description, List<AttributeKey<?>> labelKeys) {
+    return new DurationRequestListener(meter, metricName, description, labelKeys);
+  }
+
+  private final String metricName;
+  private final ContextKey<State> stateKey;
+  private final BoundInstrumentCache<BoundDoubleValueRecorder> boundDurations;
+
+  private DurationRequestListener(
+      Meter meter, String metricName, String description, List<AttributeKey<?>> labelKeys) {
+    this.metricName = metricName;
+    // every listener has its own key, so that several of them can be added to one instrumenter
+    stateKey = ContextKey.named(metricName + "-state");
+    DoubleValueRecorder duration =
+        meter
+            .doubleValueRecorderBuilder(metricName)
+            .setUnit("milliseconds")
+            .setDescription(description)
+            .build();
+    boundDurations = new BoundInstrumentCache<>(labelKeys, duration::bind);
+  }
+
+  @Override
+  public Context start(Context context, Attributes requestAttributes) {
+    long startTimeNanos = System.nanoTime();
+
+    return context.with(
+        stateKey, new AutoValue_DurationRequestListener_State(requestAttributes, startTimeNanos));
+  }
+
+  @Override
+  public void end(Context context, Attributes responseAttributes) {
+    State state = context.get(stateKey);
+    if (state == null) {
+      logger.debug(
+          "No state present when ending context {}. Cannot record {}.", context, metricName);
+      return;
+    }
+    boundDurations
+        .get(state.startAttributes(), responseAttributes)
+        .record((System.nanoTime() - state.startTimeNanos()) / NANOS_PER_MS);
+  }
+
+  @AutoValue
+  abstract static class State {
+
+    abstract Attributes startAttributes();
+
+    abstract long startTimeNanos();
+  }
+}
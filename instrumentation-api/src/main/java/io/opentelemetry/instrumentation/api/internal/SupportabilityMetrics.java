@@ -5,6 +5,10 @@
 
 package io.opentelemetry.instrumentation.api.internal;
 
+import io.opentelemetry.api.metrics.GlobalMeterProvider;
+import io.opentelemetry.api.metrics.LongSumObserver;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.common.Labels;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.instrumentation.api.config.Config;
 import java.util.concurrent.ConcurrentHashMap;
@@ -16,13 +20,22 @@ import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Counters describing the behavior of the instrumentation itself, e.g. the number of suppressed
+ * spans. Counting is always enabled: the counters are meant to be resolved once (see {@link
+ * #suppressedSpanCounter(String)} and {@link #counter(String)}) and kept in a field, after which
+ * every increment is a single {@link LongAdder} update. The counts are exported as {@code
+ * otel.javaagent.*} metrics once {@link #registerObservers()} is called, and additionally logged
+ * every 5 seconds when agent debug logging is enabled.
+ */
 public final class SupportabilityMetrics {
   private static final Logger log = LoggerFactory.getLogger(SupportabilityMetrics.class);
   private final boolean agentDebugEnabled;
   private final Consumer<String> reporter;
 
-  private final ConcurrentMap<String, KindCounters> suppressionCounters = new ConcurrentHashMap<>();
-  private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, SuppressedSpanCounter> suppressionCounters =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
 
   private static final SupportabilityMetrics INSTANCE =
       new SupportabilityMetrics(Config.get(), log::debug).start();
@@ -37,30 +50,84 @@ public final class SupportabilityMetrics {
     this.reporter = reporter;
   }
 
-  public void recordSuppressedSpan(SpanKind kind, String instrumentationName) {
-    if (!agentDebugEnabled) {
-      return;
-    }
+  /**
+   * Returns the counter of spans suppressed by the instrumentation named {@code
+   * instrumentationName}. Callers on a hot path should look the counter up once and keep it.
+   */
+  public SuppressedSpanCounter suppressedSpanCounter(String instrumentationName) {
+    return suppressionCounters.computeIfAbsent(
+        instrumentationName, s -> new SuppressedSpanCounter());
+  }
 
-    suppressionCounters
-        .computeIfAbsent(instrumentationName, s -> new KindCounters())
-        .increment(kind);
+  /**
+   * Returns the counter named {@code counterName}. Callers on a hot path should look the counter up
+   * once and keep it.
+   */
+  public Counter counter(String counterName) {
+    return counters.computeIfAbsent(counterName, k -> new Counter());
+  }
+
+  public void recordSuppressedSpan(SpanKind kind, String instrumentationName) {
+    suppressedSpanCounter(instrumentationName).increment(kind);
   }
 
   public void incrementCounter(String counterName) {
-    if (!agentDebugEnabled) {
-      return;
-    }
+    counter(counterName).increment();
+  }
+
+  /**
+   * Registers the {@code otel.javaagent.suppressed_spans} and {@code otel.javaagent.counters}
+   * metrics with the global {@link io.opentelemetry.api.metrics.MeterProvider}. Must be called
+   * after the global meter provider has been set.
+   */
+  public void registerObservers() {
+    Meter meter = GlobalMeterProvider.getMeter("io.opentelemetry.javaagent.supportability");
+    meter
+        .longSumObserverBuilder("otel.javaagent.suppressed_spans")
+        .setDescription("Spans not created because the parent context has a span of the same kind")
+        .setUnit("spans")
+        .setUpdater(this::observeSuppressedSpans)
+        .build();
+    meter
+        .longSumObserverBuilder("otel.javaagent.counters")
+        .setDescription("Counters of notable events inside the instrumentation")
+        .setUnit("events")
+        .setUpdater(this::observeCounters)
+        .build();
+  }
+
+  private void observeSuppressedSpans(LongSumObserver.LongResult result) {
+    suppressionCounters.forEach(
+        (instrumentationName, countsByKind) -> {
+          for (SpanKind kind : SpanKind.values()) {
+            long value = countsByKind.sum(kind);
+            if (value > 0) {
+              result.observe(
+                  value, Labels.of("instrumentation", instrumentationName, "kind", kind.name()));
+            }
+          }
+        });
+  }
 
-    counters.computeIfAbsent(counterName, k -> new LongAdder()).increment();
+  private void observeCounters(LongSumObserver.LongResult result) {
+    counters.forEach(
+        (counterName, counter) -> {
+          long value = counter.sum();
+          if (value > 0) {
+            result.observe(value, Labels.of("counter", counterName));
+          }
+        });
   }
 
   // visible for testing
   void report() {
+    if (!agentDebugEnabled) {
+      return;
+    }
     suppressionCounters.forEach(
         (instrumentationName, countsByKind) -> {
           for (SpanKind kind : SpanKind.values()) {
-            long value = countsByKind.getAndReset(kind);
+            long value = countsByKind.sumSinceLastReport(kind);
             if (value > 0) {
               reporter.accept(
                   "Suppressed Spans by '" + instrumentationName + "' (" + kind + ") : " + value);
@@ -69,7 +136,7 @@ public final class SupportabilityMetrics {
         });
     counters.forEach(
         (counterName, counter) -> {
-          long value = counter.sumThenReset();
+          long value = counter.sumSinceLastReport();
           if (value > 0) {
             reporter.accept("Counter '" + counterName + "' : " + value);
           }
@@ -92,59 +159,68 @@ public final class SupportabilityMetrics {
   }
 
   public static final class CounterNames {
+    public static final String SQL_STATEMENT_SANITIZER_CACHE_HIT =
+        "SqlStatementSanitizer cache hit";
     public static final String SQL_STATEMENT_SANITIZER_CACHE_MISS =
         "SqlStatementSanitizer cache miss";
+    public static final String SQL_STATEMENT_SANITIZER_CACHE_EVICTION =
+        "SqlStatementSanitizer cache eviction";
 
     private CounterNames() {}
   }
 
-  // this class is threadsafe.
-  private static class KindCounters {
-    private final LongAdder server = new LongAdder();
-    private final LongAdder client = new LongAdder();
-    private final LongAdder internal = new LongAdder();
-    private final LongAdder consumer = new LongAdder();
-    private final LongAdder producer = new LongAdder();
-
-    void increment(SpanKind kind) {
-      switch (kind) {
-        case INTERNAL:
-          internal.increment();
-          break;
-        case SERVER:
-          server.increment();
-          break;
-        case CLIENT:
-          client.increment();
-          break;
-        case PRODUCER:
-          producer.increment();
-          break;
-        case CONSUMER:
-          consumer.increment();
-          break;
-        default:
-          // in case a new kind gets added, we don't want to fail.
-          break;
-      }
+  /** A monotonic counter. This class is threadsafe. */
+  public static final class Counter {
+    private final LongAdder count = new LongAdder();
+    // only accessed by the reporter thread
+    private long reported;
+
+    private Counter() {}
+
+    public void increment() {
+      count.increment();
+    }
+
+    long sum() {
+      return count.sum();
+    }
+
+    long sumSinceLastReport() {
+      long sum = count.sum();
+      long value = sum - reported;
+      reported = sum;
+      return value;
     }
+  }
+
+  /** Counts suppressed spans by {@link SpanKind}. This class is threadsafe. */
+  public static final class SuppressedSpanCounter {
+    private static final SpanKind[] KINDS = SpanKind.values();
+
+    // indexed by SpanKind ordinal
+    private final LongAdder[] counts = new LongAdder[KINDS.length];
+    // only accessed by the reporter thread
+    private final long[] reported = new long[KINDS.length];
 
-    long getAndReset(SpanKind kind) {
-      switch (kind) {
-        case INTERNAL:
-          return internal.sumThenReset();
-        case SERVER:
-          return server.sumThenReset();
-        case CLIENT:
-          return client.sumThenReset();
-        case PRODUCER:
-          return producer.sumThenReset();
-        case CONSUMER:
-          return consumer.sumThenReset();
-        default:
-          // in case a new kind gets added, we don't want to fail.
-          return 0;
+    private SuppressedSpanCounter() {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
       }
     }
+
+    public void increment(SpanKind kind) {
+      counts[kind.ordinal()].increment();
+    }
+
+    long sum(SpanKind kind) {
+      return counts[kind.ordinal()].sum();
+    }
+
+    long sumSinceLastReport(SpanKind kind) {
+      long sum = counts[kind.ordinal()].sum();
+      long value = sum - reported[kind.ordinal()];
+      reported[kind.ordinal()] = sum;
+      return value;
+    }
   }
 }
@@ -20,6 +20,7 @@ import io.opentelemetry.context.propagation.TextMapSetter;
 import io.opentelemetry.instrumentation.api.InstrumentationVersion;
 import io.opentelemetry.instrumentation.api.internal.ContextPropagationDebug;
 import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
+import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics.SuppressedSpanCounter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
@@ -52,6 +53,8 @@ public abstract class BaseTracer {
 
   private final Tracer tracer;
   private final ContextPropagators propagators;
+  // looked up on the first suppressed span, most tracers never suppress any
+  @Nullable private volatile SuppressedSpanCounter suppressedSpanCounter;
 
   /**
    * Instead of using this always pass an OpenTelemetry instance; javaagent tracers should
@@ -115,11 +118,21 @@ public abstract class BaseTracer {
         break;
     }
     if (suppressed) {
-      supportability.recordSuppressedSpan(proposedKind, getInstrumentationName());
+      suppressedSpanCounter().increment(proposedKind);
     }
     return !suppressed;
   }
 
+  private SuppressedSpanCounter suppressedSpanCounter() {
+    SuppressedSpanCounter counter = suppressedSpanCounter;
+    if (counter == null) {
+      // racing threads get the same counter
+      counter = supportability.suppressedSpanCounter(getInstrumentationName());
+      suppressedSpanCounter = counter;
+    }
+    return counter;
+  }
+
   private boolean inClientSpan(Context context) {
     return ClientSpan.fromContextOrNull(context) != null;
   }
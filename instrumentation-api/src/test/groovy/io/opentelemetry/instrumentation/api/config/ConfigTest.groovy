@@ -66,6 +66,19 @@ class ConfigTest extends Specification {
     config.getBooleanProperty("does-not-exist", true)
   }
 
+  def "should get int property"() {
+    given:
+    def config = new ConfigBuilder().readProperties([
+      "property.int"    : "42",
+      "property.invalid": "forty-two"
+    ]).build()
+
+    expect:
+    config.getIntProperty("property.int", 7) == 42
+    config.getIntProperty("property.invalid", 7) == 7
+    config.getIntProperty("does-not-exist", 7) == 7
+  }
+
   def "should get list property"() {
     given:
     def config = new ConfigBuilder().readProperties([
@@ -7,6 +7,7 @@ package io.opentelemetry.instrumentation.api.db
 
 import spock.lang.Specification
 import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
 
 class SqlStatementSanitizerTest extends Specification {
 
@@ -195,4 +196,62 @@ class SqlStatementSanitizerTest extends Specification {
       SqlStatementSanitizer.sanitize(sb.toString())
     }
   }
+
+  def "statements differing only by literals share sanitized statement info"() {
+    when:
+    def first = SqlStatementSanitizer.sanitize("SELECT * FROM TABLE WHERE FIELD = 1234")
+    def second = SqlStatementSanitizer.sanitize("SELECT * FROM TABLE WHERE FIELD = 5678")
+
+    then:
+    first.getFullStatement() == "SELECT * FROM TABLE WHERE FIELD = ?"
+    first.is(second)
+  }
+
+  def "sanitizes CharSequence statements"() {
+    setup:
+    def statement = new StringBuilder("SELECT * FROM TABLE WHERE FIELD = 1234")
+
+    expect:
+    SqlStatementSanitizer.sanitize(statement) == SqlStatementInfo.create("SELECT * FROM TABLE WHERE FIELD = ?", "SELECT", "TABLE")
+  }
+
+  def "stops lexing huge statements once operation and table are known"() {
+    setup:
+    StringBuilder s = new StringBuilder("INSERT INTO TABLE VALUES ")
+    for (int i = 0; i < 100000; i++) {
+      s.append("(1234, 'secret'), ")
+    }
+    def result = SqlStatementSanitizer.sanitize(s)
+
+    expect:
+    result.getOperation() == "INSERT"
+    result.getTable() == "TABLE"
+    result.getFullStatement().length() <= AutoSqlSanitizer.LIMIT
+    !result.getFullStatement().contains("secret")
+  }
+
+  def "sanitizes uncached statements in the background"() {
+    setup:
+    def statement = "SELECT * FROM BACKGROUND_TABLE WHERE FIELD = 1234"
+    def conditions = new PollingConditions(timeout: 10)
+
+    expect:
+    SqlStatementSanitizer.sanitizeIfCached(statement) == null
+    conditions.eventually {
+      assert SqlStatementSanitizer.sanitizeIfCached(statement) == SqlStatementInfo.create("SELECT * FROM BACKGROUND_TABLE WHERE FIELD = ?", "SELECT", "BACKGROUND_TABLE")
+    }
+  }
+
+  def "sanitizes statements too long to be cached right away"() {
+    setup:
+    StringBuilder s = new StringBuilder("INSERT INTO LONG_TABLE VALUES ")
+    for (int i = 0; i < 10000; i++) {
+      s.append("(1234), ")
+    }
+    def result = SqlStatementSanitizer.sanitizeIfCached(s.toString())
+
+    expect:
+    result.getOperation() == "INSERT"
+    result.getTable() == "LONG_TABLE"
+  }
 }
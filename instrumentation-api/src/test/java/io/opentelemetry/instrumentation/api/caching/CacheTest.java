@@ -6,8 +6,18 @@
 package io.opentelemetry.instrumentation.api.caching;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.awaitility.Awaitility.await;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
@@ -57,6 +67,31 @@ class CacheTest {
       assertThat(caffeineCache.keySet()).hasSize(1);
       assertThat(cache.computeIfAbsent("cat", unused -> "purr")).isEqualTo("purr");
     }
+
+    @Test
+    void boundedByWeight() {
+      List<String> evicted = new ArrayList<>();
+      Cache<String, String> cache =
+          Cache.newBuilder()
+              .setMaximumWeight(10, (String key, String value) -> value.length())
+              .setEvictionListener((String key, String value) -> evicted.add(key))
+              .build();
+
+      CaffeineCache<?, ?> caffeineCache = ((CaffeineCache<?, ?>) cache);
+      assertThat(cache.computeIfAbsent("cat", unused -> "meow")).isEqualTo("meow");
+      assertThat(cache.computeIfAbsent("dog", unused -> "bark")).isEqualTo("bark");
+      caffeineCache.cleanup();
+      assertThat(caffeineCache.keySet()).hasSize(2);
+      assertThat(evicted).isEmpty();
+
+      cache.put("bear", "roar");
+      caffeineCache.cleanup();
+      assertThat(caffeineCache.keySet()).hasSize(2);
+      assertThat(evicted).hasSize(1);
+
+      cache.remove("bear");
+      assertThat(evicted).hasSize(1);
+    }
   }
 
   @Nested
@@ -95,6 +130,179 @@ class CacheTest {
       await().untilAsserted(() -> assertThat(weakLockFreeCache.size()).isEqualTo(0));
     }
 
+    @Test
+    void computesEachKeyOnce() throws Exception {
+      Cache<String, String> cache = Cache.newBuilder().setWeakKeys().build();
+      String key = new String("bear");
+      AtomicInteger computations = new AtomicInteger();
+      CountDownLatch computing = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(
+            executor.submit(
+                () ->
+                    cache.computeIfAbsent(
+                        key,
+                        unused -> {
+                          computations.incrementAndGet();
+                          computing.countDown();
+                          awaitUninterruptibly(release);
+                          return "roar";
+                        })));
+        computing.await();
+        for (int i = 0; i < 3; i++) {
+          results.add(
+              executor.submit(
+                  () ->
+                      cache.computeIfAbsent(
+                          key,
+                          unused -> {
+                            computations.incrementAndGet();
+                            return "growl";
+                          })));
+        }
+        // a computation of another key is not blocked by the pending one
+        assertThat(cache.computeIfAbsent(new String("cat"), unused -> "meow")).isEqualTo("meow");
+        assertThat(cache.get(key)).isNull();
+
+        release.countDown();
+        for (Future<String> result : results) {
+          assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("roar");
+        }
+        assertThat(computations).hasValue(1);
+        assertThat(cache.get(key)).isEqualTo("roar");
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    @Test
+    void computingThreadWaitsForOtherKeys() throws Exception {
+      Cache<String, String> cache = Cache.newBuilder().setWeakKeys().build();
+      String bear = new String("bear");
+      String cat = new String("cat");
+      AtomicInteger bearComputations = new AtomicInteger();
+      CountDownLatch computing = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      AtomicReference<Thread> catThread = new AtomicReference<>();
+
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+        Future<String> bearResult =
+            executor.submit(
+                () ->
+                    cache.computeIfAbsent(
+                        bear,
+                        unused -> {
+                          bearComputations.incrementAndGet();
+                          computing.countDown();
+                          awaitUninterruptibly(release);
+                          return "roar";
+                        }));
+        computing.await();
+        // computing the cat doesn't make the thread compute the pending bear a second time
+        Future<String> catResult =
+            executor.submit(
+                () -> {
+                  catThread.set(Thread.currentThread());
+                  return cache.computeIfAbsent(
+                      cat,
+                      unused ->
+                          "meow "
+                              + cache.computeIfAbsent(
+                                  bear,
+                                  unused2 -> {
+                                    bearComputations.incrementAndGet();
+                                    return "growl";
+                                  }));
+                });
+        await()
+            .until(
+                () ->
+                    catThread.get() != null
+                        && catThread.get().getState() == Thread.State.WAITING);
+
+        release.countDown();
+        assertThat(bearResult.get(10, TimeUnit.SECONDS)).isEqualTo("roar");
+        assertThat(catResult.get(10, TimeUnit.SECONDS)).isEqualTo("meow roar");
+        assertThat(bearComputations).hasValue(1);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    @Test
+    void failedComputationIsRetried() {
+      Cache<String, String> cache = Cache.newBuilder().setWeakKeys().build();
+      String key = new String("bear");
+
+      assertThatThrownBy(
+              () ->
+                  cache.computeIfAbsent(
+                      key,
+                      unused -> {
+                        throw new IllegalStateException("boom");
+                      }))
+          .isInstanceOf(IllegalStateException.class);
+      assertThat(cache.get(key)).isNull();
+      assertThat(cache.computeIfAbsent(key, unused -> "roar")).isEqualTo("roar");
+    }
+
+    @Test
+    void recursiveComputationOfTheSameKey() {
+      Cache<String, String> cache = Cache.newBuilder().setWeakKeys().build();
+      String key = new String("bear");
+
+      assertThat(
+              cache.computeIfAbsent(
+                  key, unused -> cache.computeIfAbsent(key, unused2 -> "roar") + " roar"))
+          .isEqualTo("roar roar");
+      assertThat(cache.get(key)).isEqualTo("roar roar");
+    }
+
+    @Test
+    void recursiveComputationsAcrossKeysDoNotDeadlock() throws Exception {
+      Cache<String, String> cache = Cache.newBuilder().setWeakKeys().build();
+      String cat = new String("cat");
+      String dog = new String("dog");
+      // both threads claim their key before either of them computes the other one
+      CountDownLatch claimed = new CountDownLatch(2);
+
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+        Future<String> catResult =
+            executor.submit(
+                () ->
+                    cache.computeIfAbsent(
+                        cat,
+                        unused -> {
+                          claimed.countDown();
+                          awaitUninterruptibly(claimed);
+                          return "meow " + cache.computeIfAbsent(dog, unused2 -> "bark");
+                        }));
+        Future<String> dogResult =
+            executor.submit(
+                () ->
+                    cache.computeIfAbsent(
+                        dog,
+                        unused -> {
+                          claimed.countDown();
+                          awaitUninterruptibly(claimed);
+                          return "bark " + cache.computeIfAbsent(cat, unused2 -> "meow");
+                        }));
+
+        assertThat(catResult.get(10, TimeUnit.SECONDS)).isEqualTo("meow bark");
+        assertThat(dogResult.get(10, TimeUnit.SECONDS)).isEqualTo("bark meow");
+        assertThat(cache.get(cat)).isEqualTo("meow bark");
+        assertThat(cache.get(dog)).isEqualTo("bark meow");
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
     @Test
     void bounded() throws Exception {
       Cache<String, String> cache = Cache.newBuilder().setWeakKeys().setMaximumSize(1).build();
@@ -130,4 +338,12 @@ class CacheTest {
               });
     }
   }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter;
+
+import static io.opentelemetry.sdk.testing.assertj.OpenTelemetryAssertions.assertThat;
+import static io.opentelemetry.sdk.testing.assertj.OpenTelemetryAssertions.attributeEntry;
+import static org.mockito.Mockito.verify;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SpanAttributesBuilderTest {
+
+  @Mock private Span span;
+
+  @Test
+  void writesToSpanAndBuildsPutAttributes() {
+    SpanAttributesBuilder builder = new SpanAttributesBuilder();
+    builder.put(AttributeKey.stringKey("animal"), "cat");
+    builder.put(AttributeKey.longKey("number"), 1);
+    builder.putAll(Attributes.of(AttributeKey.stringKey("food"), "pizza"));
+    builder.writeTo(span);
+
+    verify(span).setAttribute(AttributeKey.stringKey("animal"), "cat");
+    verify(span).setAttribute(AttributeKey.longKey("number"), 1L);
+    verify(span).setAttribute(AttributeKey.stringKey("food"), "pizza");
+    assertThat(builder.build())
+        .containsOnly(
+            attributeEntry("animal", "cat"),
+            attributeEntry("number", 1L),
+            attributeEntry("food", "pizza"));
+  }
+}
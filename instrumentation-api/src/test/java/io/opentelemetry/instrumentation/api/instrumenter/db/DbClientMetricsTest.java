@@ -0,0 +1,63 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.DoubleSummaryPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import java.util.Collection;
+import org.junit.jupiter.api.Test;
+
+class DbClientMetricsTest {
+
+  @Test
+  void collectsMetrics() {
+    SdkMeterProvider meterProvider = SdkMeterProvider.builder().build();
+
+    RequestListener listener = DbClientMetrics.get().create(meterProvider.get("test"));
+
+    Attributes startAttributes =
+        Attributes.builder()
+            .put("db.system", "postgresql")
+            .put("db.name", "users")
+            .put("db.statement", "SELECT * FROM users WHERE id = ?")
+            .put("net.peer.name", "localhost")
+            .put("net.peer.port", 5432)
+            .build();
+
+    // e.g. extracted only when the operation ends in the deferred sanitization mode
+    Attributes endAttributes = Attributes.builder().put("db.operation", "SELECT").build();
+
+    Context context = listener.start(Context.current(), startAttributes);
+    listener.end(context, endAttributes);
+
+    Collection<MetricData> metrics = meterProvider.collectAllMetrics();
+    assertThat(metrics).hasSize(1);
+    assertThat(metrics)
+        .anySatisfy(
+            metric -> {
+              assertThat(metric.getName()).isEqualTo("db.client.duration");
+              assertThat(metric.getUnit()).isEqualTo("milliseconds");
+              assertThat(metric.getDoubleSummaryData().getPoints()).hasSize(1);
+              DoubleSummaryPointData data =
+                  metric.getDoubleSummaryData().getPoints().stream().findFirst().get();
+              assertThat(data.getLabels().asMap())
+                  .containsOnly(
+                      entry("db.system", "postgresql"),
+                      entry("db.name", "users"),
+                      entry("db.operation", "SELECT"),
+                      entry("net.peer.name", "localhost"),
+                      entry("net.peer.port", "5432"));
+              assertThat(data.getCount()).isEqualTo(1);
+            });
+  }
+}
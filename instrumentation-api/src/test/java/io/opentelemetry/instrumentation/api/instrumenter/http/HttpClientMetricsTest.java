@@ -0,0 +1,73 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.instrumenter.RequestListener;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.DoubleSummaryPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import java.util.Collection;
+import org.junit.jupiter.api.Test;
+
+class HttpClientMetricsTest {
+
+  @Test
+  void collectsMetrics() {
+    SdkMeterProvider meterProvider = SdkMeterProvider.builder().build();
+
+    RequestListener listener = HttpClientMetrics.get().create(meterProvider.get("test"));
+
+    Attributes requestAttributes =
+        Attributes.builder()
+            .put("http.method", "GET")
+            .put("http.host", "host")
+            .put("http.scheme", "https")
+            .put("net.peer.name", "example.com")
+            .put("net.peer.port", 443)
+            .put("http.url", "https://example.com/unused")
+            .build();
+
+    Attributes responseAttributes =
+        Attributes.builder().put("http.flavor", "1.1").put("http.status_code", 200).build();
+
+    Context context1 = listener.start(Context.current(), requestAttributes);
+    Context context2 = listener.start(Context.current(), requestAttributes);
+
+    assertThat(meterProvider.collectAllMetrics()).isEmpty();
+
+    listener.end(context1, responseAttributes);
+    listener.end(context2, responseAttributes);
+
+    Collection<MetricData> metrics = meterProvider.collectAllMetrics();
+    assertThat(metrics).hasSize(1);
+    assertThat(metrics)
+        .anySatisfy(
+            metric -> {
+              assertThat(metric.getName()).isEqualTo("http.client.duration");
+              assertThat(metric.getDescription())
+                  .isEqualTo("The duration of the outbound HTTP request");
+              assertThat(metric.getUnit()).isEqualTo("milliseconds");
+              assertThat(metric.getDoubleSummaryData().getPoints()).hasSize(1);
+              DoubleSummaryPointData data =
+                  metric.getDoubleSummaryData().getPoints().stream().findFirst().get();
+              assertThat(data.getLabels().asMap())
+                  .containsOnly(
+                      entry("http.method", "GET"),
+                      entry("http.host", "host"),
+                      entry("http.scheme", "https"),
+                      entry("http.flavor", "1.1"),
+                      entry("http.status_code", "200"),
+                      entry("net.peer.name", "example.com"),
+                      entry("net.peer.port", "443"));
+              assertThat(data.getCount()).isEqualTo(2);
+            });
+  }
+}
@@ -132,4 +132,32 @@ class HttpServerMetricsTest {
               assertThat(data.getPercentileValues()).isNotEmpty();
             });
   }
+
+  @Test
+  void limitsNumberOfLabelSets() {
+    SdkMeterProvider meterProvider = SdkMeterProvider.builder().build();
+
+    RequestListener listener = HttpServerMetrics.get().create(meterProvider.get("test"));
+
+    for (int i = 0; i <= HttpServerMetrics.MAX_BOUND_LABEL_SETS; i++) {
+      Attributes requestAttributes =
+          Attributes.builder().put("http.method", "GET").put("http.host", "host" + i).build();
+      listener.start(Context.current(), requestAttributes);
+    }
+
+    Collection<MetricData> metrics = meterProvider.collectAllMetrics();
+    assertThat(metrics)
+        .anySatisfy(
+            metric -> {
+              assertThat(metric.getName()).isEqualTo("http.server.active_requests");
+              assertThat(metric.getLongSumData().getPoints())
+                  .hasSize(HttpServerMetrics.MAX_BOUND_LABEL_SETS + 1)
+                  .anySatisfy(
+                      data -> {
+                        assertThat(data.getLabels())
+                            .isEqualTo(HttpServerMetrics.OVERFLOW_LABELS);
+                        assertThat(data.getValue()).isEqualTo(1);
+                      });
+            });
+  }
 }
@@ -79,4 +79,29 @@ class SupportabilityMetricsTest {
             "Suppressed Spans by 'favoriteInstrumentation' (CLIENT) : 1",
             "Counter 'some counter' : 1");
   }
+
+  @Test
+  void resolvedCountersAreShared() {
+    List<String> reports = new ArrayList<>();
+    SupportabilityMetrics metrics =
+        new SupportabilityMetrics(
+            Config.create(Collections.singletonMap("otel.javaagent.debug", "true")), reports::add);
+
+    SupportabilityMetrics.Counter counter = metrics.counter("some counter");
+    SupportabilityMetrics.SuppressedSpanCounter suppressedSpans =
+        metrics.suppressedSpanCounter("favoriteInstrumentation");
+
+    counter.increment();
+    metrics.incrementCounter("some counter");
+    suppressedSpans.increment(SpanKind.CLIENT);
+    metrics.recordSuppressedSpan(SpanKind.CLIENT, "favoriteInstrumentation");
+
+    metrics.report();
+
+    assertThat(metrics.counter("some counter")).isSameAs(counter);
+    assertThat(reports)
+        .containsExactlyInAnyOrder(
+            "Suppressed Spans by 'favoriteInstrumentation' (CLIENT) : 2",
+            "Counter 'some counter' : 2");
+  }
 }
@@ -10,13 +10,13 @@ import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 
 import akka.dispatch.forkjoin.ForkJoinTask;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
 import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
 import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
 import io.opentelemetry.javaagent.instrumentation.api.Java8BytecodeBridge;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.ExecutorInstrumentationUtils;
-import io.opentelemetry.javaagent.instrumentation.api.concurrent.State;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
@@ -48,12 +48,12 @@ public class AkkaForkJoinPoolInstrumentation implements TypeInstrumentation {
   public static class SetAkkaForkJoinStateAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static State enterJobSubmit(
+    public static ForkJoinTask enterJobSubmit(
         @Advice.Argument(value = 0, readOnly = false) ForkJoinTask task) {
       if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task)) {
-        ContextStore<ForkJoinTask, State> contextStore =
-            InstrumentationContext.get(ForkJoinTask.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(
+        ContextStore<ForkJoinTask, Context> contextStore =
+            InstrumentationContext.get(ForkJoinTask.class, Context.class);
+        return ExecutorInstrumentationUtils.setupParentContext(
             contextStore, task, Java8BytecodeBridge.currentContext());
       }
       return null;
@@ -61,8 +61,10 @@ public class AkkaForkJoinPoolInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exitJobSubmit(
-        @Advice.Enter State state, @Advice.Thrown Throwable throwable) {
-      ExecutorInstrumentationUtils.cleanUpOnMethodExit(state, throwable);
+        @Advice.Enter ForkJoinTask task, @Advice.Thrown Throwable throwable) {
+      ContextStore<ForkJoinTask, Context> contextStore =
+          InstrumentationContext.get(ForkJoinTask.class, Context.class);
+      ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
     }
   }
 }
@@ -14,13 +14,13 @@ import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
 import akka.dispatch.forkjoin.ForkJoinPool;
 import akka.dispatch.forkjoin.ForkJoinTask;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.context.Scope;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
 import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
 import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.AdviceUtils;
-import io.opentelemetry.javaagent.instrumentation.api.concurrent.State;
 import java.util.concurrent.Callable;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
@@ -57,18 +57,18 @@ public class AkkaForkJoinTaskInstrumentation implements TypeInstrumentation {
     /**
      * When {@link ForkJoinTask} object is submitted to {@link ForkJoinPool} as {@link Runnable} or
      * {@link Callable} it will not get wrapped, instead it will be casted to {@code ForkJoinTask}
-     * directly. This means state is still stored in {@code Runnable} or {@code Callable} and we
-     * need to use that state.
+     * directly. This means the parent context is still stored for {@code Runnable} or {@code
+     * Callable} and we need to use that one.
      */
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static Scope enter(@Advice.This ForkJoinTask thiz) {
-      ContextStore<ForkJoinTask, State> contextStore =
-          InstrumentationContext.get(ForkJoinTask.class, State.class);
-      Scope scope = AdviceUtils.startTaskScope(contextStore, thiz);
+      ContextStore<ForkJoinTask, Context> contextStore =
+          InstrumentationContext.get(ForkJoinTask.class, Context.class);
+      Scope scope = AdviceUtils.startParentContextScope(contextStore, thiz);
       if (thiz instanceof Runnable) {
-        ContextStore<Runnable, State> runnableContextStore =
-            InstrumentationContext.get(Runnable.class, State.class);
-        Scope newScope = AdviceUtils.startTaskScope(runnableContextStore, (Runnable) thiz);
+        ContextStore<Runnable, Context> runnableContextStore =
+            InstrumentationContext.get(Runnable.class, Context.class);
+        Scope newScope = AdviceUtils.startParentContextScope(runnableContextStore, (Runnable) thiz);
         if (null != newScope) {
           if (null != scope) {
             newScope.close();
@@ -78,9 +78,9 @@ public class AkkaForkJoinTaskInstrumentation implements TypeInstrumentation {
         }
       }
       if (thiz instanceof Callable) {
-        ContextStore<Callable, State> callableContextStore =
-            InstrumentationContext.get(Callable.class, State.class);
-        Scope newScope = AdviceUtils.startTaskScope(callableContextStore, (Callable) thiz);
+        ContextStore<Callable, Context> callableContextStore =
+            InstrumentationContext.get(Callable.class, Context.class);
+        Scope newScope = AdviceUtils.startParentContextScope(callableContextStore, (Callable) thiz);
         if (null != newScope) {
           if (null != scope) {
             newScope.close();
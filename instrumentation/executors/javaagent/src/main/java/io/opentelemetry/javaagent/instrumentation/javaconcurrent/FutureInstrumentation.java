@@ -9,15 +9,16 @@ import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.returns;
 
+import io.opentelemetry.context.Context;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
 import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
 import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
-import io.opentelemetry.javaagent.instrumentation.api.concurrent.State;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.type.TypeDescription;
@@ -100,11 +101,19 @@ public class FutureInstrumentation implements TypeInstrumentation {
       // Try to clear parent span even if future was not cancelled:
       // the expectation is that parent span should be cleared after 'cancel'
       // is called, one way or another
-      ContextStore<Future, State> contextStore =
-          InstrumentationContext.get(Future.class, State.class);
-      State state = contextStore.get(future);
-      if (state != null) {
-        state.clearParentContext();
+      // the context of a future returned by submit() or schedule() is the task that was submitted
+      ContextStore<Future, Object> contextStore =
+          InstrumentationContext.get(Future.class, Object.class);
+      Object task = contextStore.get(future);
+      if (task instanceof Runnable) {
+        ContextStore<Runnable, Context> runnableContextStore =
+            InstrumentationContext.get(Runnable.class, Context.class);
+        runnableContextStore.put((Runnable) task, null);
+      }
+      if (task instanceof Callable) {
+        ContextStore<Callable, Context> callableContextStore =
+            InstrumentationContext.get(Callable.class, Context.class);
+        callableContextStore.put((Callable) task, null);
       }
     }
   }
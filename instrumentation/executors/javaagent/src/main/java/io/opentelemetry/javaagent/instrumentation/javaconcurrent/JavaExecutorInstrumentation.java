@@ -10,6 +10,7 @@ import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
+import io.opentelemetry.context.Context;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
 import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
 import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
@@ -17,7 +18,6 @@ import io.opentelemetry.javaagent.instrumentation.api.Java8BytecodeBridge;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.CallableWrapper;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.ExecutorInstrumentationUtils;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.RunnableWrapper;
-import io.opentelemetry.javaagent.instrumentation.api.concurrent.State;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.Callable;
@@ -31,141 +31,155 @@ public class JavaExecutorInstrumentation extends AbstractExecutorInstrumentation
   public void transform(TypeTransformer transformer) {
     transformer.applyAdviceToMethod(
         named("execute").and(takesArgument(0, Runnable.class)).and(takesArguments(1)),
-        JavaExecutorInstrumentation.class.getName() + "$SetExecuteRunnableStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetExecuteRunnableContextAdvice");
     // Netty uses addTask as the actual core of their submission; there are non-standard variations
     // like execute(Runnable,boolean) that aren't caught by standard instrumentation
     transformer.applyAdviceToMethod(
         named("addTask").and(takesArgument(0, Runnable.class)).and(takesArguments(1)),
-        JavaExecutorInstrumentation.class.getName() + "$SetExecuteRunnableStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetExecuteRunnableContextAdvice");
     transformer.applyAdviceToMethod(
         named("execute").and(takesArgument(0, ForkJoinTask.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinContextAdvice");
     transformer.applyAdviceToMethod(
         named("submit").and(takesArgument(0, Runnable.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetSubmitRunnableStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetSubmitRunnableContextAdvice");
     transformer.applyAdviceToMethod(
         named("submit").and(takesArgument(0, Callable.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetCallableStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetCallableContextAdvice");
     transformer.applyAdviceToMethod(
         named("submit").and(takesArgument(0, ForkJoinTask.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinContextAdvice");
     transformer.applyAdviceToMethod(
         nameMatches("invoke(Any|All)$").and(takesArgument(0, Collection.class)),
         JavaExecutorInstrumentation.class.getName()
-            + "$SetCallableStateForCallableCollectionAdvice");
+            + "$SetCallableContextForCallableCollectionAdvice");
     transformer.applyAdviceToMethod(
         nameMatches("invoke").and(takesArgument(0, ForkJoinTask.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinContextAdvice");
     transformer.applyAdviceToMethod(
         named("schedule").and(takesArgument(0, Runnable.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetSubmitRunnableStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetSubmitRunnableContextAdvice");
     transformer.applyAdviceToMethod(
         named("schedule").and(takesArgument(0, Callable.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetCallableStateAdvice");
+        JavaExecutorInstrumentation.class.getName() + "$SetCallableContextAdvice");
   }
 
-  public static class SetExecuteRunnableStateAdvice {
+  public static class SetExecuteRunnableContextAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static State enterJobSubmit(
+    public static Runnable enterJobSubmit(
+        @Advice.This Object executor,
         @Advice.Argument(value = 0, readOnly = false) Runnable task) {
       if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task)) {
         task = RunnableWrapper.wrapIfNeeded(task);
-        ContextStore<Runnable, State> contextStore =
-            InstrumentationContext.get(Runnable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(
-            contextStore, task, Java8BytecodeBridge.currentContext());
+        ContextStore<Runnable, Context> contextStore =
+            InstrumentationContext.get(Runnable.class, Context.class);
+        return ExecutorInstrumentationUtils.setupParentContext(
+            contextStore, task, Java8BytecodeBridge.currentContext(), executor);
       }
       return null;
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exitJobSubmit(
-        @Advice.Enter State state, @Advice.Thrown Throwable throwable) {
-      ExecutorInstrumentationUtils.cleanUpOnMethodExit(state, throwable);
+        @Advice.Enter Runnable task, @Advice.Thrown Throwable throwable) {
+      ContextStore<Runnable, Context> contextStore =
+          InstrumentationContext.get(Runnable.class, Context.class);
+      ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
     }
   }
 
-  public static class SetJavaForkJoinStateAdvice {
+  public static class SetJavaForkJoinContextAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static State enterJobSubmit(
+    public static ForkJoinTask<?> enterJobSubmit(
+        @Advice.This Object executor,
         @Advice.Argument(value = 0, readOnly = false) ForkJoinTask<?> task) {
       if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task)) {
-        ContextStore<ForkJoinTask, State> contextStore =
-            InstrumentationContext.get(ForkJoinTask.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(
-            contextStore, task, Java8BytecodeBridge.currentContext());
+        ContextStore<ForkJoinTask, Context> contextStore =
+            InstrumentationContext.get(ForkJoinTask.class, Context.class);
+        return ExecutorInstrumentationUtils.setupParentContext(
+            contextStore, task, Java8BytecodeBridge.currentContext(), executor);
       }
       return null;
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exitJobSubmit(
-        @Advice.Enter State state, @Advice.Thrown Throwable throwable) {
-      ExecutorInstrumentationUtils.cleanUpOnMethodExit(state, throwable);
+        @Advice.Enter ForkJoinTask<?> task, @Advice.Thrown Throwable throwable) {
+      ContextStore<ForkJoinTask, Context> contextStore =
+          InstrumentationContext.get(ForkJoinTask.class, Context.class);
+      ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
     }
   }
 
-  public static class SetSubmitRunnableStateAdvice {
+  public static class SetSubmitRunnableContextAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static State enterJobSubmit(
+    public static Runnable enterJobSubmit(
+        @Advice.This Object executor,
         @Advice.Argument(value = 0, readOnly = false) Runnable task) {
       if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task)) {
         task = RunnableWrapper.wrapIfNeeded(task);
-        ContextStore<Runnable, State> contextStore =
-            InstrumentationContext.get(Runnable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(
-            contextStore, task, Java8BytecodeBridge.currentContext());
+        ContextStore<Runnable, Context> contextStore =
+            InstrumentationContext.get(Runnable.class, Context.class);
+        return ExecutorInstrumentationUtils.setupParentContext(
+            contextStore, task, Java8BytecodeBridge.currentContext(), executor);
       }
       return null;
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exitJobSubmit(
-        @Advice.Enter State state,
+        @Advice.Enter Runnable task,
         @Advice.Thrown Throwable throwable,
         @Advice.Return Future<?> future) {
-      if (state != null && future != null) {
-        ContextStore<Future, State> contextStore =
-            InstrumentationContext.get(Future.class, State.class);
-        contextStore.put(future, state);
+      if (task != null && future != null) {
+        // lets FutureInstrumentation clear the parent context of the task on cancel
+        ContextStore<Future, Object> futureContextStore =
+            InstrumentationContext.get(Future.class, Object.class);
+        futureContextStore.put(future, task);
       }
-      ExecutorInstrumentationUtils.cleanUpOnMethodExit(state, throwable);
+      ContextStore<Runnable, Context> contextStore =
+          InstrumentationContext.get(Runnable.class, Context.class);
+      ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
     }
   }
 
-  public static class SetCallableStateAdvice {
+  public static class SetCallableContextAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static State enterJobSubmit(
+    public static Callable<?> enterJobSubmit(
+        @Advice.This Object executor,
         @Advice.Argument(value = 0, readOnly = false) Callable<?> task) {
       if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task)) {
         task = CallableWrapper.wrapIfNeeded(task);
-        ContextStore<Callable, State> contextStore =
-            InstrumentationContext.get(Callable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(
-            contextStore, task, Java8BytecodeBridge.currentContext());
+        ContextStore<Callable, Context> contextStore =
+            InstrumentationContext.get(Callable.class, Context.class);
+        return ExecutorInstrumentationUtils.setupParentContext(
+            contextStore, task, Java8BytecodeBridge.currentContext(), executor);
       }
       return null;
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exitJobSubmit(
-        @Advice.Enter State state,
+        @Advice.Enter Callable<?> task,
         @Advice.Thrown Throwable throwable,
         @Advice.Return Future<?> future) {
-      if (state != null && future != null) {
-        ContextStore<Future, State> contextStore =
-            InstrumentationContext.get(Future.class, State.class);
-        contextStore.put(future, state);
+      if (task != null && future != null) {
+        // lets FutureInstrumentation clear the parent context of the task on cancel
+        ContextStore<Future, Object> futureContextStore =
+            InstrumentationContext.get(Future.class, Object.class);
+        futureContextStore.put(future, task);
       }
-      ExecutorInstrumentationUtils.cleanUpOnMethodExit(state, throwable);
+      ContextStore<Callable, Context> contextStore =
+          InstrumentationContext.get(Callable.class, Context.class);
+      ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
     }
   }
 
-  public static class SetCallableStateForCallableCollectionAdvice {
+  public static class SetCallableContextForCallableCollectionAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static Collection<?> submitEnter(
@@ -176,9 +190,9 @@ public class JavaExecutorInstrumentation extends AbstractExecutorInstrumentation
           if (task != null) {
             Callable newTask = CallableWrapper.wrapIfNeeded(task);
             wrappedTasks.add(newTask);
-            ContextStore<Callable, State> contextStore =
-                InstrumentationContext.get(Callable.class, State.class);
-            ExecutorInstrumentationUtils.setupState(
+            ContextStore<Callable, Context> contextStore =
+                InstrumentationContext.get(Callable.class, Context.class);
+            ExecutorInstrumentationUtils.setupParentContext(
                 contextStore, newTask, Java8BytecodeBridge.currentContext());
           }
         }
@@ -204,20 +218,17 @@ public class JavaExecutorInstrumentation extends AbstractExecutorInstrumentation
       if (null != throwable && wrappedTasks != null) {
         for (Callable<?> task : wrappedTasks) {
           if (task != null) {
-            ContextStore<Callable, State> contextStore =
-                InstrumentationContext.get(Callable.class, State.class);
-            State state = contextStore.get(task);
-            if (state != null) {
-              /*
-              Note: this may potentially clear somebody else's parent span if we didn't set it
-              up in setupState because it was already present before us. This should be safe but
-              may lead to non-attributed async work in some very rare cases.
-              Alternative is to not clear parent span here if we did not set it up in setupState
-              but this may potentially lead to memory leaks if callers do not properly handle
-              exceptions.
-               */
-              state.clearParentContext();
-            }
+            ContextStore<Callable, Context> contextStore =
+                InstrumentationContext.get(Callable.class, Context.class);
+            /*
+            Note: this may potentially clear somebody else's parent span if we didn't set it
+            up in setupParentContext because it was already present before us. This should be safe
+            but may lead to non-attributed async work in some very rare cases.
+            Alternative is to not clear parent span here if we did not set it up in
+            setupParentContext but this may potentially lead to memory leaks if callers do not
+            properly handle exceptions.
+             */
+            ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
           }
         }
       }
@@ -0,0 +1,66 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.javaconcurrent;
+
+import static net.bytebuddy.matcher.ElementMatchers.isConstructor;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
+import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
+import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
+import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
+import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
+import io.opentelemetry.javaagent.instrumentation.api.Java8BytecodeBridge;
+import io.opentelemetry.javaagent.instrumentation.api.concurrent.ExecutorInstrumentationUtils;
+import io.opentelemetry.javaagent.instrumentation.api.concurrent.RunnableWrapper;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Instrument the virtual threads of java 21+.
+ *
+ * <p>Every virtual thread, whether started with {@code Thread.ofVirtual()}, by {@code
+ * Executors.newVirtualThreadPerTaskExecutor()} or forked by a {@code StructuredTaskScope}, is
+ * created with the task it runs. The current context is stored as the parent context of that task,
+ * and {@link RunnableInstrumentation} makes it current when the task runs on the
+ * virtual thread. Lambdas are wrapped before the virtual thread is created, like the tasks passed
+ * to executors, because their classes aren't instrumented. The continuations that mount a virtual
+ * thread on its carrier threads are excluded in {@link
+ * ExecutorInstrumentationUtils#shouldAttachStateToTask(Object)}, so nothing is stored when a
+ * virtual thread is scheduled, parked or unparked.
+ */
+public class VirtualThreadInstrumentation implements TypeInstrumentation {
+
+  @Override
+  public ElementMatcher<TypeDescription> typeMatcher() {
+    return named("java.lang.VirtualThread");
+  }
+
+  @Override
+  public void transform(TypeTransformer transformer) {
+    // VirtualThread(Executor scheduler, String name, int characteristics, Runnable task)
+    transformer.applyAdviceToMethod(
+        isConstructor().and(takesArguments(4)).and(takesArgument(3, Runnable.class)),
+        VirtualThreadInstrumentation.class.getName() + "$VirtualThreadConstructorAdvice");
+  }
+
+  public static class VirtualThreadConstructorAdvice {
+
+    @Advice.OnMethodEnter(suppress = Throwable.class)
+    public static void onConstruct(@Advice.Argument(value = 3, readOnly = false) Runnable task) {
+      if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task)) {
+        task = RunnableWrapper.wrapIfNeeded(task);
+        ContextStore<Runnable, Context> contextStore =
+            InstrumentationContext.get(Runnable.class, Context.class);
+        ExecutorInstrumentationUtils.setupParentContext(
+            contextStore, task, Java8BytecodeBridge.currentContext());
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import static io.opentelemetry.instrumentation.test.utils.TraceUtils.basicSpan
+import static io.opentelemetry.instrumentation.test.utils.TraceUtils.runUnderTrace
+import static io.opentelemetry.sdk.metrics.data.MetricDataType.SUMMARY
+
+import io.opentelemetry.api.metrics.common.Labels
+import io.opentelemetry.instrumentation.test.AgentInstrumentationSpecification
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.SynchronousQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+// runs in its own test task, with task metrics and queue time span events enabled
+class ExecutorTaskMetricsTest extends AgentInstrumentationSpecification {
+
+  def "tasks are measured once"() {
+    setup:
+    def pool = new QueueingExecutor()
+
+    when:
+    runUnderTrace("parent") {
+      def children = [new JavaAsyncChild(), new JavaAsyncChild(), new JavaAsyncChild()]
+      pool.execute((Runnable) children[0])
+      // the submitted task is passed to execute() as a FutureTask, which runs the task itself
+      pool.submit((Runnable) children[1])
+      pool.submit((Callable) children[2])
+      // the events are added to the parent span when the tasks start
+      children*.waitForCompletion()
+    }
+
+    then:
+    assertTraces(1) {
+      trace(0, 4) {
+        span(0) {
+          name "parent"
+          (0..2).each { index ->
+            event(index) {
+              eventName "executor task started"
+              attributes {
+                "executor" QueueingExecutor.name
+                "executor.task.queue_time" { it >= 0 }
+              }
+            }
+          }
+        }
+        basicSpan(it, 1, "asyncChild", span(0))
+        basicSpan(it, 2, "asyncChild", span(0))
+        basicSpan(it, 3, "asyncChild", span(0))
+      }
+    }
+    assertMeasured(QueueingExecutor)
+
+    cleanup:
+    pool.shutdown()
+    pool.awaitTermination(10, TimeUnit.SECONDS)
+  }
+
+  def "tasks run by the submitting task are measured"() {
+    setup:
+    def pool = new CallerRunsExecutor()
+    def outerDone = new CountDownLatch(1)
+
+    when:
+    runUnderTrace("parent") {
+      pool.execute(new Runnable() {
+        @Override
+        void run() {
+          // the only thread of the pool runs this task, so the child is rejected and runs here
+          def child = new JavaAsyncChild()
+          pool.execute((Runnable) child)
+          child.waitForCompletion()
+          outerDone.countDown()
+        }
+      })
+      outerDone.await()
+    }
+
+    then:
+    assertTraces(1) {
+      trace(0, 2) {
+        span(0) {
+          name "parent"
+          (0..1).each { index ->
+            event(index) {
+              eventName "executor task started"
+              attributes {
+                "executor" CallerRunsExecutor.name
+                "executor.task.queue_time" { it >= 0 }
+              }
+            }
+          }
+        }
+        basicSpan(it, 1, "asyncChild", span(0))
+      }
+    }
+    assertMeasured(CallerRunsExecutor)
+
+    cleanup:
+    pool.shutdown()
+    pool.awaitTermination(10, TimeUnit.SECONDS)
+  }
+
+  // metrics are exported periodically, wait until the ones of the executor are
+  void assertMeasured(Class<?> executorClass) {
+    def labels = Labels.of("executor", executorClass.name)
+    def names = ["executor.task.queue_time", "executor.task.run_time"] as Set
+    def measured = [] as Set
+    def deadline = System.currentTimeMillis() + 10_000
+    while (measured != names && System.currentTimeMillis() < deadline) {
+      Thread.sleep(100)
+      for (def metric : metrics) {
+        if (metric.instrumentationLibraryInfo.name == "io.opentelemetry.javaagent.executors"
+          && metric.type == SUMMARY
+          && metric.doubleSummaryData.points.any { it.labels == labels }) {
+          measured.add(metric.name)
+        }
+      }
+    }
+    assert measured == names
+  }
+
+  static class QueueingExecutor extends ThreadPoolExecutor {
+    QueueingExecutor() {
+      super(1, 1, 1000, TimeUnit.NANOSECONDS, new LinkedBlockingQueue<Runnable>())
+    }
+  }
+
+  static class CallerRunsExecutor extends ThreadPoolExecutor {
+    CallerRunsExecutor() {
+      super(1, 1, 1000, TimeUnit.NANOSECONDS, new SynchronousQueue<Runnable>(),
+        new ThreadPoolExecutor.CallerRunsPolicy())
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import static io.opentelemetry.instrumentation.test.utils.TraceUtils.basicSpan
+import static io.opentelemetry.instrumentation.test.utils.TraceUtils.runUnderTrace
+
+import io.opentelemetry.context.Context
+import io.opentelemetry.instrumentation.test.AgentInstrumentationSpecification
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import spock.lang.Requires
+import spock.lang.Shared
+
+// virtual threads are only available since java 21, run with -PtestJavaVersion=21
+@Requires({ javaVersion >= 21 })
+class VirtualThreadTest extends AgentInstrumentationSpecification {
+
+  @Shared
+  def startVirtualThread = { c -> Thread.ofVirtual().start((Runnable) c) }
+  @Shared
+  def startUnstartedVirtualThread = { c -> Thread.ofVirtual().unstarted((Runnable) c).start() }
+  @Shared
+  def startFromVirtualThreadFactory = { c -> Thread.ofVirtual().factory().newThread((Runnable) c).start() }
+  @Shared
+  def startParkingVirtualThread = { c ->
+    Thread.ofVirtual().start({
+      // parking unmounts the virtual thread, its continuation is resubmitted to the carrier pool
+      Thread.sleep(10)
+      c.run()
+    } as Runnable)
+  }
+  @Shared
+  def executeRunnable = { c -> executor.execute((Runnable) c) }
+  @Shared
+  def submitRunnable = { c -> executor.submit((Runnable) c) }
+  @Shared
+  def submitCallable = { c -> executor.submit((Callable) c) }
+
+  @Shared
+  def executor
+
+  def setupSpec() {
+    executor = Executors.newVirtualThreadPerTaskExecutor()
+  }
+
+  def cleanupSpec() {
+    executor.shutdown()
+    executor.awaitTermination(10, TimeUnit.SECONDS)
+  }
+
+  def "virtual thread '#name' propagates"() {
+    setup:
+    def m = method
+
+    new Runnable() {
+      @Override
+      void run() {
+        runUnderTrace("parent") {
+          // this child will have a span
+          def child1 = new JavaAsyncChild()
+          // this child won't
+          def child2 = new JavaAsyncChild(false, false)
+          m(child1)
+          m(child2)
+          child1.waitForCompletion()
+          child2.waitForCompletion()
+        }
+      }
+    }.run()
+
+    expect:
+    assertTraces(1) {
+      trace(0, 2) {
+        basicSpan(it, 0, "parent")
+        basicSpan(it, 1, "asyncChild", span(0))
+      }
+    }
+
+    where:
+    name                                              | method
+    "Thread.ofVirtual().start"                        | startVirtualThread
+    "Thread.ofVirtual().unstarted"                    | startUnstartedVirtualThread
+    "Thread.ofVirtual().factory()"                    | startFromVirtualThreadFactory
+    "Thread.ofVirtual().start after parking"          | startParkingVirtualThread
+    "newVirtualThreadPerTaskExecutor execute"         | executeRunnable
+    "newVirtualThreadPerTaskExecutor submit Runnable" | submitRunnable
+    "newVirtualThreadPerTaskExecutor submit Callable" | submitCallable
+  }
+
+  def "virtual thread '#name' wraps lambdas"() {
+    setup:
+    def m = method
+
+    JavaAsyncChild child = new JavaAsyncChild()
+    new Runnable() {
+      @Override
+      void run() {
+        runUnderTrace("parent") {
+          // a lambda created in java, its class can't be instrumented
+          m(LambdaGen.wrapRunnable(child))
+          child.waitForCompletion()
+        }
+      }
+    }.run()
+
+    expect:
+    assertTraces(1) {
+      trace(0, 2) {
+        basicSpan(it, 0, "parent")
+        basicSpan(it, 1, "asyncChild", span(0))
+      }
+    }
+
+    where:
+    name                                      | method
+    "Thread.ofVirtual().start"                | startVirtualThread
+    "Thread.ofVirtual().unstarted"            | startUnstartedVirtualThread
+    "Thread.ofVirtual().factory()"            | startFromVirtualThreadFactory
+    "newVirtualThreadPerTaskExecutor execute" | executeRunnable
+  }
+
+  def "virtual thread started without context has no context"() {
+    setup:
+    Context context = null
+    runUnderTrace("parent") {
+      // park and unpark virtual threads while there's a context
+      Thread.ofVirtual().start({ Thread.sleep(10) } as Runnable).join()
+    }
+
+    when:
+    def thread = Thread.ofVirtual().start({ context = Context.current() } as Runnable)
+    thread.join()
+
+    then:
+    context == Context.root()
+  }
+}
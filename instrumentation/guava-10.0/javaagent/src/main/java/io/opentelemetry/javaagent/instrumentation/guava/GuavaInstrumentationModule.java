@@ -20,7 +20,6 @@ import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
 import io.opentelemetry.javaagent.instrumentation.api.Java8BytecodeBridge;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.ExecutorInstrumentationUtils;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.RunnableWrapper;
-import io.opentelemetry.javaagent.instrumentation.api.concurrent.State;
 import java.util.List;
 import java.util.concurrent.Executor;
 import net.bytebuddy.asm.Advice;
@@ -65,23 +64,25 @@ public class GuavaInstrumentationModule extends InstrumentationModule {
 
   public static class AddListenerAdvice {
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static State addListenerEnter(
+    public static Runnable addListenerEnter(
         @Advice.Argument(value = 0, readOnly = false) Runnable task) {
       final Context context = Java8BytecodeBridge.currentContext();
       final Runnable newTask = RunnableWrapper.wrapIfNeeded(task);
       if (ExecutorInstrumentationUtils.shouldAttachStateToTask(newTask)) {
         task = newTask;
-        final ContextStore<Runnable, State> contextStore =
-            InstrumentationContext.get(Runnable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(contextStore, newTask, context);
+        final ContextStore<Runnable, Context> contextStore =
+            InstrumentationContext.get(Runnable.class, Context.class);
+        return ExecutorInstrumentationUtils.setupParentContext(contextStore, newTask, context);
       }
       return null;
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void addListenerExit(
-        @Advice.Enter final State state, @Advice.Thrown final Throwable throwable) {
-      ExecutorInstrumentationUtils.cleanUpOnMethodExit(state, throwable);
+        @Advice.Enter final Runnable task, @Advice.Thrown final Throwable throwable) {
+      final ContextStore<Runnable, Context> contextStore =
+          InstrumentationContext.get(Runnable.class, Context.class);
+      ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
     }
 
     private static void muzzleCheck(final AbstractFuture<?> future) {
@@ -0,0 +1,55 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.opentelemetry.javaagent.instrumentation.jdbc.JdbcUtils
+import java.sql.Connection
+import java.sql.DatabaseMetaData
+import spock.lang.Specification
+
+class JdbcUtilsTest extends Specification {
+
+  def "parsed info is reused for the same url and standard properties"() {
+    setup:
+    def url = "jdbc:postgresql://parse-reuse:5432/db"
+    def props = new Properties()
+    props.setProperty("user", "alice")
+    props.setProperty("password", "first")
+    def samePropsOtherPassword = new Properties()
+    samePropsOtherPassword.setProperty("user", "alice")
+    samePropsOtherPassword.setProperty("password", "second")
+    def otherUser = new Properties()
+    otherUser.setProperty("user", "bob")
+
+    when:
+    def info = JdbcUtils.parseDbInfo(url, props)
+
+    then:
+    info.user == "alice"
+    info.host == "parse-reuse"
+    JdbcUtils.parseDbInfo(url, samePropsOtherPassword).is(info)
+    JdbcUtils.parseDbInfo(url, otherUser).user == "bob"
+    JdbcUtils.parseDbInfo(url, null).user == null
+  }
+
+  def "client info is only read for the first connection to an url"() {
+    setup:
+    def metaData = Mock(DatabaseMetaData)
+    metaData.getURL() >> "jdbc:postgresql://metadata-reuse:5432/db"
+    def first = Mock(Connection)
+    first.getMetaData() >> metaData
+    def second = Mock(Connection)
+    second.getMetaData() >> metaData
+
+    when:
+    def firstInfo = JdbcUtils.extractDbInfo(first)
+    def secondInfo = JdbcUtils.extractDbInfo(second)
+
+    then:
+    1 * first.getClientInfo() >> new Properties()
+    0 * second.getClientInfo()
+    firstInfo.host == "metadata-reuse"
+    secondInfo.is(firstInfo)
+  }
+}
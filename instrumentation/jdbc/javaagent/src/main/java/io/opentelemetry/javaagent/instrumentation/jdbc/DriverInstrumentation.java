@@ -52,7 +52,7 @@ public class DriverInstrumentation implements TypeInstrumentation {
         // Exception was probably thrown.
         return;
       }
-      DbInfo dbInfo = JdbcConnectionUrlParser.parse(url, props);
+      DbInfo dbInfo = JdbcUtils.parseDbInfo(url, props);
       JdbcMaps.connectionInfo.put(connection, dbInfo);
     }
   }
@@ -0,0 +1,20 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.jdbc;
+
+import io.opentelemetry.javaagent.instrumentation.api.CallDepthThreadLocalMap;
+import java.sql.Statement;
+
+/** The {@link CallDepthThreadLocalMap} slot shared by all statement advices. */
+public final class JdbcCallDepth {
+  private static final int STATEMENT_SLOT = CallDepthThreadLocalMap.slotFor(Statement.class);
+
+  public static int statementSlot() {
+    return STATEMENT_SLOT;
+  }
+
+  private JdbcCallDepth() {}
+}
@@ -795,6 +795,11 @@ public enum JdbcConnectionUrlParser {
 
   private static final Map<String, JdbcConnectionUrlParser> typeParsers = new HashMap<>();
 
+  // the properties read by populateStandardProperties
+  private static final String[] STANDARD_PROPERTIES = {
+    "user", "databasename", "databaseName", "servername", "serverName", "portnumber", "portNumber"
+  };
+
   static {
     for (JdbcConnectionUrlParser parser : JdbcConnectionUrlParser.values()) {
       for (String key : parser.typeKeys) {
@@ -895,6 +900,24 @@ public enum JdbcConnectionUrlParser {
     return queryPairs;
   }
 
+  /**
+   * Returns the values of the properties of {@code props} that {@link #parse(String, Properties)}
+   * reads, so that the parsed info of an url can be reused for the same properties.
+   */
+  static String standardPropertiesFingerprint(Properties props) {
+    if (props == null || props.isEmpty()) {
+      return "";
+    }
+    StringBuilder fingerprint = new StringBuilder();
+    for (String name : STANDARD_PROPERTIES) {
+      Object value = props.get(name);
+      if (value != null) {
+        fingerprint.append(name).append('=').append(value).append('\n');
+      }
+    }
+    return fingerprint.toString();
+  }
+
   private static void populateStandardProperties(
       DbInfo.Builder builder, Map<? extends Object, ? extends Object> props) {
     if (props != null && !props.isEmpty()) {
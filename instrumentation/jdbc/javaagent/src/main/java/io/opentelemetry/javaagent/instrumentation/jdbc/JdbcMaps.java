@@ -19,4 +19,7 @@ public class JdbcMaps {
       Cache.newBuilder().setWeakKeys().build();
   public static final Cache<PreparedStatement, String> preparedStatements =
       Cache.newBuilder().setWeakKeys().build();
+  // parsed connection info by url, shared by all connections to the same database, see JdbcUtils
+  public static final Cache<String, DbInfo> dbInfoByUrl =
+      Cache.newBuilder().setMaximumSize(256).build();
 }
@@ -10,6 +10,7 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +64,21 @@ public final class JdbcUtils {
     return connection;
   }
 
+  /**
+   * Returns the parsed info of {@code url} and {@code props}, reusing the info parsed for earlier
+   * connections with the same url and standard properties.
+   */
+  public static DbInfo parseDbInfo(String url, Properties props) {
+    if (url == null) {
+      return DbInfo.DEFAULT;
+    }
+    // urls don't contain line breaks, so these keys never clash with the plain urls used for
+    // connections whose info is read from their metadata
+    String key = url + '\n' + JdbcConnectionUrlParser.standardPropertiesFingerprint(props);
+    return JdbcMaps.dbInfoByUrl.computeIfAbsent(
+        key, unused -> JdbcConnectionUrlParser.parse(url, props));
+  }
+
   public static DbInfo extractDbInfo(Connection connection) {
     return JdbcMaps.connectionInfo.computeIfAbsent(connection, JdbcUtils::computeDbInfo);
   }
@@ -78,20 +94,32 @@ public final class JdbcUtils {
     try {
       DatabaseMetaData metaData = connection.getMetaData();
       String url = metaData.getURL();
-      if (url != null) {
-        try {
-          return JdbcConnectionUrlParser.parse(url, connection.getClientInfo());
-        } catch (Throwable ex) {
-          // getClientInfo is likely not allowed.
-          return JdbcConnectionUrlParser.parse(url, null);
-        }
-      } else {
+      if (url == null) {
         return DbInfo.DEFAULT;
       }
+      // the client info may need a round trip to the database and rarely has any of the properties
+      // the parser reads, so the info parsed for the first connection to an url is reused for all
+      // later connections to it. Not using computeIfAbsent, since the driver may run statements,
+      // which extract their connection info, while getting the client info.
+      DbInfo dbInfo = JdbcMaps.dbInfoByUrl.get(url);
+      if (dbInfo == null) {
+        dbInfo = parseWithClientInfo(url, connection);
+        JdbcMaps.dbInfoByUrl.put(url, dbInfo);
+      }
+      return dbInfo;
     } catch (SQLException se) {
       return DbInfo.DEFAULT;
     }
   }
 
+  private static DbInfo parseWithClientInfo(String url, Connection connection) {
+    try {
+      return JdbcConnectionUrlParser.parse(url, connection.getClientInfo());
+    } catch (Throwable ex) {
+      // getClientInfo is likely not allowed.
+      return JdbcConnectionUrlParser.parse(url, null);
+    }
+  }
+
   private JdbcUtils() {}
 }
@@ -10,6 +10,7 @@ import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
 import com.google.auto.service.AutoService;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
@@ -18,7 +19,6 @@ import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
 import io.opentelemetry.javaagent.instrumentation.api.Java8BytecodeBridge;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.ExecutorInstrumentationUtils;
 import io.opentelemetry.javaagent.instrumentation.api.concurrent.RunnableWrapper;
-import io.opentelemetry.javaagent.instrumentation.api.concurrent.State;
 import io.opentelemetry.javaagent.instrumentation.jetty.common.JettyHandlerInstrumentation;
 import java.util.Arrays;
 import java.util.List;
@@ -60,14 +60,14 @@ public class Jetty8InstrumentationModule extends InstrumentationModule {
   public static class SetExecuteRunnableStateAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static State enterJobSubmit(
+    public static Runnable enterJobSubmit(
         @Advice.Argument(value = 0, readOnly = false) Runnable task) {
       Runnable newTask = RunnableWrapper.wrapIfNeeded(task);
       if (ExecutorInstrumentationUtils.shouldAttachStateToTask(newTask)) {
         task = newTask;
-        ContextStore<Runnable, State> contextStore =
-            InstrumentationContext.get(Runnable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(
+        ContextStore<Runnable, Context> contextStore =
+            InstrumentationContext.get(Runnable.class, Context.class);
+        return ExecutorInstrumentationUtils.setupParentContext(
             contextStore, newTask, Java8BytecodeBridge.currentContext());
       }
       return null;
@@ -75,8 +75,10 @@ public class Jetty8InstrumentationModule extends InstrumentationModule {
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void exitJobSubmit(
-        @Advice.Enter State state, @Advice.Thrown Throwable throwable) {
-      ExecutorInstrumentationUtils.cleanUpOnMethodExit(state, throwable);
+        @Advice.Enter Runnable task, @Advice.Thrown Throwable throwable) {
+      ContextStore<Runnable, Context> contextStore =
+          InstrumentationContext.get(Runnable.class, Context.class);
+      ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, throwable);
     }
   }
 }
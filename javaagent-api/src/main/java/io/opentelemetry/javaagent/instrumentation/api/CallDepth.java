@@ -5,19 +5,25 @@
 
 package io.opentelemetry.javaagent.instrumentation.api;
 
+/**
+ * The call depth of a single key of {@link CallDepthThreadLocalMap} on a single thread. Instances
+ * must only be used on the thread they were obtained on.
+ */
 public final class CallDepth {
-  private int depth;
+  private final CallDepthThreadLocalMap.ThreadDepths depths;
+  private final int slot;
 
-  CallDepth() {
-    this.depth = 0;
+  CallDepth(CallDepthThreadLocalMap.ThreadDepths depths, int slot) {
+    this.depths = depths;
+    this.slot = slot;
   }
 
   public int getAndIncrement() {
-    return this.depth++;
+    return depths.getAndIncrement(slot);
   }
 
   public int decrementAndGet() {
-    return --this.depth;
+    return depths.decrementAndGet(slot);
   }
 
   /**
@@ -25,10 +31,10 @@ public final class CallDepth {
    * instrumentations.
    */
   public int get() {
-    return depth;
+    return depths.get(slot);
   }
 
   public void reset() {
-    depth = 0;
+    depths.reset(slot);
   }
 }
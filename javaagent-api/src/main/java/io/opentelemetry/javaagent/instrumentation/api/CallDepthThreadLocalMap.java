@@ -5,6 +5,9 @@
 
 package io.opentelemetry.javaagent.instrumentation.api;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Utility to track nested instrumentation.
  *
@@ -19,37 +22,115 @@ package io.opentelemetry.javaagent.instrumentation.api;
  *
  * <p>In short, the semantic of both methods is the same: they will return value 0 if and only if
  * current method invocation is the first one for the current call stack.
+ *
+ * <p>Every key class is assigned a small integer slot, and the call depths of a thread are kept in
+ * a single {@code int[]} indexed by slot. Advice on a hot path should resolve the slot once with
+ * {@link #slotFor(Class)}, keep it in a {@code static final} field of a helper class and use the
+ * {@code int} overloads, which only need a single {@link ThreadLocal} lookup and an array access.
+ * The {@link Class} overloads additionally look the slot up in a {@link ClassValue} on every call.
  */
 public class CallDepthThreadLocalMap {
 
-  private static final ClassValue<ThreadLocalDepth> TLS =
-      new ClassValue<ThreadLocalDepth>() {
+  private static final AtomicInteger nextSlot = new AtomicInteger();
+
+  private static final ClassValue<Integer> SLOTS =
+      new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+          // may be called more than once for the same class when racing, which only wastes a slot
+          return nextSlot.getAndIncrement();
+        }
+      };
+
+  private static final ThreadLocal<ThreadDepths> TLS =
+      new ThreadLocal<ThreadDepths>() {
         @Override
-        protected ThreadLocalDepth computeValue(Class<?> type) {
-          return new ThreadLocalDepth();
+        protected ThreadDepths initialValue() {
+          return new ThreadDepths();
         }
       };
 
+  /**
+   * Returns the slot of the given key class. The slot of a class never changes, so it can be looked
+   * up once and kept.
+   */
+  public static int slotFor(Class<?> k) {
+    return SLOTS.get(k);
+  }
+
   public static CallDepth getCallDepth(Class<?> k) {
-    return TLS.get(k).get();
+    return getCallDepth(slotFor(k));
   }
 
   public static int incrementCallDepth(Class<?> k) {
-    return TLS.get(k).get().getAndIncrement();
+    return incrementCallDepth(slotFor(k));
   }
 
   public static int decrementCallDepth(Class<?> k) {
-    return TLS.get(k).get().decrementAndGet();
+    return decrementCallDepth(slotFor(k));
   }
 
   public static void reset(Class<?> k) {
-    TLS.get(k).get().reset();
+    reset(slotFor(k));
+  }
+
+  public static CallDepth getCallDepth(int slot) {
+    return TLS.get().callDepth(slot);
+  }
+
+  public static int incrementCallDepth(int slot) {
+    return TLS.get().getAndIncrement(slot);
+  }
+
+  public static int decrementCallDepth(int slot) {
+    return TLS.get().decrementAndGet(slot);
+  }
+
+  public static void reset(int slot) {
+    TLS.get().reset(slot);
   }
 
-  private static final class ThreadLocalDepth extends ThreadLocal<CallDepth> {
-    @Override
-    protected CallDepth initialValue() {
-      return new CallDepth();
+  /** The call depths of a single thread, indexed by slot. Only accessed by its thread. */
+  static final class ThreadDepths {
+    private int[] depths = new int[16];
+    private CallDepth[] callDepths = new CallDepth[16];
+
+    int get(int slot) {
+      return slot < depths.length ? depths[slot] : 0;
+    }
+
+    int getAndIncrement(int slot) {
+      ensureCapacity(slot);
+      return depths[slot]++;
+    }
+
+    int decrementAndGet(int slot) {
+      ensureCapacity(slot);
+      return --depths[slot];
+    }
+
+    void reset(int slot) {
+      if (slot < depths.length) {
+        depths[slot] = 0;
+      }
+    }
+
+    CallDepth callDepth(int slot) {
+      ensureCapacity(slot);
+      CallDepth callDepth = callDepths[slot];
+      if (callDepth == null) {
+        callDepth = new CallDepth(this, slot);
+        callDepths[slot] = callDepth;
+      }
+      return callDepth;
+    }
+
+    private void ensureCapacity(int slot) {
+      if (slot >= depths.length) {
+        int length = Math.max(depths.length * 2, slot + 1);
+        depths = Arrays.copyOf(depths, length);
+        callDepths = Arrays.copyOf(callDepths, length);
+      }
     }
   }
 }
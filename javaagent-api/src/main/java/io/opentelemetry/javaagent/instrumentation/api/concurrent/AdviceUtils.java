@@ -25,9 +25,34 @@ public class AdviceUtils {
     if (state != null) {
       Context parentContext = state.getAndResetParentContext();
       if (parentContext != null) {
-        return parentContext.makeCurrent();
+        return makeCurrent(parentContext);
       }
     }
     return null;
   }
+
+  /**
+   * Start scope for a given task whose parent context was stored with {@link
+   * ExecutorInstrumentationUtils#setupParentContext(ContextStore, Object, Context)}.
+   *
+   * @param contextStore context storage for task's parent context
+   * @param task task to start scope for
+   * @param <T> task's type
+   * @return scope if scope was started, or null
+   */
+  public static <T> Scope startParentContextScope(ContextStore<T, Context> contextStore, T task) {
+    Context parentContext =
+        ExecutorInstrumentationUtils.getAndResetParentContext(contextStore, task);
+    if (parentContext != null) {
+      return makeCurrent(parentContext);
+    }
+    return null;
+  }
+
+  private static Scope makeCurrent(Context parentContext) {
+    if (ExecutorTaskMetrics.isEnabled()) {
+      return ExecutorTaskMetrics.onStart(parentContext, parentContext.makeCurrent());
+    }
+    return parentContext.makeCurrent();
+  }
 }
@@ -8,9 +8,14 @@ package io.opentelemetry.javaagent.instrumentation.api.concurrent;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.internal.ContextPropagationDebug;
 import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
+import io.opentelemetry.javaagent.instrumentation.api.internal.AtomicContextStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Utils for concurrent instrumentations. */
 public class ExecutorInstrumentationUtils {
+  private static final Logger log = LoggerFactory.getLogger(ExecutorInstrumentationUtils.class);
+
   private static final String AGENT_CLASSLOADER_NAME =
       "io.opentelemetry.javaagent.bootstrap.AgentClassLoader";
 
@@ -52,6 +57,13 @@ public class ExecutorInstrumentationUtils {
             return false;
           }
 
+          // The continuation of a virtual thread is submitted to the carrier thread pool every
+          // time the virtual thread is scheduled. The context is propagated to the task of the
+          // virtual thread instead, see VirtualThreadInstrumentation.
+          if (taskClass.getName().startsWith("java.lang.VirtualThread$")) {
+            return false;
+          }
+
           Class<?> enclosingClass = taskClass.getEnclosingClass();
           if (enclosingClass != null) {
             // Avoid context leak on jetty. Runnable submitted from SelectChannelEndPoint is used to
@@ -133,7 +145,8 @@ public class ExecutorInstrumentationUtils {
   }
 
   /**
-   * Create task state given current scope.
+   * Create task state given current scope. Tasks run by executors use {@link
+   * #setupParentContext(ContextStore, Object, Context)} instead, which doesn't need a state.
    *
    * @param <T> task class type
    * @param contextStore context storage
@@ -142,7 +155,24 @@ public class ExecutorInstrumentationUtils {
    * @return new state
    */
   public static <T> State setupState(ContextStore<T, State> contextStore, T task, Context context) {
+    return setupState(contextStore, task, context, null);
+  }
+
+  /**
+   * Create task state given current scope, recording the submit time of the task to {@code
+   * executor} when executor task metrics are enabled.
+   *
+   * @param <T> task class type
+   * @param contextStore context storage
+   * @param task task instance
+   * @param context current context
+   * @param executor executor the task is submitted to, or null if unknown
+   * @return new state
+   */
+  public static <T> State setupState(
+      ContextStore<T, State> contextStore, T task, Context context, Object executor) {
     State state = contextStore.putIfAbsent(task, State.FACTORY);
+    context = ExecutorTaskMetrics.onSubmit(context, executor);
     if (ContextPropagationDebug.isThreadPropagationDebuggerEnabled()) {
       context = ContextPropagationDebug.appendLocations(context, new Exception().getStackTrace());
     }
@@ -150,6 +180,72 @@ public class ExecutorInstrumentationUtils {
     return state;
   }
 
+  /**
+   * Stores the parent context of a task directly as the task's context, instead of creating a
+   * {@link State}. The context is made current by {@link
+   * AdviceUtils#startParentContextScope(ContextStore, Object)} when the task runs.
+   *
+   * @param <T> task class type
+   * @param contextStore context storage
+   * @param task task instance
+   * @param context current context
+   * @return the task, to pass to {@link #cleanUpOnMethodExit(ContextStore, Object, Throwable)}
+   */
+  public static <T> T setupParentContext(
+      ContextStore<T, Context> contextStore, T task, Context context) {
+    return setupParentContext(contextStore, task, context, null);
+  }
+
+  /**
+   * Stores the parent context of a task like {@link #setupParentContext(ContextStore, Object,
+   * Context)}, recording the submit time of the task to {@code executor} when executor task metrics
+   * are enabled.
+   *
+   * @param <T> task class type
+   * @param contextStore context storage
+   * @param task task instance
+   * @param context current context
+   * @param executor executor the task is submitted to, or null if unknown
+   * @return the task, to pass to {@link #cleanUpOnMethodExit(ContextStore, Object, Throwable)}
+   */
+  public static <T> T setupParentContext(
+      ContextStore<T, Context> contextStore, T task, Context context, Object executor) {
+    context = ExecutorTaskMetrics.onSubmit(context, executor);
+    if (ContextPropagationDebug.isThreadPropagationDebuggerEnabled()) {
+      context = ContextPropagationDebug.appendLocations(context, new Exception().getStackTrace());
+    }
+    Context currentParent = contextStore.putIfAbsent(task, context);
+    if (currentParent != context && log.isDebugEnabled()) {
+      log.debug(
+          "Failed to set parent context because another parent context is "
+              + "already set {}: new: {}, old: {}",
+          task,
+          context,
+          currentParent);
+    }
+    return task;
+  }
+
+  /**
+   * Returns and clears the parent context stored with {@link #setupParentContext(ContextStore,
+   * Object, Context)}, so that it is only taken once even if the task runs concurrently.
+   */
+  static <T> Context getAndResetParentContext(ContextStore<T, Context> contextStore, T task) {
+    while (true) {
+      Context parentContext = contextStore.get(task);
+      if (parentContext == null) {
+        return null;
+      }
+      if (!(contextStore instanceof AtomicContextStore)) {
+        contextStore.put(task, null);
+        return parentContext;
+      }
+      if (((AtomicContextStore) contextStore).compareAndSet(task, parentContext, null)) {
+        return parentContext;
+      }
+    }
+  }
+
   /**
    * Clean up after job submission method has exited.
    *
@@ -157,6 +253,7 @@ public class ExecutorInstrumentationUtils {
    * @param throwable throwable that may have been thrown
    */
   public static void cleanUpOnMethodExit(State state, Throwable throwable) {
+    ExecutorTaskMetrics.onSubmitExit();
     if (null != state && null != throwable) {
       /*
       Note: this may potentially clear somebody else's parent span if we didn't set it
@@ -169,4 +266,21 @@ public class ExecutorInstrumentationUtils {
       state.clearParentContext();
     }
   }
+
+  /**
+   * Clean up after job submission method has exited, for a task set up with {@link
+   * #setupParentContext(ContextStore, Object, Context)}.
+   *
+   * @param contextStore context storage
+   * @param task task instance, or null if it wasn't set up
+   * @param throwable throwable that may have been thrown
+   */
+  public static <T> void cleanUpOnMethodExit(
+      ContextStore<T, Context> contextStore, T task, Throwable throwable) {
+    ExecutorTaskMetrics.onSubmitExit();
+    if (null != task && null != throwable) {
+      // see the note in cleanUpOnMethodExit(State, Throwable)
+      getAndResetParentContext(contextStore, task);
+    }
+  }
 }
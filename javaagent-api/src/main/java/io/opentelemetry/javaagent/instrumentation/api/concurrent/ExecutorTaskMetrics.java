@@ -0,0 +1,227 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.api.concurrent;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.BoundDoubleValueRecorder;
+import io.opentelemetry.api.metrics.DoubleValueRecorder;
+import io.opentelemetry.api.metrics.GlobalMeterProvider;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.common.Labels;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.instrumentation.api.config.Config;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Records how long propagated tasks wait in the queue of an executor, from the moment they are
+ * submitted until they start running, and how long they run, as the {@code
+ * executor.task.queue_time} and {@code executor.task.run_time} histograms labeled by the class of
+ * the executor. Enabled with {@code otel.instrumentation.executors.experimental-task-metrics}; when
+ * {@code otel.instrumentation.executors.experimental-queue-time-span-events} is also enabled, the
+ * span which submitted a task gets an event with the queue time of the task when it starts.
+ *
+ * <p>The submit time travels with the parent context of the task, so only tasks that propagate a
+ * context are measured. It is recorded once per task, by whichever run of the task starts first:
+ * a task run by the submitting thread, e.g. by a caller-runs rejection policy, or stolen by another
+ * fork join worker is measured like any other.
+ */
+final class ExecutorTaskMetrics {
+
+  private static final boolean ENABLED =
+      Config.get()
+          .getBooleanProperty("otel.instrumentation.executors.experimental-task-metrics", false);
+  private static final boolean SPAN_EVENTS_ENABLED =
+      ENABLED
+          && Config.get()
+              .getBooleanProperty(
+                  "otel.instrumentation.executors.experimental-queue-time-span-events", false);
+
+  private static final double NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final String EXECUTOR = "executor";
+  private static final AttributeKey<String> EXECUTOR_KEY = AttributeKey.stringKey(EXECUTOR);
+  private static final AttributeKey<Double> QUEUE_TIME_KEY =
+      AttributeKey.doubleKey("executor.task.queue_time");
+
+  private static final ContextKey<TaskTiming> TASK_TIMING_KEY =
+      ContextKey.named("opentelemetry-executor-task-timing");
+
+  // replaces the timing of a running task in the context of the tasks it submits without naming an
+  // executor, so that they don't measure the running task again
+  private static final TaskTiming UNMEASURED = TaskTiming.started();
+
+  // the timing of the task being submitted on this thread, shared by the nested submissions of the
+  // same task, e.g. AbstractExecutorService.submit() passing a FutureTask to execute()
+  private static final ThreadLocal<TaskTiming> SUBMITTING = new ThreadLocal<>();
+
+  // executor classes are few, and binding the instruments once per class keeps the lookup off the
+  // submit path
+  private static final ClassValue<BoundInstruments> BOUND_INSTRUMENTS =
+      new ClassValue<BoundInstruments>() {
+        @Override
+        protected BoundInstruments computeValue(Class<?> executorClass) {
+          return Instruments.INSTANCE.bind(executorClass.getName());
+        }
+      };
+
+  private ExecutorTaskMetrics() {}
+
+  static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Returns {@code context} with the submit time of a task to {@code executor}, or {@code context}
+   * itself when task metrics are disabled. Submissions nested in the submission of the same task
+   * share its submit time, and are attributed to the innermost {@code executor}.
+   */
+  static Context onSubmit(Context context, Object executor) {
+    if (!ENABLED) {
+      return context;
+    }
+    if (executor == null) {
+      return context.get(TASK_TIMING_KEY) == null
+          ? context
+          : context.with(TASK_TIMING_KEY, UNMEASURED);
+    }
+    BoundInstruments instruments = BOUND_INSTRUMENTS.get(executor.getClass());
+    TaskTiming timing = SUBMITTING.get();
+    if (timing == null) {
+      timing = new TaskTiming(instruments, System.nanoTime());
+      SUBMITTING.set(timing);
+    } else {
+      // the task is queued by the innermost executor, the outer ones delegate to it
+      timing.instruments = instruments;
+    }
+    return context.with(TASK_TIMING_KEY, timing);
+  }
+
+  /** Ends the submission of a task started with {@link #onSubmit(Context, Object)}. */
+  static void onSubmitExit() {
+    if (ENABLED) {
+      SUBMITTING.remove();
+    }
+  }
+
+  /**
+   * Records the queue time of a task whose {@code parentContext} was made current in {@code scope}
+   * and returns a scope that records its run time when closed. Only the first run of the task is
+   * measured, the runs of the tasks it wraps, e.g. the runnable of a {@code FutureTask}, are part
+   * of it.
+   */
+  static Scope onStart(Context parentContext, Scope scope) {
+    if (!ENABLED) {
+      return scope;
+    }
+    TaskTiming timing = parentContext.get(TASK_TIMING_KEY);
+    if (timing == null || !timing.start()) {
+      return scope;
+    }
+    // a task run inline by the submitting thread may submit tasks of its own
+    SUBMITTING.remove();
+    long startNanos = System.nanoTime();
+    BoundInstruments instruments = timing.instruments;
+    double queueTime = (startNanos - timing.submitNanos) / NANOS_PER_MS;
+    instruments.queueTime.record(queueTime);
+    if (SPAN_EVENTS_ENABLED) {
+      Span.fromContext(parentContext)
+          .addEvent(
+              "executor task started",
+              Attributes.of(EXECUTOR_KEY, instruments.executor, QUEUE_TIME_KEY, queueTime));
+    }
+    return new RunTimeScope(scope, instruments.runTime, startNanos);
+  }
+
+  private static final class Instruments {
+    private static final Instruments INSTANCE = new Instruments();
+
+    private final DoubleValueRecorder queueTime;
+    private final DoubleValueRecorder runTime;
+
+    private Instruments() {
+      Meter meter = GlobalMeterProvider.getMeter("io.opentelemetry.javaagent.executors");
+      queueTime =
+          meter
+              .doubleValueRecorderBuilder("executor.task.queue_time")
+              .setUnit("milliseconds")
+              .setDescription("The time tasks wait in the queue of an executor before they run")
+              .build();
+      runTime =
+          meter
+              .doubleValueRecorderBuilder("executor.task.run_time")
+              .setUnit("milliseconds")
+              .setDescription("The time tasks submitted to an executor run")
+              .build();
+    }
+
+    private BoundInstruments bind(String executor) {
+      Labels labels = Labels.of(EXECUTOR, executor);
+      return new BoundInstruments(executor, queueTime.bind(labels), runTime.bind(labels));
+    }
+  }
+
+  private static final class BoundInstruments {
+    private final String executor;
+    private final BoundDoubleValueRecorder queueTime;
+    private final BoundDoubleValueRecorder runTime;
+
+    private BoundInstruments(
+        String executor, BoundDoubleValueRecorder queueTime, BoundDoubleValueRecorder runTime) {
+      this.executor = executor;
+      this.queueTime = queueTime;
+      this.runTime = runTime;
+    }
+  }
+
+  private static final class TaskTiming {
+    private static final AtomicIntegerFieldUpdater<TaskTiming> startedUpdater =
+        AtomicIntegerFieldUpdater.newUpdater(TaskTiming.class, "started");
+
+    // set by the submitting thread only, before the task is handed to the executor
+    private BoundInstruments instruments;
+    private final long submitNanos;
+    private volatile int started;
+
+    private TaskTiming(BoundInstruments instruments, long submitNanos) {
+      this.instruments = instruments;
+      this.submitNanos = submitNanos;
+    }
+
+    private static TaskTiming started() {
+      TaskTiming timing = new TaskTiming(null, 0);
+      timing.started = 1;
+      return timing;
+    }
+
+    /** Returns whether this is the first start of the task. */
+    private boolean start() {
+      return startedUpdater.compareAndSet(this, 0, 1);
+    }
+  }
+
+  private static final class RunTimeScope implements Scope {
+    private final Scope delegate;
+    private final BoundDoubleValueRecorder runTime;
+    private final long startNanos;
+
+    private RunTimeScope(Scope delegate, BoundDoubleValueRecorder runTime, long startNanos) {
+      this.delegate = delegate;
+      this.runTime = runTime;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public void close() {
+      runTime.record((System.nanoTime() - startNanos) / NANOS_PER_MS);
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.api.internal;
+
+import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
+
+/**
+ * Implemented by the {@link ContextStore}s generated by the agent, which can atomically replace the
+ * context of a key. This lets the executor instrumentations take the parent context of a task out
+ * of a {@code ContextStore<T, Context>} exactly once, without wrapping it in a separate {@code
+ * State} object.
+ *
+ * <p>This interface is internal and is not intended for use by instrumentations outside of the
+ * agent.
+ */
+public interface AtomicContextStore {
+
+  /**
+   * Replaces the context of {@code key} with {@code update} if it is {@code expected}, compared by
+   * identity. A {@code null} {@code update} removes the context.
+   *
+   * @return whether the context was replaced
+   */
+  boolean compareAndSet(Object key, Object expected, Object update);
+}
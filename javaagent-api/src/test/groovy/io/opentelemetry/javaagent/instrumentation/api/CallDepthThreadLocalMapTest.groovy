@@ -50,4 +50,41 @@ class CallDepthThreadLocalMapTest extends Specification {
     CallDepthThreadLocalMap.decrementCallDepth(k3) == 0
 
   }
+
+  def "slots are shared with class keys"() {
+    setup:
+    Class<?> k = Long
+    int slot = CallDepthThreadLocalMap.slotFor(k)
+
+    expect:
+    CallDepthThreadLocalMap.slotFor(k) == slot
+    CallDepthThreadLocalMap.slotFor(Short) != slot
+
+    CallDepthThreadLocalMap.incrementCallDepth(slot) == 0
+    CallDepthThreadLocalMap.incrementCallDepth(k) == 1
+    CallDepthThreadLocalMap.getCallDepth(k).get() == 2
+    CallDepthThreadLocalMap.getCallDepth(slot).getAndIncrement() == 2
+
+    when:
+    CallDepthThreadLocalMap.reset(k)
+
+    then:
+    CallDepthThreadLocalMap.getCallDepth(slot).get() == 0
+  }
+
+  def "call depths are per thread"() {
+    setup:
+    int slot = CallDepthThreadLocalMap.slotFor(Byte)
+    CallDepthThreadLocalMap.incrementCallDepth(slot)
+
+    when:
+    int depth = -1
+    Thread thread = new Thread({ depth = CallDepthThreadLocalMap.incrementCallDepth(slot) })
+    thread.start()
+    thread.join()
+
+    then:
+    depth == 0
+    CallDepthThreadLocalMap.decrementCallDepth(slot) == 0
+  }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.api.concurrent
+
+import io.opentelemetry.context.Context
+import io.opentelemetry.context.ContextKey
+import io.opentelemetry.javaagent.instrumentation.api.ContextStore
+import io.opentelemetry.javaagent.instrumentation.api.internal.AtomicContextStore
+import spock.lang.Specification
+
+class ParentContextTest extends Specification {
+  static final ContextKey<String> KEY = ContextKey.named("test")
+  static final Context PARENT = Context.root().with(KEY, "parent")
+  static final Context OTHER = Context.root().with(KEY, "other")
+
+  def "parent context is stored directly and taken once"() {
+    setup:
+    def contextStore = new TestContextStore()
+    def task = new Object()
+
+    when:
+    ExecutorInstrumentationUtils.setupParentContext(contextStore, task, PARENT)
+    ExecutorInstrumentationUtils.setupParentContext(contextStore, task, OTHER)
+
+    then:
+    contextStore.map.get(task).is(PARENT)
+
+    when:
+    def scope = AdviceUtils.startParentContextScope(contextStore, task)
+
+    then:
+    Context.current().is(PARENT)
+    contextStore.map.isEmpty()
+    AdviceUtils.startParentContextScope(contextStore, task) == null
+
+    cleanup:
+    scope?.close()
+  }
+
+  def "parent context is taken from a store that isn't atomic"() {
+    setup:
+    def contextStore = new TestContextStore()
+    // only implements ContextStore
+    def nonAtomicStore = [
+      get        : { key -> contextStore.get(key) },
+      put        : { key, context -> contextStore.put(key, context) },
+      putIfAbsent: { key, context -> contextStore.putIfAbsent(key, context) }
+    ] as ContextStore<Object, Context>
+    def task = new Object()
+    ExecutorInstrumentationUtils.setupParentContext(nonAtomicStore, task, PARENT)
+
+    expect:
+    ExecutorInstrumentationUtils.getAndResetParentContext(nonAtomicStore, task).is(PARENT)
+    ExecutorInstrumentationUtils.getAndResetParentContext(nonAtomicStore, task) == null
+  }
+
+  def "clean up clears the parent context only after a throwable"() {
+    setup:
+    def contextStore = new TestContextStore()
+    def task = new Object()
+    ExecutorInstrumentationUtils.setupParentContext(contextStore, task, PARENT)
+
+    when:
+    ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, null)
+
+    then:
+    contextStore.map.get(task).is(PARENT)
+
+    when:
+    ExecutorInstrumentationUtils.cleanUpOnMethodExit(contextStore, task, new Exception())
+
+    then:
+    contextStore.map.get(task) == null
+  }
+
+  static class TestContextStore implements ContextStore<Object, Context>, AtomicContextStore {
+    final Map<Object, Context> map = new IdentityHashMap<>()
+
+    @Override
+    synchronized Context get(Object key) {
+      return map.get(key)
+    }
+
+    @Override
+    synchronized void put(Object key, Context context) {
+      if (context == null) {
+        map.remove(key)
+      } else {
+        map.put(key, context)
+      }
+    }
+
+    @Override
+    synchronized Context putIfAbsent(Object key, Context context) {
+      return map.putIfAbsent(key, context) ?: context
+    }
+
+    @Override
+    synchronized Context putIfAbsent(Object key, ContextStore.Factory<Context> contextFactory) {
+      return map.computeIfAbsent(key, { contextFactory.create() })
+    }
+
+    @Override
+    synchronized boolean compareAndSet(Object key, Object expected, Object update) {
+      Context current = map.get(key)
+      if (current == null ? expected != null : !current.is(expected)) {
+        return false
+      }
+      put(key, (Context) update)
+      return true
+    }
+  }
+}
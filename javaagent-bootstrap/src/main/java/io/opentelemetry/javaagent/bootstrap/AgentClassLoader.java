@@ -60,6 +60,8 @@ public class AgentClassLoader extends URLClassLoader {
   private final BootstrapClassLoaderProxy bootstrapProxy;
 
   private final JarFile jarFile;
+  // null when the agent jar can't be indexed, entries are then looked up in jarFile
+  private final AgentJarIndex jarIndex;
   private final URL jarBase;
   private final String jarEntryPrefix;
   private final CodeSource codeSource;
@@ -89,8 +91,14 @@ public class AgentClassLoader extends URLClassLoader {
         internalJarFileName
             + (internalJarFileName.isEmpty() || internalJarFileName.endsWith("/") ? "" : "/");
     try {
+      File bootstrapJar = new File(bootstrapJarLocation.toURI());
       // open jar with verification disabled
-      jarFile = new JarFile(new File(bootstrapJarLocation.toURI()), false);
+      jarFile = new JarFile(bootstrapJar, false);
+      // classes are defined from the memory-mapped jar using an index built once here instead of
+      // going through JarFile lookups and inflater streams for every class
+      jarIndex =
+          AgentJarIndex.create(
+              bootstrapJar, jarEntryPrefix, MULTI_RELEASE_JAR_ENABLE ? JAVA_VERSION : 0);
       // base url for constructing jar entry urls
       // we use a custom protocol instead of typical jar:file: because we don't want to be affected
       // by user code disabling URLConnection caching for jar protocol e.g. tomcat does this
@@ -151,15 +159,13 @@ public class AgentClassLoader extends URLClassLoader {
 
   @Override
   protected Class<?> findClass(String name) throws ClassNotFoundException {
-    JarEntry jarEntry = findJarEntry(name.replace('.', '/') + ".class");
-    if (jarEntry != null) {
-      byte[] bytes;
-      try {
-        bytes = getJarEntryBytes(jarEntry);
-      } catch (IOException exception) {
-        throw new ClassNotFoundException(name, exception);
-      }
-
+    byte[] bytes;
+    try {
+      bytes = findClassBytes(name.replace('.', '/') + ".class");
+    } catch (IOException exception) {
+      throw new ClassNotFoundException(name, exception);
+    }
+    if (bytes != null) {
       definePackageIfNeeded(name);
       return defineClass(name, bytes, 0, bytes.length, codeSource);
     }
@@ -168,6 +174,14 @@ public class AgentClassLoader extends URLClassLoader {
     return super.findClass(name);
   }
 
+  private byte[] findClassBytes(String name) throws IOException {
+    if (jarIndex != null) {
+      return jarIndex.read(getEntryName(name));
+    }
+    JarEntry jarEntry = findJarEntry(name);
+    return jarEntry != null ? getJarEntryBytes(jarEntry) : null;
+  }
+
   private byte[] getJarEntryBytes(JarEntry jarEntry) throws IOException {
     int size = (int) jarEntry.getSize();
     byte[] buffer = new byte[size];
@@ -205,12 +219,7 @@ public class AgentClassLoader extends URLClassLoader {
   }
 
   private JarEntry findJarEntry(String name) {
-    // shading renames .class to .classdata
-    boolean isClass = name.endsWith(".class");
-    if (isClass) {
-      name += getClassSuffix();
-    }
-
+    name = getEntryName(name);
     JarEntry jarEntry = jarFile.getJarEntry(jarEntryPrefix + name);
     if (MULTI_RELEASE_JAR_ENABLE) {
       jarEntry = findVersionedJarEntry(jarEntry, name);
@@ -218,6 +227,15 @@ public class AgentClassLoader extends URLClassLoader {
     return jarEntry;
   }
 
+  private String getEntryName(String name) {
+    // shading renames .class to .classdata
+    boolean isClass = name.endsWith(".class");
+    if (isClass) {
+      name += getClassSuffix();
+    }
+    return name;
+  }
+
   // suffix appended to class resource names
   // this is in a protected method so that unit tests could override it
   protected String getClassSuffix() {
@@ -264,17 +282,23 @@ public class AgentClassLoader extends URLClassLoader {
   }
 
   private URL findJarResource(String name) {
+    if (jarIndex != null) {
+      return getJarEntryUrl(jarIndex.getEntryName(getEntryName(name)));
+    }
     JarEntry jarEntry = findJarEntry(name);
     return getJarEntryUrl(jarEntry);
   }
 
   private URL getJarEntryUrl(JarEntry jarEntry) {
-    if (jarEntry != null) {
+    return jarEntry != null ? getJarEntryUrl(jarEntry.getName()) : null;
+  }
+
+  private URL getJarEntryUrl(String jarEntryName) {
+    if (jarEntryName != null) {
       try {
-        return new URL(jarBase, jarEntry.getName());
+        return new URL(jarBase, jarEntryName);
       } catch (MalformedURLException e) {
-        throw new IllegalStateException(
-            "Failed to construct url for jar entry " + jarEntry.getName());
+        throw new IllegalStateException("Failed to construct url for jar entry " + jarEntryName);
       }
     }
 
@@ -33,6 +33,10 @@ public class AgentInitializer {
   private static synchronized void startAgent(Instrumentation inst, URL bootstrapUrl)
       throws Exception {
     if (AGENT_CLASSLOADER == null) {
+      // the bootstrap jar was already appended by OpenTelemetryAgent, everything else is measured
+      long startNanos = AgentStartupTimings.start();
+      AgentStartupTimings.writeReportOnShutdown();
+
       ClassLoader agentClassLoader = createAgentClassLoader("inst", bootstrapUrl);
       AGENT_CLASSLOADER = agentClassLoader;
 
@@ -47,6 +51,7 @@ public class AgentInitializer {
       } finally {
         Thread.currentThread().setContextClassLoader(savedContextClassLoader);
       }
+      AgentStartupTimings.record(AgentStartupTimings.PREMAIN, startNanos);
     }
   }
 
@@ -0,0 +1,253 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An index of the entries of the internal jar of the agent, read once from the central directory of
+ * the memory-mapped agent jar. Entries are looked up by their name relative to the internal jar,
+ * with the multi-release version that applies to the running JVM already resolved, and their
+ * contents are read directly from the mapped file.
+ */
+final class AgentJarIndex {
+
+  private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_FILE_HEADER_SIZE = 30;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_ZIP_COMMENT_SIZE = 0xFFFF;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+
+  private static final String META_INF = "META-INF/";
+  private static final String META_INF_VERSIONS = META_INF + "versions/";
+
+  private final MappedByteBuffer jar;
+  private final String jarEntryPrefix;
+  private final Map<String, Entry> entries;
+
+  /**
+   * Returns the index of the entries of {@code jarFile} whose names start with {@code
+   * jarEntryPrefix}, resolving multi-release entries up to {@code maxVersion} (0 disables
+   * multi-release resolution), or {@code null} if the jar can't be indexed, e.g. because it is a
+   * zip64 archive.
+   */
+  static AgentJarIndex create(File jarFile, String jarEntryPrefix, int maxVersion) {
+    try (FileChannel channel = FileChannel.open(jarFile.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        return null;
+      }
+      // the mapping stays valid after the channel is closed
+      MappedByteBuffer jar = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      jar.order(ByteOrder.LITTLE_ENDIAN);
+      Map<String, Entry> entries = readEntries(jar, jarEntryPrefix, maxVersion);
+      return entries == null ? null : new AgentJarIndex(jar, jarEntryPrefix, entries);
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private AgentJarIndex(MappedByteBuffer jar, String jarEntryPrefix, Map<String, Entry> entries) {
+    this.jar = jar;
+    this.jarEntryPrefix = jarEntryPrefix;
+    this.entries = entries;
+  }
+
+  private static Map<String, Entry> readEntries(
+      ByteBuffer jar, String jarEntryPrefix, int maxVersion) {
+    int endOfCentralDirectory = findEndOfCentralDirectory(jar);
+    if (endOfCentralDirectory < 0) {
+      return null;
+    }
+    int entryCount = jar.getShort(endOfCentralDirectory + 10) & 0xFFFF;
+    long centralDirectoryOffset = jar.getInt(endOfCentralDirectory + 16) & 0xFFFFFFFFL;
+    // 0xFFFF and 0xFFFFFFFF mark a zip64 archive
+    if (entryCount == 0xFFFF || centralDirectoryOffset == 0xFFFFFFFFL) {
+      return null;
+    }
+
+    Map<String, Entry> entries = new HashMap<>(entryCount * 4 / 3 + 1);
+    int position = (int) centralDirectoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if (jar.getInt(position) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+        return null;
+      }
+      int method = jar.getShort(position + 10) & 0xFFFF;
+      long compressedSize = jar.getInt(position + 20) & 0xFFFFFFFFL;
+      long size = jar.getInt(position + 24) & 0xFFFFFFFFL;
+      int nameLength = jar.getShort(position + 28) & 0xFFFF;
+      int extraLength = jar.getShort(position + 30) & 0xFFFF;
+      int commentLength = jar.getShort(position + 32) & 0xFFFF;
+      long localHeaderOffset = jar.getInt(position + 42) & 0xFFFFFFFFL;
+      if (compressedSize == 0xFFFFFFFFL
+          || size == 0xFFFFFFFFL
+          || localHeaderOffset == 0xFFFFFFFFL) {
+        return null;
+      }
+      String name = readName(jar, position + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+      position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+
+      if (!name.startsWith(jarEntryPrefix)) {
+        continue;
+      }
+      String relativeName = name.substring(jarEntryPrefix.length());
+      Entry entry = new Entry(0, method, (int) localHeaderOffset, (int) compressedSize, (int) size);
+      entries.putIfAbsent(relativeName, entry);
+
+      // same logic as in JarFile.getVersionedEntry: the highest version up to the current one
+      // replaces the unversioned entry
+      if (maxVersion > 0 && relativeName.startsWith(META_INF_VERSIONS)) {
+        int versionEnd = relativeName.indexOf('/', META_INF_VERSIONS.length());
+        if (versionEnd < 0) {
+          continue;
+        }
+        String versionString = relativeName.substring(META_INF_VERSIONS.length(), versionEnd);
+        int version;
+        try {
+          version = Integer.parseInt(versionString);
+        } catch (NumberFormatException e) {
+          continue;
+        }
+        String unversionedName = relativeName.substring(versionEnd + 1);
+        if (version < 9
+            || version > maxVersion
+            || unversionedName.isEmpty()
+            || unversionedName.startsWith(META_INF)) {
+          continue;
+        }
+        Entry existing = entries.get(unversionedName);
+        if (existing == null || existing.version < version) {
+          entries.put(unversionedName, entry.withVersion(version));
+        }
+      }
+    }
+    return entries;
+  }
+
+  private static int findEndOfCentralDirectory(ByteBuffer jar) {
+    int limit = jar.limit();
+    int searchStart = Math.max(0, limit - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_ZIP_COMMENT_SIZE);
+    for (int i = limit - END_OF_CENTRAL_DIRECTORY_SIZE; i >= searchStart; i--) {
+      if (jar.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String readName(ByteBuffer jar, int position, int length) {
+    byte[] name = new byte[length];
+    ByteBuffer view = jar.duplicate();
+    view.position(position);
+    view.get(name);
+    return new String(name, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the full name of the jar entry for {@code name}, which is relative to the internal jar,
+   * or {@code null} if there is no such entry.
+   */
+  String getEntryName(String name) {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.version == 0) {
+      return jarEntryPrefix + name;
+    }
+    return jarEntryPrefix + META_INF_VERSIONS + entry.version + "/" + name;
+  }
+
+  /**
+   * Returns the contents of the entry for {@code name}, which is relative to the internal jar, or
+   * {@code null} if there is no such entry.
+   */
+  byte[] read(String name) throws IOException {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+
+    // the header is read again because its extra field may differ from the central directory's
+    int localHeader = entry.localHeaderOffset;
+    if (jar.getInt(localHeader) != LOCAL_FILE_HEADER_SIGNATURE) {
+      throw new IOException("Invalid local file header for jar entry " + getEntryName(name));
+    }
+    int nameLength = jar.getShort(localHeader + 26) & 0xFFFF;
+    int extraLength = jar.getShort(localHeader + 28) & 0xFFFF;
+    int dataOffset = localHeader + LOCAL_FILE_HEADER_SIZE + nameLength + extraLength;
+
+    // absolute bulk gets were only added in java 13
+    ByteBuffer data = jar.duplicate();
+    data.position(dataOffset);
+    if (entry.method == STORED) {
+      byte[] bytes = new byte[entry.size];
+      data.get(bytes);
+      return bytes;
+    }
+    if (entry.method != DEFLATED) {
+      throw new IOException("Unsupported compression method for jar entry " + getEntryName(name));
+    }
+
+    byte[] compressed = new byte[entry.compressedSize];
+    data.get(compressed);
+    byte[] bytes = new byte[entry.size];
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      int offset = 0;
+      while (offset < bytes.length && !inflater.finished()) {
+        int inflated = inflater.inflate(bytes, offset, bytes.length - offset);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        offset += inflated;
+      }
+      if (offset != bytes.length) {
+        throw new IOException("Truncated jar entry " + getEntryName(name));
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt jar entry " + getEntryName(name), e);
+    } finally {
+      inflater.end();
+    }
+    return bytes;
+  }
+
+  private static final class Entry {
+    private final int version;
+    private final int method;
+    private final int localHeaderOffset;
+    private final int compressedSize;
+    private final int size;
+
+    private Entry(int version, int method, int localHeaderOffset, int compressedSize, int size) {
+      this.version = version;
+      this.method = method;
+      this.localHeaderOffset = localHeaderOffset;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+
+    private Entry withVersion(int version) {
+      return new Entry(version, method, localHeaderOffset, compressedSize, size);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long the phases of the agent startup take, for the startup benchmark in {@code
+ * benchmark-integration}. When {@code otel.javaagent.experimental.startup-timings.file} is set, the
+ * timings and the number of classes transformed by the agent are written to that file as java
+ * properties when the JVM shuts down. Durations are in microseconds. The number of transformed
+ * classes isn't limited to the startup: it counts every transformation until the report is written,
+ * including those triggered by the requests the application served and by its shutdown.
+ *
+ * <p>This class is loaded by the bootstrap class loader and does not use any logging, so it can be
+ * used from the first line of premain on.
+ */
+public final class AgentStartupTimings {
+
+  public static final String PREMAIN = "premain";
+  public static final String EXTENSION_LOADING = "extensionLoading";
+  public static final String OPENTELEMETRY_INSTALLER = "openTelemetryInstaller";
+  public static final String BYTEBUDDY_INSTALLATION = "byteBuddyInstallation";
+
+  private static final String CLASSES_TRANSFORMED = "classesTransformedUntilShutdown";
+
+  private static final String REPORT_FILE =
+      System.getProperty("otel.javaagent.experimental.startup-timings.file", "");
+
+  private static final Map<String, Long> durations = new ConcurrentHashMap<>();
+  private static final AtomicLong classesTransformed = new AtomicLong();
+
+  private AgentStartupTimings() {}
+
+  public static boolean isEnabled() {
+    return !REPORT_FILE.isEmpty();
+  }
+
+  /** Returns the start time to pass to {@link #record(String, long)}. */
+  public static long start() {
+    return System.nanoTime();
+  }
+
+  /** Adds the time since {@code startNanos} to the duration of {@code phase}. */
+  public static void record(String phase, long startNanos) {
+    if (isEnabled()) {
+      durations.merge(phase, System.nanoTime() - startNanos, Long::sum);
+    }
+  }
+
+  public static void classTransformed() {
+    classesTransformed.incrementAndGet();
+  }
+
+  static void writeReportOnShutdown() {
+    if (!isEnabled()) {
+      return;
+    }
+    Thread thread = new Thread(AgentStartupTimings::writeReport, "otel-javaagent-startup-timings");
+    Runtime.getRuntime().addShutdownHook(thread);
+  }
+
+  private static void writeReport() {
+    Properties report = new Properties();
+    for (Map.Entry<String, Long> entry : durations.entrySet()) {
+      report.setProperty(
+          entry.getKey(), String.valueOf(TimeUnit.NANOSECONDS.toMicros(entry.getValue())));
+    }
+    report.setProperty(CLASSES_TRANSFORMED, String.valueOf(classesTransformed.get()));
+    try (OutputStream out = new FileOutputStream(REPORT_FILE)) {
+      report.store(out, "OpenTelemetry javaagent startup timings in microseconds");
+    } catch (IOException e) {
+      // there's no logger this late, so just print
+      System.err.println("Unable to write startup timings to " + REPORT_FILE + ": " + e);
+    }
+  }
+}
@@ -8,6 +8,7 @@ package io.opentelemetry.javaagent.bootstrap
 import io.opentelemetry.sdk.internal.JavaVersionSpecific
 import java.lang.reflect.Field
 import java.util.concurrent.Phaser
+import java.util.jar.JarFile
 import spock.lang.Specification
 
 class AgentClassLoaderTest extends Specification {
@@ -83,4 +84,25 @@ class AgentClassLoaderTest extends Specification {
     // expect a versioned class on java 9+
     jdk8 != javaVersionSpecific.getClass().getName().endsWith("Java9VersionSpecific")
   }
+
+  def "jar index reads the same entries as jar file"() {
+    setup:
+    URL testJarLocation = JavaVersionSpecific.getProtectionDomain().getCodeSource().getLocation()
+    File testJar = new File(testJarLocation.toURI())
+    AgentJarIndex index = AgentJarIndex.create(testJar, "io/opentelemetry/", 0)
+    JarFile jarFile = new JarFile(testJar, false)
+
+    expect:
+    index != null
+    jarFile.entries().findAll { it.name.startsWith("io/opentelemetry/") }.every {
+      def relativeName = it.name.substring("io/opentelemetry/".length())
+      index.getEntryName(relativeName) == it.name &&
+        index.read(relativeName) == jarFile.getInputStream(it).bytes
+    }
+    index.getEntryName("missing/Missing.class") == null
+    index.read("missing/Missing.class") == null
+
+    cleanup:
+    jarFile?.close()
+  }
 }
@@ -6,15 +6,13 @@
 package io.opentelemetry.javaagent.tooling;
 
 import static io.opentelemetry.javaagent.bootstrap.AgentInitializer.isJavaBefore9;
-import static io.opentelemetry.javaagent.extension.matcher.NameMatchers.namedOneOf;
 import static io.opentelemetry.javaagent.tooling.Utils.getResourceName;
 import static io.opentelemetry.javaagent.tooling.matcher.GlobalIgnoresMatcher.globalIgnoresMatcher;
 import static net.bytebuddy.matcher.ElementMatchers.any;
-import static net.bytebuddy.matcher.ElementMatchers.nameStartsWith;
-import static net.bytebuddy.matcher.ElementMatchers.none;
 
 import io.opentelemetry.instrumentation.api.config.Config;
 import io.opentelemetry.javaagent.bootstrap.AgentClassLoader;
+import io.opentelemetry.javaagent.bootstrap.AgentStartupTimings;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.spi.AgentExtension;
 import io.opentelemetry.javaagent.instrumentation.api.SafeServiceLoader;
@@ -22,8 +20,10 @@ import io.opentelemetry.javaagent.instrumentation.api.internal.BootstrapPackageP
 import io.opentelemetry.javaagent.spi.BootstrapPackagesProvider;
 import io.opentelemetry.javaagent.spi.ComponentInstaller;
 import io.opentelemetry.javaagent.spi.IgnoreMatcherProvider;
+import io.opentelemetry.javaagent.tooling.bytebuddy.TransformedClassCache;
 import io.opentelemetry.javaagent.tooling.config.ConfigInitializer;
 import io.opentelemetry.javaagent.tooling.context.FieldBackedProvider;
+import io.opentelemetry.javaagent.tooling.instrumentation.InstrumentationCostTracker;
 import io.opentelemetry.javaagent.tooling.matcher.GlobalClassloaderIgnoresMatcher;
 import java.lang.instrument.Instrumentation;
 import java.lang.reflect.Proxy;
@@ -125,6 +125,14 @@ public class AgentInstaller {
     log.debug(
         "Ignore matcher provider {} will be used", ignoreMatcherProvider.getClass().getName());
 
+    ElementMatcher<ClassLoader> ignoredClassLoaders =
+        GlobalClassloaderIgnoresMatcher.skipClassLoader(ignoreMatcherProvider);
+    ElementMatcher<TypeDescription> ignoredTypes =
+        globalIgnoresMatcher(
+            config.getBooleanProperty(ADDITIONAL_LIBRARY_IGNORES_ENABLED, true),
+            ignoreMatcherProvider,
+            config.getListProperty(EXCLUDED_CLASSES_CONFIG));
+
     AgentBuilder.Ignored ignoredAgentBuilder =
         new AgentBuilder.Default()
             .disableClassFormatChanges()
@@ -132,20 +140,19 @@ public class AgentInstaller {
             .with(new RedefinitionDiscoveryStrategy())
             .with(AgentBuilder.DescriptionStrategy.Default.POOL_ONLY)
             .with(AgentTooling.poolStrategy())
-            .with(new ClassLoadListener())
+            // before the helper injection listener, which injects batched helpers
+            .with(InstrumentationCostTracker.listener())
+            .with(HelperInjectionService.listener())
             .with(AgentTooling.locationStrategy())
             // FIXME: we cannot enable it yet due to BB/JVM bug, see
             // https://github.com/raphw/byte-buddy/issues/558
             // .with(AgentBuilder.LambdaInstrumentationStrategy.ENABLED)
-            .ignore(any(), GlobalClassloaderIgnoresMatcher.skipClassLoader(ignoreMatcherProvider));
-
-    ignoredAgentBuilder =
-        ignoredAgentBuilder.or(
-            globalIgnoresMatcher(
-                config.getBooleanProperty(ADDITIONAL_LIBRARY_IGNORES_ENABLED, true),
-                ignoreMatcherProvider));
+            .ignore(any(), ignoredClassLoaders);
 
-    ignoredAgentBuilder = ignoredAgentBuilder.or(matchesConfiguredExcludes());
+    ignoredAgentBuilder = ignoredAgentBuilder.or(ignoredTypes);
+    if (TransformedClassCache.isEnabled()) {
+      ignoredAgentBuilder = ignoredAgentBuilder.or(TransformedClassCache.replayedClassMatcher());
+    }
 
     AgentBuilder agentBuilder = ignoredAgentBuilder;
     if (log.isDebugEnabled()) {
@@ -157,6 +164,7 @@ public class AgentInstaller {
               .with(new TransformLoggingListener());
     }
 
+    long extensionLoadingStartNanos = AgentStartupTimings.start();
     int numberOfLoadedExtensions = 0;
     for (AgentExtension agentExtension : loadAgentExtensions()) {
       log.debug(
@@ -175,8 +183,25 @@ public class AgentInstaller {
       }
     }
     log.debug("Installed {} extension(s)", numberOfLoadedExtensions);
+    AgentStartupTimings.record(AgentStartupTimings.EXTENSION_LOADING, extensionLoadingStartNanos);
+
+    // added after the extensions, which may install more transformers extending the agent builder
+    // they are given, e.g. for lazily installed instrumentations: those transformers must not run
+    // the class load callbacks or count the transformed classes again
+    agentBuilder = agentBuilder.with(new ClassLoadListener());
+    if (AgentStartupTimings.isEnabled()) {
+      agentBuilder = agentBuilder.with(new StartupTimingsListener());
+    }
 
+    long installationStartNanos = AgentStartupTimings.start();
+    // the cache transformers have to be registered around the ByteBuddy transformer
+    TransformedClassCache transformedClassCache =
+        TransformedClassCache.create(inst, ignoredTypes, ignoredClassLoaders);
     ResettableClassFileTransformer resettableClassFileTransformer = agentBuilder.installOn(inst);
+    if (transformedClassCache != null) {
+      transformedClassCache.activate();
+    }
+    AgentStartupTimings.record(AgentStartupTimings.BYTEBUDDY_INSTALLATION, installationStartNanos);
     installComponentsAfterByteBuddy(componentInstallers, config);
     return resettableClassFileTransformer;
   }
@@ -262,32 +287,6 @@ public class AgentInstaller {
     }
   }
 
-  private static ElementMatcher.Junction<Object> matchesConfiguredExcludes() {
-    List<String> excludedClasses = Config.get().getListProperty(EXCLUDED_CLASSES_CONFIG);
-    ElementMatcher.Junction matcher = none();
-    List<String> literals = new ArrayList<>();
-    List<String> prefixes = new ArrayList<>();
-    // first accumulate by operation because a lot of work can be aggregated
-    for (String excludedClass : excludedClasses) {
-      excludedClass = excludedClass.trim();
-      if (excludedClass.endsWith("*")) {
-        // remove the trailing *
-        prefixes.add(excludedClass.substring(0, excludedClass.length() - 1));
-      } else {
-        literals.add(excludedClass);
-      }
-    }
-    if (!literals.isEmpty()) {
-      matcher = matcher.or(namedOneOf(literals));
-    }
-    for (String prefix : prefixes) {
-      // TODO - with a prefix tree this matching logic can be handled by a
-      // single longest common prefix query
-      matcher = matcher.or(nameStartsWith(prefix));
-    }
-    return matcher;
-  }
-
   private static List<String> loadBootstrapPackagePrefixes() {
     List<String> bootstrapPackages =
         new ArrayList<>(Arrays.asList(Constants.BOOTSTRAP_PACKAGE_PREFIXES));
@@ -466,6 +465,18 @@ public class AgentInstaller {
     }
   }
 
+  private static class StartupTimingsListener extends AgentBuilder.Listener.Adapter {
+    @Override
+    public void onTransformation(
+        TypeDescription typeDescription,
+        ClassLoader classLoader,
+        JavaModule module,
+        boolean loaded,
+        DynamicType dynamicType) {
+      AgentStartupTimings.classTransformed();
+    }
+  }
+
   private static class RedefinitionDiscoveryStrategy
       implements AgentBuilder.RedefinitionStrategy.DiscoveryStrategy {
     private static final AgentBuilder.RedefinitionStrategy.DiscoveryStrategy delegate =
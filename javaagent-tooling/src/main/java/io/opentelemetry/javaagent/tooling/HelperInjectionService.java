@@ -0,0 +1,352 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import static io.opentelemetry.javaagent.extension.matcher.ClassLoaderMatcher.BOOTSTRAP_CLASSLOADER;
+
+import io.opentelemetry.instrumentation.api.caching.Cache;
+import io.opentelemetry.javaagent.tooling.instrumentation.InstrumentationCostTracker;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.security.SecureClassLoader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+import net.bytebuddy.utility.JavaModule;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Injects the helper classes of all {@link HelperInjector}s. Helper class bytes are read once per
+ * helper source class loader, and the helper classes and injectors that are already injected into
+ * a class loader are tracked in one place, so that helper classes shared by several
+ * instrumentation modules are injected only once.
+ *
+ * <p>When the {@link #listener()} is registered on the agent builder, injection is deferred until
+ * all transformers of a type have run: the helpers of every instrumentation module that applies to
+ * the type are then injected with a single {@link ClassInjector} call, before the transformed type
+ * is defined. Injection requested outside of a transformation happens immediately.
+ */
+final class HelperInjectionService {
+
+  private static final Logger log = LoggerFactory.getLogger(HelperInjectionService.class);
+
+  // Need this because we can't put null into the injectionStates map.
+  private static final ClassLoader BOOTSTRAP_CLASSLOADER_PLACEHOLDER =
+      new SecureClassLoader(null) {
+        @Override
+        public String toString() {
+          return "<bootstrap>";
+        }
+      };
+
+  private static final Cache<Class<?>, Boolean> injectedClasses =
+      Cache.newBuilder().setWeakKeys().build();
+
+  private static final Cache<ClassLoader, InjectionState> injectionStates =
+      Cache.newBuilder().setWeakKeys().build();
+
+  // helper source class loader -> helper class name -> bytes
+  private static final Cache<ClassLoader, ConcurrentMap<String, byte[]>> helperClassBytes =
+      Cache.newBuilder().setWeakKeys().build();
+
+  private static final ThreadLocal<Transformations> transformations =
+      ThreadLocal.withInitial(Transformations::new);
+
+  private static final AgentBuilder.Listener LISTENER = new BatchingListener();
+
+  /**
+   * Returns the listener that brackets every transformation, so that the helpers requested while
+   * a type is transformed are injected in one batch.
+   */
+  static AgentBuilder.Listener listener() {
+    return LISTENER;
+  }
+
+  static boolean isInjectedClass(Class<?> c) {
+    return Boolean.TRUE.equals(injectedClasses.get(c));
+  }
+
+  /** Returns the bytes of the helper class {@code className} loaded from {@code helpersSource}. */
+  static byte[] helperClassBytes(ClassLoader helpersSource, String className) throws IOException {
+    ConcurrentMap<String, byte[]> classBytes =
+        helperClassBytes.computeIfAbsent(helpersSource, source -> new ConcurrentHashMap<>());
+    byte[] bytes = classBytes.get(className);
+    if (bytes == null) {
+      bytes = ClassFileLocator.ForClassLoader.of(helpersSource).locate(className).resolve();
+      classBytes.put(className, bytes);
+    }
+    return bytes;
+  }
+
+  /**
+   * Injects the helper classes of {@code injector} into {@code classLoader}, or, if {@code
+   * typeName} is being transformed on this thread, when its transformation completes.
+   */
+  static void inject(
+      HelperInjector injector, String typeName, ClassLoader classLoader, JavaModule module) {
+    if (isInjected(injector, classLoader)) {
+      injector.ensureModuleCanReadHelperModules(module);
+      return;
+    }
+    Transformations threadTransformations = transformations.get();
+    if (threadTransformations.depth == 0) {
+      injectNow(injector, typeName, classLoader, module);
+    } else {
+      threadTransformations.pendingBatch(typeName, classLoader, module).injectors.add(injector);
+    }
+  }
+
+  /** Injects the helper classes of {@code injector} into {@code classLoader} immediately. */
+  static void injectNow(
+      HelperInjector injector, String typeName, ClassLoader classLoader, JavaModule module) {
+    Batch batch = new Batch(0, typeName, classLoader, module);
+    batch.injectors.add(injector);
+    batch.inject();
+  }
+
+  private static boolean isInjected(HelperInjector injector, ClassLoader classLoader) {
+    InjectionState state = injectionStates.get(placeholderFor(classLoader));
+    return state != null && state.injectors.contains(injector);
+  }
+
+  private static ClassLoader placeholderFor(ClassLoader classLoader) {
+    return classLoader == BOOTSTRAP_CLASSLOADER ? BOOTSTRAP_CLASSLOADER_PLACEHOLDER : classLoader;
+  }
+
+  /** The helper classes and injectors that have been injected into a class loader. */
+  private static final class InjectionState {
+    private final Set<HelperInjector> injectors = ConcurrentHashMap.newKeySet();
+    // guarded by this
+    private final Set<String> helperClassNames = new HashSet<>();
+    // guarded by this; the unnamed module of the class loader, which all helper classes are in
+    @Nullable private WeakReference<Object> helperModule;
+  }
+
+  /** The helper injections requested by the transformers of a single type. */
+  private static final class Batch {
+    private final int depth;
+    private final String typeName;
+    private final ClassLoader classLoader;
+    private final JavaModule module;
+    private final List<HelperInjector> injectors = new ArrayList<>();
+
+    private Batch(int depth, String typeName, ClassLoader classLoader, JavaModule module) {
+      this.depth = depth;
+      this.typeName = typeName;
+      this.classLoader = classLoader;
+      this.module = module;
+    }
+
+    private void inject() {
+      ClassLoader cl = placeholderFor(classLoader);
+      InjectionState state = injectionStates.computeIfAbsent(cl, k -> new InjectionState());
+      synchronized (state) {
+        List<HelperInjector> pending = new ArrayList<>(injectors.size());
+        for (HelperInjector injector : injectors) {
+          if (!state.injectors.contains(injector) && !pending.contains(injector)) {
+            pending.add(injector);
+          }
+        }
+        if (!pending.isEmpty()) {
+          long start = System.nanoTime();
+          try {
+            injectPending(cl, state, pending);
+          } finally {
+            recordCost(pending, System.nanoTime() - start);
+          }
+        }
+      }
+
+      for (HelperInjector injector : injectors) {
+        injector.ensureModuleCanReadHelperModules(module);
+      }
+    }
+
+    private void injectPending(ClassLoader cl, InjectionState state, List<HelperInjector> pending) {
+      try {
+        // classes are injected in the order of the injectors, and of the helpers of each injector
+        Map<String, byte[]> classnameToBytes = new LinkedHashMap<>();
+        for (HelperInjector injector : pending) {
+          for (String helperClassName : injector.getHelperClassNames()) {
+            if (!state.helperClassNames.contains(helperClassName)
+                && !classnameToBytes.containsKey(helperClassName)) {
+              classnameToBytes.put(helperClassName, injector.getHelperClassBytes(helperClassName));
+            }
+          }
+        }
+
+        if (!classnameToBytes.isEmpty()) {
+          log.debug("Injecting classes onto classloader {} -> {}", cl, classnameToBytes.keySet());
+
+          Map<String, Class<?>> classes;
+          if (cl == BOOTSTRAP_CLASSLOADER_PLACEHOLDER) {
+            classes = injectBootstrapClassLoader(classnameToBytes);
+          } else {
+            classes = new ClassInjector.UsingReflection(cl).injectRaw(classnameToBytes);
+          }
+
+          classes.values().forEach(c -> injectedClasses.put(c, Boolean.TRUE));
+          state.helperClassNames.addAll(classnameToBytes.keySet());
+
+          // All agent helper classes are in the unnamed module
+          // And there's exactly one unnamed module per classloader
+          // Use the module of the first class for convenience
+          if (JavaModule.isSupported() && state.helperModule == null) {
+            JavaModule javaModule = JavaModule.ofType(classes.values().iterator().next());
+            state.helperModule = new WeakReference<>(javaModule.unwrap());
+          }
+        }
+
+        Object helperModule = state.helperModule == null ? null : state.helperModule.get();
+        for (HelperInjector injector : pending) {
+          if (helperModule != null) {
+            injector.addHelperModule(helperModule);
+          }
+          state.injectors.add(injector);
+        }
+      } catch (Exception e) {
+        if (log.isErrorEnabled()) {
+          List<String> requestingNames = new ArrayList<>(pending.size());
+          for (HelperInjector injector : pending) {
+            requestingNames.add(injector.getRequestingName());
+          }
+          log.error(
+              "Error preparing helpers while processing {} for {}. Failed to inject helper classes into instance {}",
+              typeName,
+              requestingNames,
+              cl,
+              e);
+        }
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private static void recordCost(List<HelperInjector> injectors, long nanos) {
+    if (InstrumentationCostTracker.isEnabled()) {
+      // the helper injectors of instrumentation modules are named after them
+      for (HelperInjector injector : injectors) {
+        InstrumentationCostTracker.record(
+            injector.getRequestingName(),
+            InstrumentationCostTracker.Phase.HELPER_INJECTION,
+            nanos / injectors.size());
+      }
+    }
+  }
+
+  private static Map<String, Class<?>> injectBootstrapClassLoader(
+      Map<String, byte[]> classnameToBytes) throws IOException {
+    // Mar 2020: Since we're proactively cleaning up tempDirs, we cannot share dirs per thread.
+    // If this proves expensive, we could do a per-process tempDir with
+    // a reference count -- but for now, starting simple.
+
+    // Failures to create a tempDir are propagated as IOException and handled by transform
+    File tempDir = createTempDir();
+    try {
+      return ClassInjector.UsingInstrumentation.of(
+              tempDir,
+              ClassInjector.UsingInstrumentation.Target.BOOTSTRAP,
+              AgentInstaller.getInstrumentation())
+          .injectRaw(classnameToBytes);
+    } finally {
+      // Delete fails silently
+      deleteTempDir(tempDir);
+    }
+  }
+
+  private static File createTempDir() throws IOException {
+    return Files.createTempDirectory("opentelemetry-temp-jars").toFile();
+  }
+
+  private static void deleteTempDir(File file) {
+    // Not using Files.delete for deleting the directory because failures
+    // create Exceptions which may prove expensive.  Instead using the
+    // older File API which simply returns a boolean.
+    boolean deleted = file.delete();
+    if (!deleted) {
+      file.deleteOnExit();
+    }
+  }
+
+  /**
+   * The transformations that are in progress on a thread. Transformations nest when a class is
+   * loaded while another one is transformed, so every batch remembers the transformation it belongs
+   * to.
+   */
+  private static final class Transformations {
+    private int depth;
+    private final List<Batch> pendingBatches = new ArrayList<>(1);
+
+    private Batch pendingBatch(String typeName, ClassLoader classLoader, JavaModule module) {
+      for (Batch batch : pendingBatches) {
+        if (batch.depth == depth) {
+          return batch;
+        }
+      }
+      Batch batch = new Batch(depth, typeName, classLoader, module);
+      pendingBatches.add(batch);
+      return batch;
+    }
+
+    @Nullable
+    private Batch removePendingBatch() {
+      for (int i = pendingBatches.size() - 1; i >= 0; i--) {
+        if (pendingBatches.get(i).depth == depth) {
+          return pendingBatches.remove(i);
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final class BatchingListener extends AgentBuilder.Listener.Adapter {
+    @Override
+    public void onDiscovery(
+        String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+      transformations.get().depth++;
+    }
+
+    @Override
+    public void onTransformation(
+        TypeDescription typeDescription,
+        ClassLoader classLoader,
+        JavaModule module,
+        boolean loaded,
+        DynamicType dynamicType) {
+      Batch batch = transformations.get().removePendingBatch();
+      if (batch != null) {
+        // an exception fails the transformation, so that the transformed type, which may refer to
+        // the helper classes, is not defined without them
+        batch.inject();
+      }
+    }
+
+    @Override
+    public void onComplete(
+        String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+      Transformations threadTransformations = transformations.get();
+      // the transformation failed if its helpers are still pending
+      threadTransformations.removePendingBatch();
+      threadTransformations.depth--;
+    }
+  }
+
+  private HelperInjectionService() {}
+}
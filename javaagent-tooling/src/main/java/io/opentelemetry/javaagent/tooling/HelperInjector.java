@@ -7,14 +7,11 @@ package io.opentelemetry.javaagent.tooling;
 
 import static io.opentelemetry.javaagent.extension.matcher.ClassLoaderMatcher.BOOTSTRAP_CLASSLOADER;
 
-import io.opentelemetry.instrumentation.api.caching.Cache;
 import io.opentelemetry.javaagent.bootstrap.HelperResources;
-import java.io.File;
+import io.opentelemetry.javaagent.tooling.bytebuddy.TransformedClassCache;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.net.URL;
-import java.nio.file.Files;
-import java.security.SecureClassLoader;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -26,9 +23,7 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import net.bytebuddy.agent.builder.AgentBuilder.Transformer;
 import net.bytebuddy.description.type.TypeDescription;
-import net.bytebuddy.dynamic.ClassFileLocator;
 import net.bytebuddy.dynamic.DynamicType;
-import net.bytebuddy.dynamic.loading.ClassInjector;
 import net.bytebuddy.utility.JavaModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,18 +33,6 @@ public class HelperInjector implements Transformer {
 
   private static final Logger log = LoggerFactory.getLogger(HelperInjector.class);
 
-  // Need this because we can't put null into the injectedClassLoaders map.
-  private static final ClassLoader BOOTSTRAP_CLASSLOADER_PLACEHOLDER =
-      new SecureClassLoader(null) {
-        @Override
-        public String toString() {
-          return "<bootstrap>";
-        }
-      };
-
-  private static final Cache<Class<?>, Boolean> injectedClasses =
-      Cache.newBuilder().setWeakKeys().build();
-
   private final String requestingName;
 
   private final Set<String> helperClassNames;
@@ -57,11 +40,11 @@ public class HelperInjector implements Transformer {
   private final ClassLoader helpersSource;
   private final Map<String, byte[]> dynamicTypeMap = new LinkedHashMap<>();
 
-  private final Cache<ClassLoader, Boolean> injectedClassLoaders =
-      Cache.newBuilder().setWeakKeys().build();
-
   private final List<WeakReference<Object>> helperModules = new CopyOnWriteArrayList<>();
 
+  // the id under which helper injection is replayed for classes read from TransformedClassCache
+  private final int replayableId;
+
   /**
    * Construct HelperInjector.
    *
@@ -83,6 +66,7 @@ public class HelperInjector implements Transformer {
     this.helperClassNames = new LinkedHashSet<>(helperClassNames);
     this.helperResourceNames = new LinkedHashSet<>(helperResourceNames);
     this.helpersSource = helpersSource;
+    this.replayableId = TransformedClassCache.register(this::replay, "helpers:" + requestingName);
   }
 
   public HelperInjector(String requestingName, Map<String, byte[]> helperMap) {
@@ -93,6 +77,7 @@ public class HelperInjector implements Transformer {
 
     this.helperResourceNames = Collections.emptySet();
     this.helpersSource = null;
+    this.replayableId = TransformedClassCache.register(this::replay, "helpers:" + requestingName);
   }
 
   public static HelperInjector forDynamicTypes(
@@ -104,21 +89,24 @@ public class HelperInjector implements Transformer {
     return new HelperInjector(requestingName, bytes);
   }
 
-  private Map<String, byte[]> getHelperMap() throws IOException {
-    if (dynamicTypeMap.isEmpty()) {
-      Map<String, byte[]> classnameToBytes = new LinkedHashMap<>();
-
-      ClassFileLocator locator = ClassFileLocator.ForClassLoader.of(helpersSource);
+  String getRequestingName() {
+    return requestingName;
+  }
 
-      for (String helperClassName : helperClassNames) {
-        byte[] classBytes = locator.locate(helperClassName).resolve();
-        classnameToBytes.put(helperClassName, classBytes);
-      }
+  Set<String> getHelperClassNames() {
+    return helperClassNames;
+  }
 
-      return classnameToBytes;
-    } else {
-      return dynamicTypeMap;
+  byte[] getHelperClassBytes(String helperClassName) throws IOException {
+    if (dynamicTypeMap.isEmpty()) {
+      // shared with the other injectors, which often use the same helper classes
+      return HelperInjectionService.helperClassBytes(helpersSource, helperClassName);
     }
+    return dynamicTypeMap.get(helperClassName);
+  }
+
+  void addHelperModule(Object helperModule) {
+    helperModules.add(new WeakReference<>(helperModule));
   }
 
   @Override
@@ -127,51 +115,36 @@ public class HelperInjector implements Transformer {
       TypeDescription typeDescription,
       ClassLoader classLoader,
       JavaModule module) {
+    if (module != null && module.isNamed()) {
+      // replaying the injection could not add the module reads
+      TransformedClassCache.recordUncacheable();
+    } else {
+      TransformedClassCache.record(replayableId, classLoader == BOOTSTRAP_CLASSLOADER);
+    }
     if (!helperClassNames.isEmpty()) {
-      if (classLoader == BOOTSTRAP_CLASSLOADER) {
-        classLoader = BOOTSTRAP_CLASSLOADER_PLACEHOLDER;
-      }
+      HelperInjectionService.inject(this, typeDescription.getName(), classLoader, module);
+    }
+    injectResources(classLoader);
+    return builder;
+  }
 
-      injectedClassLoaders.computeIfAbsent(
-          classLoader,
-          cl -> {
-            try {
-              log.debug("Injecting classes onto classloader {} -> {}", cl, helperClassNames);
-
-              Map<String, byte[]> classnameToBytes = getHelperMap();
-              Map<String, Class<?>> classes;
-              if (cl == BOOTSTRAP_CLASSLOADER_PLACEHOLDER) {
-                classes = injectBootstrapClassLoader(classnameToBytes);
-              } else {
-                classes = injectClassLoader(cl, classnameToBytes);
-              }
-
-              classes.values().forEach(c -> injectedClasses.put(c, Boolean.TRUE));
-
-              // All agent helper classes are in the unnamed module
-              // And there's exactly one unnamed module per classloader
-              // Use the module of the first class for convenience
-              if (JavaModule.isSupported()) {
-                JavaModule javaModule = JavaModule.ofType(classes.values().iterator().next());
-                helperModules.add(new WeakReference<>(javaModule.unwrap()));
-              }
-            } catch (Exception e) {
-              if (log.isErrorEnabled()) {
-                log.error(
-                    "Error preparing helpers while processing {} for {}. Failed to inject helper classes into instance {}",
-                    typeDescription,
-                    requestingName,
-                    cl,
-                    e);
-              }
-              throw new RuntimeException(e);
-            }
-            return true;
-          });
-
-      ensureModuleCanReadHelperModules(module);
+  private boolean replay(String typeName, ClassLoader classLoader, boolean bootstrap) {
+    try {
+      if (bootstrap) {
+        classLoader = BOOTSTRAP_CLASSLOADER;
+      }
+      // replayed outside of the transformation of the type, so the helpers can't be batched
+      if (!helperClassNames.isEmpty()) {
+        HelperInjectionService.injectNow(this, typeName, classLoader, JavaModule.UNSUPPORTED);
+      }
+      injectResources(classLoader);
+      return true;
+    } catch (RuntimeException e) {
+      return false;
     }
+  }
 
+  private void injectResources(ClassLoader classLoader) {
     if (!helperResourceNames.isEmpty()) {
       for (String resourceName : helperResourceNames) {
         URL resource = helpersSource.getResource(resourceName);
@@ -184,36 +157,9 @@ public class HelperInjector implements Transformer {
         HelperResources.register(classLoader, resourceName, resource);
       }
     }
-
-    return builder;
   }
 
-  private Map<String, Class<?>> injectBootstrapClassLoader(Map<String, byte[]> classnameToBytes)
-      throws IOException {
-    // Mar 2020: Since we're proactively cleaning up tempDirs, we cannot share dirs per thread.
-    // If this proves expensive, we could do a per-process tempDir with
-    // a reference count -- but for now, starting simple.
-
-    // Failures to create a tempDir are propagated as IOException and handled by transform
-    File tempDir = createTempDir();
-    try {
-      return ClassInjector.UsingInstrumentation.of(
-              tempDir,
-              ClassInjector.UsingInstrumentation.Target.BOOTSTRAP,
-              AgentInstaller.getInstrumentation())
-          .injectRaw(classnameToBytes);
-    } finally {
-      // Delete fails silently
-      deleteTempDir(tempDir);
-    }
-  }
-
-  private Map<String, Class<?>> injectClassLoader(
-      ClassLoader classLoader, Map<String, byte[]> classnameToBytes) {
-    return new ClassInjector.UsingReflection(classLoader).injectRaw(classnameToBytes);
-  }
-
-  private void ensureModuleCanReadHelperModules(JavaModule target) {
+  void ensureModuleCanReadHelperModules(JavaModule target) {
     if (JavaModule.isSupported() && target != JavaModule.UNSUPPORTED && target.isNamed()) {
       for (WeakReference<Object> helperModuleReference : helperModules) {
         Object realModule = helperModuleReference.get();
@@ -235,21 +181,7 @@ public class HelperInjector implements Transformer {
     }
   }
 
-  private static File createTempDir() throws IOException {
-    return Files.createTempDirectory("opentelemetry-temp-jars").toFile();
-  }
-
-  private static void deleteTempDir(File file) {
-    // Not using Files.delete for deleting the directory because failures
-    // create Exceptions which may prove expensive.  Instead using the
-    // older File API which simply returns a boolean.
-    boolean deleted = file.delete();
-    if (!deleted) {
-      file.deleteOnExit();
-    }
-  }
-
   public static boolean isInjectedClass(Class<?> c) {
-    return Boolean.TRUE.equals(injectedClasses.get(c));
+    return HelperInjectionService.isInjectedClass(c);
   }
 }
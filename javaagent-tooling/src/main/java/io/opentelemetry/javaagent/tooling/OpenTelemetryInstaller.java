@@ -8,6 +8,8 @@ package io.opentelemetry.javaagent.tooling;
 import com.google.auto.service.AutoService;
 import io.opentelemetry.instrumentation.api.config.Config;
 import io.opentelemetry.instrumentation.api.config.ConfigBuilder;
+import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
+import io.opentelemetry.javaagent.bootstrap.AgentStartupTimings;
 import io.opentelemetry.javaagent.instrumentation.api.OpenTelemetrySdkAccess;
 import io.opentelemetry.javaagent.spi.ComponentInstaller;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
@@ -24,7 +26,9 @@ public class OpenTelemetryInstaller implements ComponentInstaller {
 
   @Override
   public void beforeByteBuddyAgent(Config config) {
+    long startNanos = AgentStartupTimings.start();
     installAgentTracer(config);
+    AgentStartupTimings.record(AgentStartupTimings.OPENTELEMETRY_INSTALLER, startNanos);
   }
 
   /**
@@ -40,6 +44,8 @@ public class OpenTelemetryInstaller implements ComponentInstaller {
       OpenTelemetrySdk sdk = OpenTelemetrySdkAutoConfiguration.initialize();
       OpenTelemetrySdkAccess.internalSetForceFlush(
           (timeout, unit) -> sdk.getSdkTracerProvider().forceFlush().join(timeout, unit));
+      // the global meter provider is set by the SDK autoconfiguration
+      SupportabilityMetrics.instance().registerObservers();
     } else {
       log.info("Tracing is disabled.");
     }
@@ -11,6 +11,10 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import java.lang.ref.WeakReference;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import net.bytebuddy.description.annotation.AnnotationList;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.method.MethodList;
@@ -18,6 +22,8 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.description.type.TypeList;
 import net.bytebuddy.dynamic.ClassFileLocator;
 import net.bytebuddy.pool.TypePool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * NEW (Jan 2020) Custom Pool strategy.
@@ -41,6 +47,17 @@ import net.bytebuddy.pool.TypePool;
  *
  * <p>Eviction is handled almost entirely through a size restriction; however, softValues are still
  * used as a further safeguard.
+ *
+ * <p>The size of the shared cache adapts to the observed hit rate: it starts at {@link
+ * #STARTUP_TYPE_CAPACITY}, which fits the burst of class loading during application startup, is
+ * doubled (up to {@link #MAX_TYPE_CAPACITY}) whenever the hit rate of the last {@link
+ * #RESIZE_WINDOW} misses drops below {@link #GROW_BELOW_HIT_RATE}, and is halved (down to {@link
+ * #TYPE_CAPACITY}) once nearly every lookup hits. Types that are resolved over and over again
+ * through the bootstrap type pool, i.e. while matching classes of the bootstrap class loader, are
+ * pinned in a separate map that is never evicted. Lookups through the type pool of any other class
+ * loader are keyed by that class loader, even for JDK types like {@code java.lang.Runnable}, and
+ * are never pinned, because their resolutions keep the class loader reachable. {@code
+ * java.lang.Object} is resolved without a lookup and isn't counted in the {@link Stats}.
  */
 public class AgentCachingPoolStrategy implements PoolStrategy {
 
@@ -50,6 +67,15 @@ public class AgentCachingPoolStrategy implements PoolStrategy {
   static final int CONCURRENCY_LEVEL = 8;
   static final int LOADER_CAPACITY = 64;
   static final int TYPE_CAPACITY = 64;
+  static final int STARTUP_TYPE_CAPACITY = 512;
+  static final int MAX_TYPE_CAPACITY = 4096;
+  static final int RESIZE_WINDOW = 1024;
+  static final double GROW_BELOW_HIT_RATE = 0.9;
+  static final double SHRINK_ABOVE_HIT_RATE = 0.99;
+  static final int PIN_THRESHOLD = 4;
+  static final int MAX_PINNED_TYPES = 1024;
+
+  private static final Logger log = LoggerFactory.getLogger(AgentCachingPoolStrategy.class);
 
   static final int BOOTSTRAP_HASH = 7236344; // Just a random number
 
@@ -72,17 +98,34 @@ public class AgentCachingPoolStrategy implements PoolStrategy {
   /**
    * Single shared Type.Resolution cache -- uses a composite key -- conceptually of loader & name
    */
-  final Cache<TypeCacheKey, TypePool.Resolution> sharedResolutionCache =
-      CacheBuilder.newBuilder()
-          .softValues()
-          .concurrencyLevel(CONCURRENCY_LEVEL)
-          .initialCapacity(TYPE_CAPACITY)
-          .maximumSize(TYPE_CAPACITY)
-          .build();
+  volatile Cache<TypeCacheKey, TypePool.Resolution> sharedResolutionCache =
+      newSharedResolutionCache(STARTUP_TYPE_CAPACITY);
+
+  private volatile int typeCapacity = STARTUP_TYPE_CAPACITY;
+
+  /** Frequently resolved bootstrap types, keyed by class name; never evicted. */
+  final ConcurrentMap<String, TypePool.Resolution> pinnedBootstrapResolutions =
+      new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder pinnedHits = new LongAdder();
+  private final AtomicInteger windowMisses = new AtomicInteger();
+  // only accessed under the resize lock
+  private long windowStartHits;
 
   // fast path for bootstrap
   final SharedResolutionCacheAdapter bootstrapCacheProvider =
-      new SharedResolutionCacheAdapter(BOOTSTRAP_HASH, null, sharedResolutionCache);
+      new SharedResolutionCacheAdapter(BOOTSTRAP_HASH, null, this);
+
+  private static Cache<TypeCacheKey, TypePool.Resolution> newSharedResolutionCache(int capacity) {
+    return CacheBuilder.newBuilder()
+        .softValues()
+        .concurrencyLevel(CONCURRENCY_LEVEL)
+        .initialCapacity(Math.min(capacity, STARTUP_TYPE_CAPACITY))
+        .maximumSize(capacity)
+        .build();
+  }
 
   @Override
   public final TypePool typePool(ClassFileLocator classFileLocator, ClassLoader classLoader) {
@@ -103,7 +146,7 @@ public class AgentCachingPoolStrategy implements PoolStrategy {
 
   private TypePool.CacheProvider createCacheProvider(
       int loaderHash, WeakReference<ClassLoader> loaderRef) {
-    return new SharedResolutionCacheAdapter(loaderHash, loaderRef, sharedResolutionCache);
+    return new SharedResolutionCacheAdapter(loaderHash, loaderRef, this);
   }
 
   private TypePool createCachingTypePool(
@@ -124,6 +167,117 @@ public class AgentCachingPoolStrategy implements PoolStrategy {
     return sharedResolutionCache.size();
   }
 
+  /** Returns the hit and miss counts of the type cache, and its current capacity. */
+  public Stats stats() {
+    return new Stats(
+        hits.sum(),
+        pinnedHits.sum(),
+        misses.sum(),
+        typeCapacity,
+        pinnedBootstrapResolutions.size());
+  }
+
+  private void recordMiss() {
+    misses.increment();
+    if (windowMisses.incrementAndGet() >= RESIZE_WINDOW) {
+      adaptCapacity();
+    }
+  }
+
+  private synchronized void adaptCapacity() {
+    // another thread may have adapted the capacity already
+    if (windowMisses.get() < RESIZE_WINDOW) {
+      return;
+    }
+    int windowMissCount = windowMisses.getAndSet(0);
+    long totalHits = hits.sum() + pinnedHits.sum();
+    long windowHitCount = totalHits - windowStartHits;
+    windowStartHits = totalHits;
+
+    double hitRate = (double) windowHitCount / (windowHitCount + windowMissCount);
+    int newCapacity = typeCapacity;
+    if (hitRate < GROW_BELOW_HIT_RATE) {
+      newCapacity = Math.min(typeCapacity * 2, MAX_TYPE_CAPACITY);
+    } else if (hitRate > SHRINK_ABOVE_HIT_RATE) {
+      newCapacity = Math.max(typeCapacity / 2, TYPE_CAPACITY);
+    }
+    if (newCapacity == typeCapacity) {
+      return;
+    }
+
+    log.debug(
+        "Resizing type cache from {} to {} entries, hit rate {}",
+        typeCapacity,
+        newCapacity,
+        hitRate);
+    Cache<TypeCacheKey, TypePool.Resolution> oldCache = sharedResolutionCache;
+    Cache<TypeCacheKey, TypePool.Resolution> newCache = newSharedResolutionCache(newCapacity);
+    // swap before copying, so that types registered meanwhile go to the new cache; the old entries
+    // don't replace them, and when shrinking the new cache evicts the surplus entries
+    sharedResolutionCache = newCache;
+    typeCapacity = newCapacity;
+    ConcurrentMap<TypeCacheKey, TypePool.Resolution> newEntries = newCache.asMap();
+    oldCache.asMap().forEach(newEntries::putIfAbsent);
+  }
+
+  /** A snapshot of the statistics of the type cache. */
+  public static final class Stats {
+    private final long hitCount;
+    private final long pinnedHitCount;
+    private final long missCount;
+    private final int capacity;
+    private final int pinnedCount;
+
+    private Stats(
+        long hitCount, long pinnedHitCount, long missCount, int capacity, int pinnedCount) {
+      this.hitCount = hitCount;
+      this.pinnedHitCount = pinnedHitCount;
+      this.missCount = missCount;
+      this.capacity = capacity;
+      this.pinnedCount = pinnedCount;
+    }
+
+    /** Returns the number of lookups answered by the shared, size-limited cache. */
+    public long hitCount() {
+      return hitCount;
+    }
+
+    /** Returns the number of lookups answered by the pinned bootstrap types. */
+    public long pinnedHitCount() {
+      return pinnedHitCount;
+    }
+
+    /** Returns the number of lookups that required reading and parsing a class file. */
+    public long missCount() {
+      return missCount;
+    }
+
+    /** Returns the current maximum size of the shared cache. */
+    public int capacity() {
+      return capacity;
+    }
+
+    /** Returns the number of pinned bootstrap types. */
+    public int pinnedCount() {
+      return pinnedCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats{hits="
+          + hitCount
+          + ", pinnedHits="
+          + pinnedHitCount
+          + ", misses="
+          + missCount
+          + ", capacity="
+          + capacity
+          + ", pinned="
+          + pinnedCount
+          + "}";
+    }
+  }
+
   /**
    * TypeCacheKey is key for the sharedResolutionCache. Conceptually, it is a mix of ClassLoader &
    * class name.
@@ -209,32 +363,56 @@ public class AgentCachingPoolStrategy implements PoolStrategy {
 
     private final int loaderHash;
     private final WeakReference<ClassLoader> loaderRef;
-    private final Cache<TypeCacheKey, TypePool.Resolution> sharedResolutionCache;
+    private final AgentCachingPoolStrategy strategy;
 
     SharedResolutionCacheAdapter(
-        int loaderHash,
-        WeakReference<ClassLoader> loaderRef,
-        Cache<TypeCacheKey, TypePool.Resolution> sharedResolutionCache) {
+        int loaderHash, WeakReference<ClassLoader> loaderRef, AgentCachingPoolStrategy strategy) {
       this.loaderHash = loaderHash;
       this.loaderRef = loaderRef;
-      this.sharedResolutionCache = sharedResolutionCache;
+      this.strategy = strategy;
+    }
+
+    private boolean isBootstrap() {
+      return loaderRef == null;
     }
 
     @Override
     public TypePool.Resolution find(String className) {
+      if (OBJECT_NAME.equals(className)) {
+        return OBJECT_RESOLUTION;
+      }
+
+      if (isBootstrap()) {
+        TypePool.Resolution pinnedResolution = strategy.pinnedBootstrapResolutions.get(className);
+        if (pinnedResolution != null) {
+          strategy.pinnedHits.increment();
+          return pinnedResolution;
+        }
+      }
+
       TypePool.Resolution existingResolution =
-          sharedResolutionCache.getIfPresent(new TypeCacheKey(loaderHash, loaderRef, className));
+          strategy.sharedResolutionCache.getIfPresent(
+              new TypeCacheKey(loaderHash, loaderRef, className));
       if (existingResolution != null) {
+        strategy.hits.increment();
+        if (isBootstrap()) {
+          maybePin(className, (CachingResolution) existingResolution);
+        }
         return existingResolution;
       }
 
-      if (OBJECT_NAME.equals(className)) {
-        return OBJECT_RESOLUTION;
-      }
-
+      strategy.recordMiss();
       return null;
     }
 
+    private void maybePin(String className, CachingResolution resolution) {
+      // the count is racy, a type may be pinned a few lookups later than intended
+      if (++resolution.lookups >= PIN_THRESHOLD
+          && strategy.pinnedBootstrapResolutions.size() < MAX_PINNED_TYPES) {
+        strategy.pinnedBootstrapResolutions.putIfAbsent(className, resolution);
+      }
+    }
+
     @Override
     public TypePool.Resolution register(String className, TypePool.Resolution resolution) {
       if (OBJECT_NAME.equals(className)) {
@@ -243,7 +421,14 @@ public class AgentCachingPoolStrategy implements PoolStrategy {
 
       resolution = new CachingResolution(resolution);
 
-      sharedResolutionCache.put(new TypeCacheKey(loaderHash, loaderRef, className), resolution);
+      TypeCacheKey key = new TypeCacheKey(loaderHash, loaderRef, className);
+      Cache<TypeCacheKey, TypePool.Resolution> cache = strategy.sharedResolutionCache;
+      cache.put(key, resolution);
+      // if the cache was resized meanwhile, the copy to the new cache may have missed this type
+      Cache<TypeCacheKey, TypePool.Resolution> currentCache = strategy.sharedResolutionCache;
+      if (currentCache != cache) {
+        currentCache.asMap().putIfAbsent(key, resolution);
+      }
       return resolution;
     }
 
@@ -256,6 +441,8 @@ public class AgentCachingPoolStrategy implements PoolStrategy {
   private static class CachingResolution implements TypePool.Resolution {
     private final TypePool.Resolution delegate;
     private TypeDescription cachedResolution;
+    // number of cache hits, only tracked for bootstrap types; intentionally not "thread safe"
+    private int lookups;
 
     public CachingResolution(TypePool.Resolution delegate) {
 
@@ -0,0 +1,542 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.bytebuddy;
+
+import io.opentelemetry.instrumentation.api.InstrumentationVersion;
+import io.opentelemetry.instrumentation.api.caching.Cache;
+import io.opentelemetry.instrumentation.api.config.Config;
+import io.opentelemetry.javaagent.tooling.AgentTooling;
+import io.opentelemetry.javaagent.tooling.TransformSafeLogger;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.jar.asm.ClassReader;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An opt-in, on-disk cache of transformed classes. When the cache directory is configured, every
+ * class transformed by the agent is written to the cache, keyed by a hash of everything the
+ * instrumentation matchers look at: the original bytes and name of the class, the bytes of all of
+ * its supertypes, which may come from other jars, the type of its class loader and the results of
+ * the class loader matchers of all instrumentations for that class loader. When a class with the
+ * same key is loaded again (e.g. after a restart of the application) the previously transformed
+ * bytes are read from a memory-mapped file and returned to the JVM, and the ByteBuddy transformer
+ * skips the class entirely.
+ *
+ * <p>Transforming a class has side effects besides producing bytecode: muzzle checks the class
+ * loader and helper classes are injected into it. These side effects are performed by {@link
+ * Replayable}s, which record themselves while a class is transformed; a cache entry stores the
+ * recorded steps and they are replayed before the cached bytes are returned. If any step fails to
+ * replay (e.g. muzzle now gives a different verdict), the cache entry is not used and the class is
+ * transformed as usual.
+ *
+ * <p>Only classes which are not ignored by the agent, and whose class loader isn't ignored either,
+ * are looked up in the cache; other classes are returned to the JVM without being hashed.
+ *
+ * <p>Cache entries are stored in a subdirectory named after a fingerprint of the agent version, the
+ * JVM version, the list of registered {@link Replayable}s, which includes the set of enabled
+ * instrumentation modules, and the agent and instrumentation configuration properties (e.g. {@code
+ * otel.javaagent.exclude-classes} or {@code otel.instrumentation.[name].enabled}). Changing any of
+ * these starts a new, empty cache.
+ */
+public final class TransformedClassCache {
+
+  private static final TransformSafeLogger log =
+      TransformSafeLogger.getLogger(TransformedClassCache.class);
+
+  public static final String CACHE_DIR_CONFIG =
+      "otel.javaagent.experimental.transformed-class-cache.dir";
+
+  private static final int FORMAT_VERSION = 1;
+
+  @Nullable private static final String CACHE_DIR = Config.get().getProperty(CACHE_DIR_CONFIG);
+
+  // registration happens while the agent is installed, lookups only after it is frozen by create()
+  private static final List<Replayable> replayables = new ArrayList<>();
+  private static final List<String> replayableDescriptions = new ArrayList<>();
+  private static final List<ElementMatcher<ClassLoader>> classLoaderMatchers = new ArrayList<>();
+  private static volatile boolean frozen;
+
+  private static final ThreadLocal<Transformation> currentTransformation = new ThreadLocal<>();
+
+  /**
+   * A side effect of a class transformation which can be performed again when the transformed
+   * class is read from the cache.
+   */
+  public interface Replayable {
+
+    /**
+     * Performs the side effect again for the class {@code typeName} loaded by {@code classLoader}.
+     * {@code flag} is the value that was passed to {@link #record(int, boolean)} when the class was
+     * transformed. Returns {@code false} if the cached transformation must not be used.
+     */
+    boolean replay(String typeName, @Nullable ClassLoader classLoader, boolean flag);
+  }
+
+  /** Returns whether the transformed class cache is enabled. */
+  public static boolean isEnabled() {
+    return CACHE_DIR != null;
+  }
+
+  /**
+   * Registers a side effect of class transformations and returns the id which should be passed to
+   * {@link #record(int, boolean)}, or {@code -1} if the cache is disabled or the agent has already
+   * been installed. Registration order must be deterministic, because the ids are stored on disk.
+   */
+  public static synchronized int register(Replayable replayable, String description) {
+    if (!isEnabled() || frozen) {
+      return -1;
+    }
+    replayables.add(replayable);
+    replayableDescriptions.add(description);
+    return replayables.size() - 1;
+  }
+
+  /**
+   * Records that the {@link Replayable} with the given {@code id} took part in the transformation
+   * of the class that is currently being transformed on this thread. An {@code id} of {@code -1}
+   * prevents the transformed class from being cached.
+   */
+  public static void record(int id, boolean flag) {
+    if (!isEnabled()) {
+      return;
+    }
+    Transformation transformation = currentTransformation.get();
+    if (transformation == null || transformation.replayed) {
+      return;
+    }
+    if (id < 0) {
+      transformation.cacheable = false;
+    } else {
+      transformation.records.add(flag ? id * 2 + 1 : id * 2);
+    }
+  }
+
+  /**
+   * Registers a class loader matcher of an instrumentation; its result for the class loader of a
+   * class is part of the cache key of that class. Ignored if the cache is disabled or the agent
+   * has already been installed.
+   */
+  public static synchronized void registerClassLoaderMatcher(
+      ElementMatcher<ClassLoader> classLoaderMatcher) {
+    if (isEnabled() && !frozen) {
+      classLoaderMatchers.add(classLoaderMatcher);
+    }
+  }
+
+  /** Prevents the class that is currently being transformed on this thread from being cached. */
+  public static void recordUncacheable() {
+    record(-1, false);
+  }
+
+  /**
+   * Returns a matcher for the agent's ignore list which matches classes that were read from the
+   * cache, and hence must not be transformed again.
+   */
+  public static AgentBuilder.RawMatcher replayedClassMatcher() {
+    return (typeDescription, classLoader, module, classBeingRedefined, protectionDomain) -> {
+      Transformation transformation = currentTransformation.get();
+      return transformation != null
+          && transformation.replayed
+          && transformation.classLoader == classLoader
+          && transformation.binaryName.equals(typeDescription.getName());
+    };
+  }
+
+  /**
+   * Creates the cache and registers the transformer which reads cached classes; this must be
+   * called right before the ByteBuddy transformer is installed, and {@link #activate()} right
+   * after. {@code ignoredTypes} and {@code ignoredClassLoaders} must be the matchers the ByteBuddy
+   * transformer ignores classes with. Returns {@code null} if the cache is disabled or its
+   * directory can't be created.
+   */
+  @Nullable
+  public static TransformedClassCache create(
+      Instrumentation inst,
+      ElementMatcher<? super TypeDescription> ignoredTypes,
+      ElementMatcher<? super ClassLoader> ignoredClassLoaders) {
+    if (!isEnabled()) {
+      return null;
+    }
+    Path directory;
+    synchronized (TransformedClassCache.class) {
+      frozen = true;
+      directory = Paths.get(CACHE_DIR, fingerprint());
+    }
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      log.debug("Unable to create the transformed class cache directory {}", directory, e);
+      return null;
+    }
+    TransformedClassCache cache =
+        new TransformedClassCache(inst, directory, ignoredTypes, ignoredClassLoaders);
+    inst.addTransformer(cache.new LookupTransformer(), true);
+    return cache;
+  }
+
+  private static String fingerprint() {
+    MessageDigest digest = sha256();
+    update(digest, InstrumentationVersion.VERSION);
+    update(digest, System.getProperty("java.vm.version"));
+    for (String description : replayableDescriptions) {
+      update(digest, description);
+    }
+    // the configuration decides which classes are ignored and how the others are transformed
+    Map<String, String> configuration = new TreeMap<>();
+    Config.get()
+        .asJavaProperties()
+        .forEach(
+            (name, value) -> {
+              String property = (String) name;
+              if ((property.startsWith("otel.javaagent.")
+                      || property.startsWith("otel.instrumentation."))
+                  && !property.equals(CACHE_DIR_CONFIG)) {
+                configuration.put(property, (String) value);
+              }
+            });
+    configuration.forEach(
+        (name, value) -> {
+          update(digest, name);
+          update(digest, value);
+        });
+    // a shorter name is still unique enough for a handful of configurations
+    return toHex(Arrays.copyOf(digest.digest(), 16));
+  }
+
+  private final Instrumentation inst;
+  private final Path directory;
+  private final ElementMatcher<? super TypeDescription> ignoredTypes;
+  private final ElementMatcher<? super ClassLoader> ignoredClassLoaders;
+  private final ExecutorService writer;
+  private final Cache<ClassLoader, String> classLoaderKeys =
+      Cache.newBuilder().setWeakKeys().build();
+  // supertype name -> hash of the supertype and its own supertypes, per class loader
+  private final Cache<ClassLoader, Map<String, byte[]>> supertypeHashes =
+      Cache.newBuilder().setWeakKeys().build();
+  @Nullable private volatile String bootstrapClassLoaderKey;
+  private final Map<String, byte[]> bootstrapSupertypeHashes = new ConcurrentHashMap<>();
+  private volatile boolean active;
+
+  private TransformedClassCache(
+      Instrumentation inst,
+      Path directory,
+      ElementMatcher<? super TypeDescription> ignoredTypes,
+      ElementMatcher<? super ClassLoader> ignoredClassLoaders) {
+    this.inst = inst;
+    this.directory = directory;
+    this.ignoredTypes = ignoredTypes;
+    this.ignoredClassLoaders = ignoredClassLoaders;
+    // cache entries are written in the background, class loading must not wait for the disk
+    this.writer =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "otel-javaagent-transformed-class-cache");
+              thread.setDaemon(true);
+              thread.setContextClassLoader(null);
+              return thread;
+            });
+  }
+
+  /**
+   * Registers the transformer which writes transformed classes to the cache, and starts using the
+   * cache. Must be called after the ByteBuddy transformer has been installed.
+   */
+  public void activate() {
+    inst.addTransformer(new StoreTransformer(), true);
+    active = true;
+  }
+
+  @Nullable
+  private byte[] read(String key, String typeName, @Nullable ClassLoader classLoader) {
+    try (FileChannel channel = FileChannel.open(directory.resolve(key), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      int recordCount = buffer.getInt();
+      for (int i = 0; i < recordCount; i++) {
+        int record = buffer.getInt();
+        int id = record >>> 1;
+        if (id >= replayables.size()
+            || !replayables.get(id).replay(typeName, classLoader, (record & 1) != 0)) {
+          log.debug("Not using the cached transformation of {} -- {}", typeName, classLoader);
+          return null;
+        }
+      }
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      return bytes;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | RuntimeException e) {
+      log.debug("Unable to read the cached transformation of {}", typeName, e);
+      return null;
+    }
+  }
+
+  private void write(String key, List<Integer> records, byte[] bytes) {
+    writer.execute(
+        () -> {
+          Path file = directory.resolve(key);
+          Path tempFile = null;
+          try {
+            tempFile = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+              out.writeInt(FORMAT_VERSION);
+              out.writeInt(records.size());
+              for (int record : records) {
+                out.writeInt(record);
+              }
+              out.writeInt(bytes.length);
+              out.write(bytes);
+            }
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+          } catch (IOException e) {
+            log.debug("Unable to write the transformed class cache entry {}", file, e);
+            if (tempFile != null) {
+              tempFile.toFile().delete();
+            }
+          }
+        });
+  }
+
+  private String key(@Nullable ClassLoader classLoader, String className, byte[] bytes) {
+    MessageDigest digest = sha256();
+    update(digest, classLoaderKey(classLoader));
+    update(digest, className);
+    digest.update(bytes);
+    // the type matchers (e.g. implementsInterface()) also look at the supertypes of the class
+    Map<String, byte[]> hashes =
+        classLoader == null
+            ? bootstrapSupertypeHashes
+            : supertypeHashes.computeIfAbsent(classLoader, unused -> new ConcurrentHashMap<>());
+    updateSupertypes(
+        digest,
+        new ClassReader(bytes),
+        AgentTooling.locationStrategy().classFileLocator(classLoader),
+        hashes);
+    return toHex(digest.digest());
+  }
+
+  private String classLoaderKey(@Nullable ClassLoader classLoader) {
+    if (classLoader == null) {
+      String key = bootstrapClassLoaderKey;
+      if (key == null) {
+        key = computeClassLoaderKey(null);
+        bootstrapClassLoaderKey = key;
+      }
+      return key;
+    }
+    return classLoaderKeys.computeIfAbsent(
+        classLoader, TransformedClassCache::computeClassLoaderKey);
+  }
+
+  private static String computeClassLoaderKey(@Nullable ClassLoader classLoader) {
+    StringBuilder key =
+        new StringBuilder(classLoader == null ? "<bootstrap>" : classLoader.getClass().getName())
+            .append(':');
+    for (ElementMatcher<ClassLoader> classLoaderMatcher : classLoaderMatchers) {
+      boolean matches;
+      try {
+        matches = classLoaderMatcher.matches(classLoader);
+      } catch (RuntimeException e) {
+        // the agent builder's fail-safe matchers don't match either
+        matches = false;
+      }
+      key.append(matches ? '1' : '0');
+    }
+    return key.toString();
+  }
+
+  private static void updateSupertypes(
+      MessageDigest digest,
+      ClassReader reader,
+      ClassFileLocator locator,
+      Map<String, byte[]> hashes)
+      throws IOException {
+    String superName = reader.getSuperName();
+    if (superName != null) {
+      digest.update(supertypeHash(superName, locator, hashes));
+    }
+    for (String interfaceName : reader.getInterfaces()) {
+      digest.update(supertypeHash(interfaceName, locator, hashes));
+    }
+  }
+
+  private static byte[] supertypeHash(
+      String internalName, ClassFileLocator locator, Map<String, byte[]> hashes)
+      throws IOException {
+    byte[] hash = hashes.get(internalName);
+    if (hash != null) {
+      return hash;
+    }
+    MessageDigest digest = sha256();
+    update(digest, internalName);
+    ClassFileLocator.Resolution resolution = locator.locate(internalName.replace('/', '.'));
+    // a missing supertype is hashed as just its name, the matchers can't look at it either
+    if (resolution.isResolved()) {
+      byte[] bytes = resolution.resolve();
+      digest.update(bytes);
+      updateSupertypes(digest, new ClassReader(bytes), locator, hashes);
+    }
+    hash = digest.digest();
+    hashes.put(internalName, hash);
+    return hash;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+      hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+    }
+    return new String(hex);
+  }
+
+  private boolean isIgnored(String binaryName, @Nullable ClassLoader loader) {
+    try {
+      // the global ignores only look at the class name
+      return ignoredClassLoaders.matches(loader)
+          || ignoredTypes.matches(new TypeDescription.Latent(binaryName, 0, null));
+    } catch (RuntimeException e) {
+      log.debug("Unable to match {} against the ignores", binaryName, e);
+      return true;
+    }
+  }
+
+  /** The state of a class that is being loaded, kept from the lookup to the store transformer. */
+  private static final class Transformation {
+    private final String className;
+    private final String binaryName;
+    @Nullable private final ClassLoader classLoader;
+    private final String key;
+    private final byte[] originalBytes;
+    private final List<Integer> records = new ArrayList<>();
+    private boolean cacheable = true;
+    private boolean replayed;
+
+    private Transformation(
+        String className, @Nullable ClassLoader classLoader, String key, byte[] originalBytes) {
+      this.className = className;
+      this.binaryName = className.replace('/', '.');
+      this.classLoader = classLoader;
+      this.key = key;
+      this.originalBytes = originalBytes;
+    }
+  }
+
+  /**
+   * Runs before the ByteBuddy transformer: returns the cached transformation of the class if there
+   * is one, and otherwise starts recording the side effects of its transformation.
+   */
+  private final class LookupTransformer implements ClassFileTransformer {
+    @Override
+    @Nullable
+    public byte[] transform(
+        @Nullable ClassLoader loader,
+        @Nullable String className,
+        @Nullable Class<?> classBeingRedefined,
+        ProtectionDomain protectionDomain,
+        byte[] classfileBuffer) {
+      // retransformed classes are not cached, and neither are classes loaded while another class
+      // is being transformed on the same thread; ByteBuddy does not transform those anyway
+      if (!active
+          || className == null
+          || classBeingRedefined != null
+          || currentTransformation.get() != null) {
+        return null;
+      }
+      // ByteBuddy won't transform ignored classes, there's no need to hash them and look them up
+      String binaryName = className.replace('/', '.');
+      if (isIgnored(binaryName, loader)) {
+        return null;
+      }
+      String key;
+      try {
+        key = key(loader, className, classfileBuffer);
+      } catch (IOException | RuntimeException e) {
+        log.debug("Unable to compute the transformed class cache key of {}", binaryName, e);
+        return null;
+      }
+      Transformation transformation = new Transformation(className, loader, key, classfileBuffer);
+      byte[] cached = read(transformation.key, transformation.binaryName, loader);
+      transformation.replayed = cached != null;
+      currentTransformation.set(transformation);
+      return cached;
+    }
+  }
+
+  /**
+   * Runs after the ByteBuddy transformer: writes the class to the cache if ByteBuddy transformed
+   * it.
+   */
+  private final class StoreTransformer implements ClassFileTransformer {
+    @Override
+    @Nullable
+    public byte[] transform(
+        @Nullable ClassLoader loader,
+        @Nullable String className,
+        @Nullable Class<?> classBeingRedefined,
+        ProtectionDomain protectionDomain,
+        byte[] classfileBuffer) {
+      Transformation transformation = currentTransformation.get();
+      if (transformation == null
+          || transformation.classLoader != loader
+          || !transformation.className.equals(className)) {
+        return null;
+      }
+      currentTransformation.remove();
+      if (!transformation.replayed
+          && transformation.cacheable
+          && !Arrays.equals(transformation.originalBytes, classfileBuffer)) {
+        write(transformation.key, transformation.records, classfileBuffer.clone());
+      }
+      return null;
+    }
+  }
+}
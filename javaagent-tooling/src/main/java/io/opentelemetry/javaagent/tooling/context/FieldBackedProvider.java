@@ -16,6 +16,7 @@ import io.opentelemetry.instrumentation.api.config.Config;
 import io.opentelemetry.javaagent.bootstrap.FieldBackedContextStoreAppliedMarker;
 import io.opentelemetry.javaagent.instrumentation.api.ContextStore;
 import io.opentelemetry.javaagent.instrumentation.api.InstrumentationContext;
+import io.opentelemetry.javaagent.instrumentation.api.internal.AtomicContextStore;
 import io.opentelemetry.javaagent.tooling.HelperInjector;
 import io.opentelemetry.javaagent.tooling.TransformSafeLogger;
 import io.opentelemetry.javaagent.tooling.Utils;
@@ -30,6 +31,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.ClassFileVersion;
 import net.bytebuddy.agent.builder.AgentBuilder;
@@ -59,7 +61,8 @@ import net.bytebuddy.utility.JavaModule;
  * <p>This is accomplished by
  *
  * <ol>
- *   <li>Injecting a Dynamic Interface that provides getter and setter for context field
+ *   <li>Injecting a Dynamic Interface that provides getter, setter and compare and set methods for
+ *       context field
  *   <li>Applying Dynamic Interface to a type needing context, implementing interface methods and
  *       adding context storage field
  *   <li>Injecting a Dynamic Class created from {@link ContextStoreImplementationTemplate} to use
@@ -91,6 +94,8 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
   private static final String INJECTED_FIELDS_MARKER_CLASS_NAME =
       Utils.getInternalName(FieldBackedContextStoreAppliedMarker.class);
 
+  private static final Type UPDATER_TYPE = Type.getType(AtomicReferenceFieldUpdater.class);
+
   private static final Method CONTEXT_GET_METHOD;
   private static final Method GET_CONTEXT_STORE_METHOD;
 
@@ -451,7 +456,7 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
       public ClassVisitor wrap(
           final TypeDescription instrumentedType,
           ClassVisitor classVisitor,
-          Implementation.Context implementationContext,
+          final Implementation.Context implementationContext,
           TypePool typePool,
           FieldList<FieldDescription.InDefinedShape> fields,
           MethodList<?> methods,
@@ -465,11 +470,16 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
           private final String fieldName = getContextFieldName(keyClassName);
           private final String getterMethodName = getContextGetterName(keyClassName);
           private final String setterMethodName = getContextSetterName(keyClassName);
+          private final String compareAndSetMethodName =
+              getContextCompareAndSetName(keyClassName);
+          private final String updaterFieldName = getContextFieldUpdaterName(keyClassName);
           private final TypeDescription interfaceType =
               getFieldAccessorInterface(keyClassName, contextClassName);
           private boolean foundField = false;
+          private boolean foundUpdaterField = false;
           private boolean foundGetter = false;
           private boolean foundSetter = false;
+          private boolean foundCompareAndSet = false;
 
           @Override
           public void visit(
@@ -494,6 +504,9 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
             if (name.equals(fieldName)) {
               foundField = true;
             }
+            if (name.equals(updaterFieldName)) {
+              foundUpdaterField = true;
+            }
             return super.visitField(access, name, descriptor, signature, value);
           }
 
@@ -506,6 +519,9 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
             if (name.equals(setterMethodName)) {
               foundSetter = true;
             }
+            if (name.equals(compareAndSetMethodName)) {
+              foundCompareAndSet = true;
+            }
             return super.visitMethod(access, name, descriptor, signature, exceptions);
           }
 
@@ -514,25 +530,46 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
             // Checking only for field existence is not enough as libraries like CGLIB only copy
             // public/protected methods and not fields (neither public nor private ones) when
             // they enhance a class.
-            // For this reason we check separately for the field and for the two accessors.
+            // For this reason we check separately for the fields and for the three accessors.
             if (!foundField) {
               cv.visitField(
-                  // Field should be transient to avoid being serialized with the object.
-                  Opcodes.ACC_PRIVATE | Opcodes.ACC_TRANSIENT,
+                  // Field should be transient to avoid being serialized with the object, and
+                  // volatile to be updated with an AtomicReferenceFieldUpdater.
+                  Opcodes.ACC_PRIVATE | Opcodes.ACC_VOLATILE | Opcodes.ACC_TRANSIENT,
                   fieldName,
                   contextType.getDescriptor(),
                   null,
                   null);
             }
+            if (!foundUpdaterField && canReferenceClassConstants()) {
+              cv.visitField(
+                  Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC,
+                  updaterFieldName,
+                  UPDATER_TYPE.getDescriptor(),
+                  null,
+                  null);
+            }
             if (!foundGetter) {
               addGetter();
             }
             if (!foundSetter) {
               addSetter();
             }
+            if (!foundCompareAndSet) {
+              if (canReferenceClassConstants()) {
+                addCompareAndSet();
+              } else {
+                addSynchronizedCompareAndSet();
+              }
+            }
             super.visitEnd();
           }
 
+          // class constants (ldc of a class) need at least java 5 class files
+          private boolean canReferenceClassConstants() {
+            return implementationContext.getClassFileVersion().isAtLeast(ClassFileVersion.JAVA_V5);
+          }
+
           // just 'standard' getter implementation
           private void addGetter() {
             MethodVisitor mv = getAccessorMethodVisitor(getterMethodName);
@@ -564,6 +601,111 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
             mv.visitEnd();
           }
 
+          /**
+           * Adds a compare and set implementation that looks like below. The updater is created
+           * lazily instead of in a static initializer, which the class may already have, and has to
+           * be created by the class itself to be allowed to access the private field.
+           *
+           * <blockquote>
+           *
+           * <pre>
+           * public boolean $compareAndSetMethodName(Object expected, Object update) {
+           *   AtomicReferenceFieldUpdater updater = $updaterFieldName;
+           *   if (updater == null) {
+           *     updater = AtomicReferenceFieldUpdater.newUpdater(
+           *         $instrumentedType.class, Object.class, "$fieldName");
+           *     $updaterFieldName = updater;
+           *   }
+           *   return updater.compareAndSet(this, expected, update);
+           * }
+           * </pre>
+           *
+           * </blockquote>
+           */
+          private void addCompareAndSet() {
+            String updaterInternalName = UPDATER_TYPE.getInternalName();
+            String updaterDescriptor = UPDATER_TYPE.getDescriptor();
+            Label updaterCreatedLabel = new Label();
+            MethodVisitor mv = getAccessorMethodVisitor(compareAndSetMethodName);
+            mv.visitCode();
+            mv.visitFieldInsn(
+                Opcodes.GETSTATIC,
+                instrumentedType.getInternalName(),
+                updaterFieldName,
+                updaterDescriptor);
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitJumpInsn(Opcodes.IFNONNULL, updaterCreatedLabel);
+            mv.visitInsn(Opcodes.POP);
+            mv.visitLdcInsn(Type.getObjectType(instrumentedType.getInternalName()));
+            mv.visitLdcInsn(Type.getType(contextType.getDescriptor()));
+            mv.visitLdcInsn(fieldName);
+            mv.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                updaterInternalName,
+                "newUpdater",
+                "(Ljava/lang/Class;Ljava/lang/Class;Ljava/lang/String;)" + updaterDescriptor,
+                false);
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitFieldInsn(
+                Opcodes.PUTSTATIC,
+                instrumentedType.getInternalName(),
+                updaterFieldName,
+                updaterDescriptor);
+            mv.visitLabel(updaterCreatedLabel);
+            if (implementationContext.getClassFileVersion().isAtLeast(ClassFileVersion.JAVA_V6)) {
+              mv.visitFrame(Opcodes.F_SAME1, 0, null, 1, new Object[] {updaterInternalName});
+            }
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                updaterInternalName,
+                "compareAndSet",
+                "(Ljava/lang/Object;Ljava/lang/Object;Ljava/lang/Object;)Z",
+                false);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+          }
+
+          // compare and set for classes that are too old to create an updater, synchronizes on the
+          // instance instead
+          private void addSynchronizedCompareAndSet() {
+            Label expectedLabel = new Label();
+            MethodVisitor mv =
+                cv.visitMethod(
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNCHRONIZED,
+                    compareAndSetMethodName,
+                    Utils.getMethodDefinition(interfaceType, compareAndSetMethodName)
+                        .getDescriptor(),
+                    null,
+                    null);
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(
+                Opcodes.GETFIELD,
+                instrumentedType.getInternalName(),
+                fieldName,
+                contextType.getDescriptor());
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitJumpInsn(Opcodes.IF_ACMPEQ, expectedLabel);
+            mv.visitInsn(Opcodes.ICONST_0);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitLabel(expectedLabel);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitFieldInsn(
+                Opcodes.PUTFIELD,
+                instrumentedType.getInternalName(),
+                fieldName,
+                contextType.getDescriptor());
+            mv.visitInsn(Opcodes.ICONST_1);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+          }
+
           private MethodVisitor getAccessorMethodVisitor(String methodName) {
             return cv.visitMethod(
                 Opcodes.ACC_PUBLIC,
@@ -668,6 +810,9 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
             } else if ("realPut".equals(name)) {
               generateRealPutMethod(name);
               return null;
+            } else if ("realCompareAndSet".equals(name)) {
+              generateRealCompareAndSetMethod(name);
+              return null;
             } else if ("realSynchronizeInstance".equals(name)) {
               generateRealSynchronizeInstanceMethod(name);
               return null;
@@ -789,6 +934,64 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
             mv.visitEnd();
           }
 
+          /**
+           * Provides implementation for {@code realCompareAndSet} method that looks like below.
+           *
+           * <blockquote>
+           *
+           * <pre>
+           * private boolean realCompareAndSet(
+           *     final Object key, final Object expected, final Object update) {
+           *   if (key instanceof $accessorInterfaceInternalName) {
+           *     return (($accessorInterfaceInternalName) key).$compareAndSetName(expected, update);
+           *   } else {
+           *     return mapCompareAndSet(key, expected, update);
+           *   }
+           * }
+           * </pre>
+           *
+           * </blockquote>
+           *
+           * @param name name of the method being visited
+           */
+          private void generateRealCompareAndSetMethod(String name) {
+            String compareAndSetName = getContextCompareAndSetName(keyClassName);
+            Label elseLabel = new Label();
+            MethodVisitor mv = getMethodVisitor(name);
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitTypeInsn(Opcodes.INSTANCEOF, accessorInterfaceInternalName);
+            mv.visitJumpInsn(Opcodes.IFEQ, elseLabel);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, accessorInterfaceInternalName);
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitVarInsn(Opcodes.ALOAD, 3);
+            mv.visitMethodInsn(
+                Opcodes.INVOKEINTERFACE,
+                accessorInterfaceInternalName,
+                compareAndSetName,
+                Utils.getMethodDefinition(accessorInterface, compareAndSetName).getDescriptor(),
+                true);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitLabel(elseLabel);
+            if (frames) {
+              mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+            }
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitVarInsn(Opcodes.ALOAD, 3);
+            mv.visitMethodInsn(
+                Opcodes.INVOKESPECIAL,
+                instrumentedTypeInternalName,
+                "mapCompareAndSet",
+                Utils.getMethodDefinition(instrumentedType, "mapCompareAndSet").getDescriptor(),
+                false);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+          }
+
           /**
            * Provides implementation for {@code realSynchronizeInstance} method that looks like
            * below.
@@ -852,16 +1055,31 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
   /**
    * Template class used to generate the class that accesses stored context using either key
    * instance's own injected field or global hash map if field is not available.
+   *
+   * <p>A class is generated for every key class and context class pair, so every context store has
+   * its own map. Keys without an injected field are synchronized on one of a fixed set of locks
+   * picked by their identity hash code, so that concurrent {@code putIfAbsent} calls for different
+   * keys rarely contend, e.g. when many threads submit tasks of classes that were loaded before the
+   * agent. The injected field is updated with a compare and set instead, so that storing a context
+   * never synchronizes on the key, which may be used as a monitor by its own class.
    */
   private static final class ContextStoreImplementationTemplate
-      implements ContextStore<Object, Object> {
+      implements ContextStore<Object, Object>, AtomicContextStore {
+    // must be a power of two
+    private static final int MAP_LOCK_STRIPES = 64;
+
     private static final ContextStoreImplementationTemplate INSTANCE =
         new ContextStoreImplementationTemplate(Cache.newBuilder().setWeakKeys().build());
 
     private final Cache<Object, Object> map;
+    private final Object[] mapLocks;
 
     private ContextStoreImplementationTemplate(Cache<Object, Object> map) {
       this.map = map;
+      mapLocks = new Object[MAP_LOCK_STRIPES];
+      for (int i = 0; i < MAP_LOCK_STRIPES; i++) {
+        mapLocks[i] = new Object();
+      }
     }
 
     @Override
@@ -871,17 +1089,14 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
 
     @Override
     public Object putIfAbsent(Object key, Object context) {
-      Object existingContext = realGet(key);
-      if (null != existingContext) {
-        return existingContext;
-      }
-      synchronized (realSynchronizeInstance(key)) {
-        existingContext = realGet(key);
+      while (true) {
+        Object existingContext = realGet(key);
         if (null != existingContext) {
           return existingContext;
         }
-        realPut(key, context);
-        return context;
+        if (realCompareAndSet(key, null, context)) {
+          return context;
+        }
       }
     }
 
@@ -897,8 +1112,12 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
           return existingContext;
         }
         Object context = contextFactory.create();
-        realPut(key, context);
-        return context;
+        // the context may be set concurrently by putIfAbsent or compareAndSet, which don't lock
+        // keys with an injected field
+        if (realCompareAndSet(key, null, context)) {
+          return context;
+        }
+        return realGet(key);
       }
     }
 
@@ -907,6 +1126,11 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
       realPut(key, context);
     }
 
+    @Override
+    public boolean compareAndSet(Object key, Object expected, Object update) {
+      return realCompareAndSet(key, expected, update);
+    }
+
     private Object realGet(Object key) {
       // to be generated
       return null;
@@ -916,6 +1140,11 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
       // to be generated
     }
 
+    private boolean realCompareAndSet(Object key, Object expected, Object update) {
+      // to be generated
+      return false;
+    }
+
     private Object realSynchronizeInstance(Object key) {
       // to be generated
       return null;
@@ -933,8 +1162,19 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
       }
     }
 
+    private boolean mapCompareAndSet(Object key, Object expected, Object update) {
+      synchronized (mapSynchronizeInstance(key)) {
+        if (mapGet(key) != expected) {
+          return false;
+        }
+        mapPut(key, update);
+        return true;
+      }
+    }
+
     private Object mapSynchronizeInstance(Object key) {
-      return map;
+      // identity hash code doesn't call into the key class and spreads keys well enough
+      return mapLocks[System.identityHashCode(key) & (MAP_LOCK_STRIPES - 1)];
     }
 
     public static ContextStore getContextStore(Class keyClass, Class contextClass) {
@@ -967,7 +1207,8 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
 
   /**
    * Generate an interface that provides field accessor methods for given key class name and context
-   * class name.
+   * class name. Besides the getter and setter, it has a method that atomically replaces the context
+   * of the key.
    *
    * @param keyClassName key class name
    * @param contextClassName context class name
@@ -986,6 +1227,10 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
         .defineMethod(getContextSetterName(keyClassName), TypeDescription.VOID, Visibility.PUBLIC)
         .withParameter(contextType, "value")
         .withoutCode()
+        .defineMethod(getContextCompareAndSetName(keyClassName), boolean.class, Visibility.PUBLIC)
+        .withParameter(contextType, "expected")
+        .withParameter(contextType, "update")
+        .withoutCode()
         .make();
   }
 
@@ -1033,6 +1278,14 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
     return "set" + getContextFieldName(key);
   }
 
+  private static String getContextCompareAndSetName(String keyClassName) {
+    return "compareAndSet" + getContextFieldName(keyClassName);
+  }
+
+  private static String getContextFieldUpdaterName(String keyClassName) {
+    return "__opentelemetryContextUpdater$" + Utils.convertToInnerClassName(keyClassName);
+  }
+
   // Originally found in AgentBuilder.Transformer.NoOp, but removed in 1.10.7
   enum NoOpTransformer implements AgentBuilder.Transformer {
     INSTANCE;
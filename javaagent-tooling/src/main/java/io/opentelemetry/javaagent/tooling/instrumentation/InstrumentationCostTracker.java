@@ -0,0 +1,360 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation;
+
+import io.opentelemetry.instrumentation.api.config.Config;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.utility.JavaModule;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accounts the time that every instrumentation module spends in each {@link Phase} of class
+ * transformation. The totals since the previous report are periodically logged and, when the JVM
+ * supports it, emitted as JDK Flight Recorder events.
+ *
+ * <p>Cost accounting is enabled with {@code
+ * otel.javaagent.experimental.instrumentation-cost.enabled}; the report interval is configured in
+ * milliseconds with {@code otel.javaagent.experimental.instrumentation-cost.report-interval}.
+ */
+public final class InstrumentationCostTracker {
+
+  private static final Logger log = LoggerFactory.getLogger(InstrumentationCostTracker.class);
+
+  private static final String ENABLED_CONFIG =
+      "otel.javaagent.experimental.instrumentation-cost.enabled";
+  private static final String REPORT_INTERVAL_CONFIG =
+      "otel.javaagent.experimental.instrumentation-cost.report-interval";
+  private static final int DEFAULT_REPORT_INTERVAL_MILLIS = 60_000;
+
+  private static final boolean ENABLED = Config.get().getBooleanProperty(ENABLED_CONFIG, false);
+
+  private static final ModuleCost DISABLED = new ModuleCost("<disabled>");
+
+  private static final ConcurrentMap<String, ModuleCost> moduleCosts = new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<Deque<Transformation>> transformations =
+      ThreadLocal.withInitial(ArrayDeque::new);
+
+  private static final AgentBuilder.Listener LISTENER =
+      ENABLED ? new CostListener() : AgentBuilder.Listener.NoOp.INSTANCE;
+
+  static {
+    if (ENABLED) {
+      startReporting(
+          Config.get().getIntProperty(REPORT_INTERVAL_CONFIG, DEFAULT_REPORT_INTERVAL_MILLIS));
+    }
+  }
+
+  /** The phases of class transformation that are accounted per instrumentation module. */
+  public enum Phase {
+    TYPE_MATCHING("type matching"),
+    CLASS_LOADER_MATCHING("class loader matching"),
+    MUZZLE("muzzle"),
+    HELPER_INJECTION("helper injection"),
+    ADVICE_TRANSFORMATION("advice transformation");
+
+    private final String description;
+
+    Phase(String description) {
+      this.description = description;
+    }
+  }
+
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Returns the listener that accounts the advice transformation of types, which does nothing if
+   * cost accounting is disabled.
+   */
+  public static AgentBuilder.Listener listener() {
+    return LISTENER;
+  }
+
+  /**
+   * Returns the costs of the instrumentation module with the given name; the returned object does
+   * not account anything if cost accounting is disabled.
+   */
+  public static ModuleCost moduleCost(String instrumentationName) {
+    if (!ENABLED) {
+      return DISABLED;
+    }
+    return moduleCosts.computeIfAbsent(instrumentationName, ModuleCost::new);
+  }
+
+  /** Adds {@code nanos} spent in {@code phase} to the costs of the given instrumentation module. */
+  public static void record(String instrumentationName, Phase phase, long nanos) {
+    if (ENABLED) {
+      moduleCost(instrumentationName).record(phase, nanos);
+    }
+  }
+
+  private static void startReporting(long intervalMillis) {
+    ScheduledExecutorService reporter =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "otel-javaagent-instrumentation-cost-reporter");
+              thread.setDaemon(true);
+              return thread;
+            });
+    JfrInstrumentationCostEvents jfrEvents = JfrInstrumentationCostEvents.create();
+    reporter.scheduleAtFixedRate(
+        () -> report(jfrEvents), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  // visible for testing
+  static List<String> report(@Nullable JfrInstrumentationCostEvents jfrEvents) {
+    List<ModuleCost> costs = new ArrayList<>(moduleCosts.values());
+    List<long[]> counts = new ArrayList<>(costs.size());
+    List<long[]> nanos = new ArrayList<>(costs.size());
+    for (ModuleCost cost : costs) {
+      long[] phaseCounts = new long[Phase.values().length];
+      long[] phaseNanos = new long[Phase.values().length];
+      cost.drain(phaseCounts, phaseNanos);
+      counts.add(phaseCounts);
+      nanos.add(phaseNanos);
+    }
+
+    List<Integer> order = new ArrayList<>(costs.size());
+    for (int i = 0; i < costs.size(); i++) {
+      if (sum(nanos.get(i)) > 0) {
+        order.add(i);
+      }
+    }
+    // most expensive modules first
+    order.sort(Comparator.comparingLong((Integer i) -> sum(nanos.get(i))).reversed());
+
+    List<String> lines = new ArrayList<>(order.size());
+    for (int i : order) {
+      StringBuilder line = new StringBuilder(costs.get(i).instrumentationName).append(':');
+      for (Phase phase : Phase.values()) {
+        long phaseNanos = nanos.get(i)[phase.ordinal()];
+        long phaseCount = counts.get(i)[phase.ordinal()];
+        if (phaseCount > 0) {
+          line.append(' ')
+              .append(phase.description)
+              .append(' ')
+              .append(String.format(Locale.ROOT, "%.3f", phaseNanos / 1_000_000.0))
+              .append(" ms (")
+              .append(phaseCount)
+              .append(")");
+          if (jfrEvents != null) {
+            jfrEvents.emit(
+                costs.get(i).instrumentationName, phase.description, phaseCount, phaseNanos);
+          }
+        }
+      }
+      lines.add(line.toString());
+    }
+
+    if (!lines.isEmpty() && log.isInfoEnabled()) {
+      log.info("Instrumentation costs since the last report:\n  {}", String.join("\n  ", lines));
+    }
+    return lines;
+  }
+
+  private static long sum(long[] values) {
+    long sum = 0;
+    for (long value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  /** The costs of one instrumentation module, and the wrappers that account them. */
+  public static final class ModuleCost {
+    private final String instrumentationName;
+    private final LongAdder[] counts = new LongAdder[Phase.values().length];
+    private final LongAdder[] nanos = new LongAdder[Phase.values().length];
+
+    private ModuleCost(String instrumentationName) {
+      this.instrumentationName = instrumentationName;
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+        nanos[i] = new LongAdder();
+      }
+    }
+
+    private void record(Phase phase, long phaseNanos) {
+      counts[phase.ordinal()].increment();
+      nanos[phase.ordinal()].add(phaseNanos);
+    }
+
+    private void drain(long[] phaseCounts, long[] phaseNanos) {
+      for (int i = 0; i < counts.length; i++) {
+        phaseCounts[i] = counts[i].sumThenReset();
+        phaseNanos[i] = nanos[i].sumThenReset();
+      }
+    }
+
+    /** Accounts the time spent in {@code typeMatcher} as {@link Phase#TYPE_MATCHING}. */
+    public ElementMatcher<TypeDescription> typeMatcher(
+        ElementMatcher<TypeDescription> typeMatcher) {
+      if (this == DISABLED) {
+        return typeMatcher;
+      }
+      return new TimedMatcher<>(this, Phase.TYPE_MATCHING, typeMatcher);
+    }
+
+    /**
+     * Accounts the time spent in {@code classLoaderMatcher} as {@link
+     * Phase#CLASS_LOADER_MATCHING}.
+     */
+    public ElementMatcher<ClassLoader> classLoaderMatcher(
+        ElementMatcher<ClassLoader> classLoaderMatcher) {
+      if (this == DISABLED) {
+        return classLoaderMatcher;
+      }
+      return new TimedMatcher<>(this, Phase.CLASS_LOADER_MATCHING, classLoaderMatcher);
+    }
+
+    /** Accounts the time spent in {@code muzzleMatcher} as {@link Phase#MUZZLE}. */
+    public AgentBuilder.RawMatcher muzzleMatcher(AgentBuilder.RawMatcher muzzleMatcher) {
+      if (this == DISABLED) {
+        return muzzleMatcher;
+      }
+      return new TimedMuzzleMatcher(this, muzzleMatcher);
+    }
+
+    /**
+     * Returns a transformer that marks the start of the transformation of a type by this module;
+     * it has to be the first transformer the module applies. The time until the transformed type
+     * is produced is accounted as {@link Phase#ADVICE_TRANSFORMATION}, split evenly between all
+     * modules that transform the type.
+     */
+    public AgentBuilder.Transformer transformation(AgentBuilder.Transformer firstTransformer) {
+      if (this == DISABLED) {
+        return firstTransformer;
+      }
+      return (builder, typeDescription, classLoader, module) -> {
+        Transformation transformation = transformations.get().peek();
+        if (transformation != null) {
+          transformation.add(this);
+        }
+        return firstTransformer.transform(builder, typeDescription, classLoader, module);
+      };
+    }
+  }
+
+  private static final class TimedMatcher<T> extends ElementMatcher.Junction.AbstractBase<T> {
+    private final ModuleCost cost;
+    private final Phase phase;
+    private final ElementMatcher<T> delegate;
+
+    private TimedMatcher(ModuleCost cost, Phase phase, ElementMatcher<T> delegate) {
+      this.cost = cost;
+      this.phase = phase;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean matches(T target) {
+      long start = System.nanoTime();
+      try {
+        return delegate.matches(target);
+      } finally {
+        cost.record(phase, System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return delegate.toString();
+    }
+  }
+
+  private static final class TimedMuzzleMatcher implements AgentBuilder.RawMatcher {
+    private final ModuleCost cost;
+    private final AgentBuilder.RawMatcher delegate;
+
+    private TimedMuzzleMatcher(ModuleCost cost, AgentBuilder.RawMatcher delegate) {
+      this.cost = cost;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean matches(
+        TypeDescription typeDescription,
+        ClassLoader classLoader,
+        JavaModule module,
+        Class<?> classBeingRedefined,
+        ProtectionDomain protectionDomain) {
+      long start = System.nanoTime();
+      try {
+        return delegate.matches(
+            typeDescription, classLoader, module, classBeingRedefined, protectionDomain);
+      } finally {
+        cost.record(Phase.MUZZLE, System.nanoTime() - start);
+      }
+    }
+  }
+
+  /** The transformation of a type on a thread; transformations nest when classes are loaded. */
+  private static final class Transformation {
+    private final List<ModuleCost> modules = new ArrayList<>(2);
+    private long start;
+
+    private void add(ModuleCost module) {
+      if (modules.isEmpty()) {
+        start = System.nanoTime();
+      }
+      if (!modules.contains(module)) {
+        modules.add(module);
+      }
+    }
+  }
+
+  private static final class CostListener extends AgentBuilder.Listener.Adapter {
+    @Override
+    public void onDiscovery(
+        String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+      transformations.get().push(new Transformation());
+    }
+
+    @Override
+    public void onTransformation(
+        TypeDescription typeDescription,
+        ClassLoader classLoader,
+        JavaModule module,
+        boolean loaded,
+        DynamicType dynamicType) {
+      Transformation transformation = transformations.get().peek();
+      if (transformation != null && !transformation.modules.isEmpty()) {
+        long nanos = (System.nanoTime() - transformation.start) / transformation.modules.size();
+        for (ModuleCost moduleCost : transformation.modules) {
+          moduleCost.record(Phase.ADVICE_TRANSFORMATION, nanos);
+        }
+      }
+    }
+
+    @Override
+    public void onComplete(
+        String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+      transformations.get().poll();
+    }
+  }
+
+  private InstrumentationCostTracker() {}
+}
@@ -30,13 +30,21 @@ public class InstrumentationLoader implements AgentExtension {
             .sorted(Comparator.comparingInt(InstrumentationModule::order))
             .collect(Collectors.toList());
 
+    LazyInstrumentationInstaller lazyInstaller =
+        LazyInstrumentationInstaller.create(instrumentationModuleInstaller, agentBuilder);
+
     int numberOfLoadedModules = 0;
+    int numberOfDeferredModules = 0;
     for (InstrumentationModule instrumentationModule : instrumentationModules) {
       log.debug(
           "Loading instrumentation {} [class {}]",
           instrumentationModule.instrumentationName(),
           instrumentationModule.getClass().getName());
       try {
+        if (lazyInstaller != null && lazyInstaller.defer(instrumentationModule)) {
+          numberOfDeferredModules++;
+          continue;
+        }
         agentBuilder = instrumentationModuleInstaller.install(instrumentationModule, agentBuilder);
         numberOfLoadedModules++;
       } catch (Exception | LinkageError e) {
@@ -48,6 +56,10 @@ public class InstrumentationLoader implements AgentExtension {
       }
     }
     log.debug("Installed {} instrumenter(s)", numberOfLoadedModules);
+    if (numberOfDeferredModules > 0) {
+      log.debug(
+          "Deferred {} instrumenter(s) until their classes are loaded", numberOfDeferredModules);
+    }
 
     return agentBuilder;
   }
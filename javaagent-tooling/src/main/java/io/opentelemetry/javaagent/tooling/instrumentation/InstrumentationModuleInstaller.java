@@ -16,6 +16,7 @@ import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.tooling.HelperInjector;
 import io.opentelemetry.javaagent.tooling.TransformSafeLogger;
 import io.opentelemetry.javaagent.tooling.Utils;
+import io.opentelemetry.javaagent.tooling.bytebuddy.TransformedClassCache;
 import io.opentelemetry.javaagent.tooling.context.FieldBackedProvider;
 import io.opentelemetry.javaagent.tooling.context.InstrumentationContextProvider;
 import io.opentelemetry.javaagent.tooling.context.NoopContextProvider;
@@ -64,7 +65,10 @@ public final class InstrumentationModuleInstaller {
 
     ElementMatcher.Junction<ClassLoader> moduleClassLoaderMatcher =
         instrumentationModule.classLoaderMatcher();
-    MuzzleMatcher muzzleMatcher = new MuzzleMatcher(instrumentationModule, helperClassNames);
+    InstrumentationCostTracker.ModuleCost cost =
+        InstrumentationCostTracker.moduleCost(instrumentationModule.instrumentationName());
+    AgentBuilder.RawMatcher muzzleMatcher =
+        cost.muzzleMatcher(new MuzzleMatcher(instrumentationModule, helperClassNames));
     AgentBuilder.Transformer helperInjector =
         new HelperInjector(
             instrumentationModule.instrumentationName(),
@@ -76,19 +80,24 @@ public final class InstrumentationModuleInstaller {
 
     AgentBuilder agentBuilder = parentAgentBuilder;
     for (TypeInstrumentation typeInstrumentation : typeInstrumentations) {
+      ElementMatcher.Junction<ClassLoader> classLoaderMatcher =
+          moduleClassLoaderMatcher.and(typeInstrumentation.classLoaderOptimization());
+      TransformedClassCache.registerClassLoaderMatcher(classLoaderMatcher);
       AgentBuilder.Identified.Extendable extendableAgentBuilder =
           agentBuilder
               .type(
                   failSafe(
-                      typeInstrumentation.typeMatcher(),
+                      cost.typeMatcher(
+                          TypeInstrumentationIndex.INSTANCE.index(
+                              typeInstrumentation.typeMatcher())),
                       "Instrumentation type matcher unexpected exception: " + getClass().getName()),
                   failSafe(
-                      moduleClassLoaderMatcher.and(typeInstrumentation.classLoaderOptimization()),
+                      cost.classLoaderMatcher(classLoaderMatcher),
                       "Instrumentation class loader matcher unexpected exception: "
                           + getClass().getName()))
               .and(NOT_DECORATOR_MATCHER)
               .and(muzzleMatcher)
-              .transform(ConstantAdjuster.instance())
+              .transform(cost.transformation(ConstantAdjuster.instance()))
               .transform(helperInjector);
       extendableAgentBuilder = contextProvider.instrumentationTransformer(extendableAgentBuilder);
       TypeTransformerImpl typeTransformer = new TypeTransformerImpl(extendableAgentBuilder);
@@ -121,12 +130,18 @@ public final class InstrumentationModuleInstaller {
     private final InstrumentationModule instrumentationModule;
     private final List<String> helperClassNames;
     private final AtomicBoolean initialized = new AtomicBoolean(false);
+    private final int replayableId;
     private volatile ReferenceMatcher referenceMatcher;
 
     private MuzzleMatcher(
         InstrumentationModule instrumentationModule, List<String> helperClassNames) {
       this.instrumentationModule = instrumentationModule;
       this.helperClassNames = helperClassNames;
+      this.replayableId =
+          TransformedClassCache.register(
+              (typeName, classLoader, isMatch) ->
+                  getReferenceMatcher().matches(classLoader) == isMatch,
+              "muzzle:" + instrumentationModule.instrumentationName());
     }
 
     @Override
@@ -138,6 +153,7 @@ public final class InstrumentationModuleInstaller {
         ProtectionDomain protectionDomain) {
       ReferenceMatcher muzzle = getReferenceMatcher();
       boolean isMatch = muzzle.matches(classLoader);
+      TransformedClassCache.record(replayableId, isMatch);
 
       if (!isMatch) {
         if (muzzleLog.isWarnEnabled()) {
@@ -174,7 +190,8 @@ public final class InstrumentationModuleInstaller {
             new ReferenceMatcher(
                 helperClassNames,
                 instrumentationModule.getMuzzleReferences(),
-                instrumentationModule::isHelperClass);
+                instrumentationModule::isHelperClass,
+                instrumentationModule.getClass().getName());
       }
       return referenceMatcher;
     }
@@ -0,0 +1,124 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits {@code io.opentelemetry.javaagent.InstrumentationCost} JDK Flight Recorder events. The
+ * agent is compiled for Java 8, which has no JFR API, so the event type is defined at runtime
+ * through {@code jdk.jfr.EventFactory} using reflection.
+ */
+final class JfrInstrumentationCostEvents {
+
+  private static final Logger log = LoggerFactory.getLogger(JfrInstrumentationCostEvents.class);
+
+  private static final String EVENT_NAME = "io.opentelemetry.javaagent.InstrumentationCost";
+
+  private final Object eventFactory;
+  private final Method newEvent;
+  private final Method set;
+  private final Method commit;
+
+  /** Returns the event emitter, or {@code null} if this JVM does not support JFR. */
+  @Nullable
+  static JfrInstrumentationCostEvents create() {
+    return create(ClassLoader.getSystemClassLoader());
+  }
+
+  // visible for testing
+  @Nullable
+  static JfrInstrumentationCostEvents create(ClassLoader classLoader) {
+    try {
+      return new JfrInstrumentationCostEvents(classLoader);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      log.debug("JFR is not available, instrumentation costs are only logged", e);
+      return null;
+    }
+  }
+
+  private JfrInstrumentationCostEvents(ClassLoader classLoader)
+      throws ReflectiveOperationException {
+    Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", true, classLoader);
+    Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor", true, classLoader);
+    Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory", true, classLoader);
+    Class<?> eventClass = Class.forName("jdk.jfr.Event", true, classLoader);
+    Constructor<?> annotationElement =
+        annotationElementClass.getConstructor(Class.class, Object.class);
+    Constructor<?> valueDescriptor =
+        valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+
+    List<Object> eventAnnotations =
+        Arrays.asList(
+            annotationElement.newInstance(annotation("jdk.jfr.Name", classLoader), EVENT_NAME),
+            annotationElement.newInstance(
+                annotation("jdk.jfr.Label", classLoader), "Instrumentation Cost"),
+            annotationElement.newInstance(
+                annotation("jdk.jfr.Description", classLoader),
+                "Time spent by an instrumentation module in a transformation phase since the"
+                    + " previous event"),
+            annotationElement.newInstance(
+                annotation("jdk.jfr.Category", classLoader),
+                new String[] {"OpenTelemetry", "Java Agent"}));
+    List<Object> fields =
+        Arrays.asList(
+            valueDescriptor.newInstance(String.class, "module", label("Module", classLoader)),
+            valueDescriptor.newInstance(String.class, "phase", label("Phase", classLoader)),
+            valueDescriptor.newInstance(long.class, "count", label("Count", classLoader)),
+            valueDescriptor.newInstance(
+                long.class,
+                "duration",
+                Arrays.asList(
+                    annotationElement.newInstance(
+                        annotation("jdk.jfr.Label", classLoader), "Duration"),
+                    annotationElement.newInstance(
+                        annotation("jdk.jfr.Timespan", classLoader), "NANOSECONDS"))));
+
+    eventFactory =
+        eventFactoryClass
+            .getMethod("create", List.class, List.class)
+            .invoke(null, eventAnnotations, fields);
+    newEvent = eventFactoryClass.getMethod("newEvent");
+    set = eventClass.getMethod("set", int.class, Object.class);
+    commit = eventClass.getMethod("commit");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<? extends Annotation> annotation(String name, ClassLoader classLoader)
+      throws ClassNotFoundException {
+    return (Class<? extends Annotation>) Class.forName(name, true, classLoader);
+  }
+
+  private static List<Object> label(String label, ClassLoader classLoader)
+      throws ReflectiveOperationException {
+    Constructor<?> annotationElement =
+        Class.forName("jdk.jfr.AnnotationElement", true, classLoader)
+            .getConstructor(Class.class, Object.class);
+    return Collections.singletonList(
+        annotationElement.newInstance(annotation("jdk.jfr.Label", classLoader), label));
+  }
+
+  void emit(String module, String phase, long count, long nanos) {
+    try {
+      Object event = newEvent.invoke(eventFactory);
+      set.invoke(event, 0, module);
+      set.invoke(event, 1, phase);
+      set.invoke(event, 2, count);
+      set.invoke(event, 3, nanos);
+      commit.invoke(event);
+    } catch (ReflectiveOperationException e) {
+      log.debug("Unable to emit instrumentation cost event", e);
+    }
+  }
+}
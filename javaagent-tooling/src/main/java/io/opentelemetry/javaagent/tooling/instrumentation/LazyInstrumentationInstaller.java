@@ -0,0 +1,231 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation;
+
+import io.opentelemetry.instrumentation.api.config.Config;
+import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
+import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
+import io.opentelemetry.javaagent.tooling.AgentInstaller;
+import io.opentelemetry.javaagent.tooling.bytebuddy.TransformedClassCache;
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Defers the installation of instrumentation modules until one of their trigger classes is loaded,
+ * which makes the agent start faster. The trigger classes of a module are the classes its type
+ * instrumentations match by name, or whose subtypes they match: no type can be instrumented by the
+ * module before one of them is loaded. Modules with type matchers that don't name a class, and
+ * modules with a trigger class that is already loaded, are installed right away.
+ *
+ * <p>When a trigger class is loaded, the module is installed on a background thread, which also
+ * retransforms the matching classes that are already loaded, including the trigger class itself.
+ * The classes that are loaded in the meantime may run uninstrumented for a short time, and fields
+ * are never injected into classes that were loaded before the module was installed: their context
+ * stores fall back to a map, as they do for the classes that are loaded before the agent.
+ *
+ * <p>All the modules installed lazily share one class file transformer, so that every class load
+ * pays for at most one more transformer, however many batches of modules were triggered. The
+ * agent builder of the active modules is extended with each batch, and its transformer replaces the
+ * previous one; the retransformation that comes with it runs the matchers of all active modules
+ * over the loaded classes. Triggers that arrive together are installed as one batch, and the time
+ * each batch takes is logged at debug level.
+ *
+ * <p>Lazy installation is enabled with {@code otel.javaagent.experimental.lazy-install.enabled}.
+ * It is not compatible with the transformed class cache, which needs to know all transformers when
+ * the agent starts.
+ */
+final class LazyInstrumentationInstaller {
+
+  private static final Logger log = LoggerFactory.getLogger(LazyInstrumentationInstaller.class);
+
+  private static final String LAZY_INSTALL_ENABLED_CONFIG =
+      "otel.javaagent.experimental.lazy-install.enabled";
+
+  private final BiFunction<InstrumentationModule, AgentBuilder, AgentBuilder> moduleInstaller;
+  private final Instrumentation instrumentation;
+  private final BiConsumer<String, Runnable> classLoadCallbacks;
+  private final Executor installer;
+  private final Set<String> loadedClassNames;
+  private final Set<InstrumentationModule> triggeredModules = ConcurrentHashMap.newKeySet();
+  private final Queue<InstrumentationModule> pendingModules = new ConcurrentLinkedQueue<>();
+
+  // only accessed by the installer
+  private AgentBuilder activeAgentBuilder;
+  private int activeModuleCount;
+  @Nullable private ResettableClassFileTransformer activeTransformer;
+
+  /**
+   * Returns a lazy installer that installs deferred modules with the given {@code
+   * parentAgentBuilder}, or {@code null} if lazy installation is disabled. The class load callbacks
+   * and the startup timings are added to the agent builder after the extensions, so the deferred
+   * modules' transformers don't run them a second time for every class.
+   */
+  @Nullable
+  static LazyInstrumentationInstaller create(
+      InstrumentationModuleInstaller instrumentationModuleInstaller,
+      AgentBuilder parentAgentBuilder) {
+    if (!Config.get().getBooleanProperty(LAZY_INSTALL_ENABLED_CONFIG, false)) {
+      return null;
+    }
+    Instrumentation instrumentation = AgentInstaller.getInstrumentation();
+    if (instrumentation == null) {
+      return null;
+    }
+    if (TransformedClassCache.isEnabled()) {
+      log.warn("Lazy installation is disabled because the transformed class cache is enabled");
+      return null;
+    }
+    return new LazyInstrumentationInstaller(
+        instrumentationModuleInstaller::install,
+        parentAgentBuilder,
+        instrumentation,
+        AgentInstaller::registerClassLoadCallback,
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "otel-javaagent-lazy-installer");
+              thread.setDaemon(true);
+              return thread;
+            }));
+  }
+
+  // visible for testing
+  LazyInstrumentationInstaller(
+      BiFunction<InstrumentationModule, AgentBuilder, AgentBuilder> moduleInstaller,
+      AgentBuilder parentAgentBuilder,
+      Instrumentation instrumentation,
+      BiConsumer<String, Runnable> classLoadCallbacks,
+      Executor installer) {
+    this.moduleInstaller = moduleInstaller;
+    this.activeAgentBuilder = parentAgentBuilder;
+    this.instrumentation = instrumentation;
+    this.classLoadCallbacks = classLoadCallbacks;
+    this.installer = installer;
+    Class<?>[] loadedClasses = instrumentation.getAllLoadedClasses();
+    loadedClassNames = new HashSet<>(loadedClasses.length);
+    for (Class<?> loadedClass : loadedClasses) {
+      loadedClassNames.add(loadedClass.getName());
+    }
+  }
+
+  /**
+   * Defers the installation of {@code instrumentationModule} until one of its trigger classes is
+   * loaded. Returns {@code false} if the module has to be installed right away.
+   */
+  boolean defer(InstrumentationModule instrumentationModule) {
+    if (!instrumentationModule.isEnabled()) {
+      return false;
+    }
+    Set<String> triggerClassNames = triggerClassNames(instrumentationModule);
+    if (triggerClassNames == null) {
+      return false;
+    }
+    for (String triggerClassName : triggerClassNames) {
+      if (loadedClassNames.contains(triggerClassName)) {
+        return false;
+      }
+    }
+    for (String triggerClassName : triggerClassNames) {
+      classLoadCallbacks.accept(
+          triggerClassName, () -> trigger(instrumentationModule, triggerClassName));
+    }
+    log.debug(
+        "Deferring instrumentation {} until one of {} is loaded",
+        instrumentationModule.instrumentationName(),
+        triggerClassNames);
+    return true;
+  }
+
+  @Nullable
+  private static Set<String> triggerClassNames(InstrumentationModule instrumentationModule) {
+    List<TypeInstrumentation> typeInstrumentations = instrumentationModule.typeInstrumentations();
+    if (typeInstrumentations.isEmpty()) {
+      return null;
+    }
+    Set<String> triggerClassNames = new LinkedHashSet<>();
+    for (TypeInstrumentation typeInstrumentation : typeInstrumentations) {
+      String name = TypeInstrumentationIndex.indexedName(typeInstrumentation.typeMatcher());
+      if (name == null) {
+        return null;
+      }
+      triggerClassNames.add(name);
+    }
+    return triggerClassNames;
+  }
+
+  // called from a class file transformer
+  private void trigger(InstrumentationModule instrumentationModule, String triggerClassName) {
+    if (triggeredModules.add(instrumentationModule)) {
+      log.debug(
+          "Installing instrumentation {} after {} was loaded",
+          instrumentationModule.instrumentationName(),
+          triggerClassName);
+      pendingModules.add(instrumentationModule);
+      installer.execute(this::installPendingModules);
+    }
+  }
+
+  private void installPendingModules() {
+    // modules triggered at about the same time are installed together
+    List<InstrumentationModule> instrumentationModules = new ArrayList<>();
+    InstrumentationModule instrumentationModule;
+    while ((instrumentationModule = pendingModules.poll()) != null) {
+      instrumentationModules.add(instrumentationModule);
+    }
+    if (instrumentationModules.isEmpty()) {
+      return;
+    }
+
+    long startNanos = System.nanoTime();
+    AgentBuilder agentBuilder = activeAgentBuilder;
+    for (InstrumentationModule module : instrumentationModules) {
+      try {
+        agentBuilder = moduleInstaller.apply(module, agentBuilder);
+        activeModuleCount++;
+      } catch (Exception | LinkageError e) {
+        log.error(
+            "Unable to load instrumentation {} [class {}]",
+            module.instrumentationName(),
+            module.getClass().getName(),
+            e);
+      }
+    }
+    activeAgentBuilder = agentBuilder;
+
+    // the previous transformer is removed first, the classes it transformed would otherwise be
+    // transformed twice when they are retransformed
+    if (activeTransformer != null) {
+      activeTransformer.reset(instrumentation, AgentBuilder.RedefinitionStrategy.DISABLED);
+      activeTransformer = null;
+    }
+    try {
+      activeTransformer = agentBuilder.installOn(instrumentation);
+    } catch (RuntimeException e) {
+      log.error("Unable to install deferred instrumentations", e);
+    }
+    log.debug(
+        "Installed {} deferred instrumentation(s) in {} ms, {} are active",
+        instrumentationModules.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+        activeModuleCount);
+  }
+}
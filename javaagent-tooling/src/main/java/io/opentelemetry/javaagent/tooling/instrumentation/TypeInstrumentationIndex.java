@@ -0,0 +1,244 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation;
+
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.extendsClass;
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.implementsInterface;
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.safeHasSuperType;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An index from class names and super type names to the type instrumentations that can match
+ * them. Every loaded class is otherwise run through the type matchers of all type
+ * instrumentations; with the index, the instrumentations whose type matcher is {@code
+ * named(...)}, or one of {@code implementsInterface(named(...))}, {@code
+ * extendsClass(named(...))} and {@code safeHasSuperType(named(...))}, reject a class with a single
+ * lookup of its name, or of the names of its super types which are collected once per class.
+ *
+ * <p>The index is only a filter: a class it does not rule out is still matched against the
+ * original type matcher. Type matchers that can't be indexed are used as they are.
+ */
+final class TypeInstrumentationIndex {
+
+  static final TypeInstrumentationIndex INSTANCE = new TypeInstrumentationIndex();
+
+  private static final Pattern PARENTHESIZED = Pattern.compile("\\(([^()]+)\\)");
+
+  @SuppressWarnings("unchecked")
+  private static final List<Function<String, ElementMatcher<TypeDescription>>>
+      SUPER_TYPE_MATCHERS =
+          Arrays.asList(
+              name -> implementsInterface(named(name)),
+              name -> extendsClass(named(name)),
+              name -> safeHasSuperType(named(name)));
+
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final ConcurrentMap<String, int[]> idsByName = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, int[]> idsBySuperTypeName = new ConcurrentHashMap<>();
+  private final ThreadLocal<Candidates> candidates = ThreadLocal.withInitial(Candidates::new);
+
+  // visible for testing
+  TypeInstrumentationIndex() {}
+
+  /**
+   * Adds {@code typeMatcher} to the index if it can be indexed, and returns the matcher that should
+   * be used in its place.
+   */
+  ElementMatcher<TypeDescription> index(ElementMatcher<TypeDescription> typeMatcher) {
+    String name = indexedName(typeMatcher, typeName -> named(typeName));
+    if (name != null) {
+      int id = nextId.getAndIncrement();
+      add(idsByName, name, id);
+      return new IndexedMatcher(this, id, false, typeMatcher);
+    }
+    for (Function<String, ElementMatcher<TypeDescription>> superTypeMatcher : SUPER_TYPE_MATCHERS) {
+      name = indexedName(typeMatcher, superTypeMatcher);
+      if (name != null) {
+        int id = nextId.getAndIncrement();
+        add(idsBySuperTypeName, name, id);
+        return new IndexedMatcher(this, id, true, typeMatcher);
+      }
+    }
+    return typeMatcher;
+  }
+
+  /**
+   * Returns the name of the class that a type has to be, or has to extend or implement, to be
+   * matched by {@code typeMatcher}, or {@code null} if {@code typeMatcher} can't be indexed.
+   */
+  @Nullable
+  static String indexedName(ElementMatcher<TypeDescription> typeMatcher) {
+    String name = indexedName(typeMatcher, typeName -> named(typeName));
+    if (name != null) {
+      return name;
+    }
+    for (Function<String, ElementMatcher<TypeDescription>> superTypeMatcher : SUPER_TYPE_MATCHERS) {
+      name = indexedName(typeMatcher, superTypeMatcher);
+      if (name != null) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the class name {@code typeMatcher} was built from with {@code factory}, or {@code null}
+   * if it was not. Matchers don't expose what they match, so candidate names are taken from their
+   * description, and a candidate is only accepted if {@code factory} builds an equal matcher from
+   * it.
+   */
+  @Nullable
+  private static String indexedName(
+      ElementMatcher<TypeDescription> typeMatcher,
+      Function<String, ElementMatcher<TypeDescription>> factory) {
+    Matcher parenthesized = PARENTHESIZED.matcher(typeMatcher.toString());
+    while (parenthesized.find()) {
+      String candidate = parenthesized.group(1);
+      if (factory.apply(candidate).equals(typeMatcher)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private static void add(ConcurrentMap<String, int[]> index, String name, int id) {
+    index.compute(
+        name,
+        (key, ids) -> {
+          if (ids == null) {
+            return new int[] {id};
+          }
+          int[] newIds = Arrays.copyOf(ids, ids.length + 1);
+          newIds[ids.length] = id;
+          return newIds;
+        });
+  }
+
+  private boolean isCandidate(TypeDescription type, int id, boolean bySuperType) {
+    Candidates typeCandidates = candidates.get();
+    if (typeCandidates.type.get() != type) {
+      typeCandidates.reset(type);
+    }
+    if (!bySuperType) {
+      if (typeCandidates.byName == null) {
+        int[] ids = idsByName.get(type.getActualName());
+        typeCandidates.byName = ids == null ? new int[0] : ids;
+      }
+      for (int candidate : typeCandidates.byName) {
+        if (candidate == id) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (!typeCandidates.superTypesResolved) {
+      typeCandidates.bySuperTypeName = superTypeCandidates(type);
+      typeCandidates.superTypesResolved = true;
+    }
+    // null when the type hierarchy could not be resolved completely
+    return typeCandidates.bySuperTypeName == null || typeCandidates.bySuperTypeName.get(id);
+  }
+
+  @Nullable
+  private BitSet superTypeCandidates(TypeDescription type) {
+    Set<String> names = new HashSet<>();
+    try {
+      TypeDefinition typeDefinition = type;
+      while (typeDefinition != null) {
+        names.add(typeDefinition.asErasure().getActualName());
+        collectInterfaceNames(typeDefinition, names);
+        typeDefinition = typeDefinition.getSuperClass();
+      }
+    } catch (RuntimeException e) {
+      // a super type is missing; let the type matchers deal with it the way they usually do
+      return null;
+    }
+    BitSet ids = new BitSet();
+    for (String name : names) {
+      int[] nameIds = idsBySuperTypeName.get(name);
+      if (nameIds != null) {
+        for (int id : nameIds) {
+          ids.set(id);
+        }
+      }
+    }
+    return ids;
+  }
+
+  private static void collectInterfaceNames(TypeDefinition typeDefinition, Set<String> names) {
+    for (TypeDescription.Generic interfaceType : typeDefinition.getInterfaces()) {
+      if (names.add(interfaceType.asErasure().getActualName())) {
+        collectInterfaceNames(interfaceType, names);
+      }
+    }
+  }
+
+  /**
+   * The candidate instrumentations of the type that is currently being matched on a thread. All
+   * type matchers are called with the same {@link TypeDescription} instance when a class is loaded,
+   * so the candidates are computed once per class.
+   */
+  private static final class Candidates {
+    // weak, so that the last matched type does not keep its class loader alive
+    private WeakReference<TypeDescription> type = new WeakReference<>(null);
+    @Nullable private int[] byName;
+    @Nullable private BitSet bySuperTypeName;
+    private boolean superTypesResolved;
+
+    private void reset(TypeDescription type) {
+      this.type = new WeakReference<>(type);
+      byName = null;
+      bySuperTypeName = null;
+      superTypesResolved = false;
+    }
+  }
+
+  private static final class IndexedMatcher
+      extends ElementMatcher.Junction.AbstractBase<TypeDescription> {
+    private final TypeInstrumentationIndex index;
+    private final int id;
+    private final boolean bySuperType;
+    private final ElementMatcher<TypeDescription> delegate;
+
+    private IndexedMatcher(
+        TypeInstrumentationIndex index,
+        int id,
+        boolean bySuperType,
+        ElementMatcher<TypeDescription> delegate) {
+      this.index = index;
+      this.id = id;
+      this.bySuperType = bySuperType;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean matches(TypeDescription target) {
+      return index.isCandidate(target, id, bySuperType) && delegate.matches(target);
+    }
+
+    @Override
+    public String toString() {
+      return "indexed(" + delegate + ")";
+    }
+  }
+}
@@ -5,9 +5,6 @@
 
 package io.opentelemetry.javaagent.tooling.matcher;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
@@ -19,7 +16,8 @@ import net.bytebuddy.matcher.ElementMatcher;
  * that we should be able to remove this matcher from the agent and all tests should still pass.
  * Moreover, no classes matched by this matcher should be modified during test run.
  *
- * <p>TODO: refactor/optimize this class (spring boot approach as a possible solution)
+ * <p>The rules are compiled into a {@link ClassNameTrie}, so that a class name is classified in a
+ * single pass over its characters.
  */
 public class AdditionalLibraryIgnoresMatcher
     extends ElementMatcher.Junction.AbstractBase<TypeDescription> {
@@ -28,330 +26,231 @@ public class AdditionalLibraryIgnoresMatcher
     return new AdditionalLibraryIgnoresMatcher();
   }
 
-  /**
-   * Be very careful about the types of matchers used in this section as they are called on every
-   * class load, so they must be fast. Generally speaking try to only use name matchers as they
-   * don't have to load additional info.
-   */
+  private static final ClassNameTrie<IgnoreDecision> RULES =
+      addRules(ClassNameTrie.builder()).build();
+
   @Override
   public boolean matches(TypeDescription target) {
-    String name = target.getActualName();
-
-    if (name.startsWith("com.beust.jcommander.")
-        || name.startsWith("com.fasterxml.classmate.")
-        || name.startsWith("com.github.mustachejava.")
-        || name.startsWith("com.jayway.jsonpath.")
-        || name.startsWith("com.lightbend.lagom.")
-        || name.startsWith("javax.el.")
-        || name.startsWith("org.apache.lucene.")
-        || name.startsWith("org.apache.tartarus.")
-        || name.startsWith("org.json.simple.")
-        || name.startsWith("org.yaml.snakeyaml.")) {
-      return true;
-    }
-
-    if (name.startsWith("net.sf.cglib.")) {
-      return !name.equals("net.sf.cglib.core.internal.LoadingCache$2");
-    }
+    return RULES.get(target.getActualName()) == IgnoreDecision.LIBRARY_IGNORE;
+  }
 
-    if (name.startsWith("org.springframework.")) {
-      if (name.startsWith("org.springframework.aop.")
-          || name.startsWith("org.springframework.cache.")
-          || name.startsWith("org.springframework.dao.")
-          || name.startsWith("org.springframework.ejb.")
-          || name.startsWith("org.springframework.expression.")
-          || name.startsWith("org.springframework.format.")
-          || name.startsWith("org.springframework.jca.")
-          || name.startsWith("org.springframework.jdbc.")
-          || name.startsWith("org.springframework.jmx.")
-          || name.startsWith("org.springframework.jndi.")
-          || name.startsWith("org.springframework.lang.")
-          || name.startsWith("org.springframework.messaging.")
-          || name.startsWith("org.springframework.objenesis.")
-          || name.startsWith("org.springframework.orm.")
-          || name.startsWith("org.springframework.remoting.")
-          || name.startsWith("org.springframework.scripting.")
-          || name.startsWith("org.springframework.stereotype.")
-          || name.startsWith("org.springframework.transaction.")
-          || name.startsWith("org.springframework.ui.")
-          || name.startsWith("org.springframework.validation.")) {
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.data.")) {
-        if (name.equals("org.springframework.data.repository.core.support.RepositoryFactorySupport")
-            || name.startsWith(
-                "org.springframework.data.convert.ClassGeneratingEntityInstantiator$")
-            || name.equals(
-                "org.springframework.data.jpa.repository.config.InspectionClassLoader")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.amqp.")) {
-        if (name.startsWith("org.springframework.amqp.rabbit.connection.")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.beans.")) {
-        if (name.equals("org.springframework.beans.factory.support.DisposableBeanAdapter")
-            || name.startsWith(
-                "org.springframework.beans.factory.groovy.GroovyBeanDefinitionReader$")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.boot.")) {
-        return !instrumentedSpringBootClasses(name)
-            && !name.startsWith("org.springframework.boot.context.web.")
-            && !name.startsWith("org.springframework.boot.logging.logback.")
-            && !name.startsWith("org.springframework.boot.web.filter.")
-            && !name.startsWith("org.springframework.boot.web.servlet.");
-      }
-
-      if (name.startsWith("org.springframework.cglib.")) {
-        // This class contains nested Callable instance that we'd happily not touch, but
-        // unfortunately our field injection code is not flexible enough to realize that, so instead
-        // we instrument this Callable to make tests happy.
-        if (name.startsWith("org.springframework.cglib.core.internal.LoadingCache$")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.context.")) {
-        // More runnables to deal with
-        if (name.startsWith("org.springframework.context.support.AbstractApplicationContext$")
-            || name.equals("org.springframework.context.support.ContextTypeMatchClassLoader")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.core.")) {
-        if (name.startsWith("org.springframework.core.task.")
-            || name.equals("org.springframework.core.DecoratingClassLoader")
-            || name.equals("org.springframework.core.OverridingClassLoader")
-            || name.equals(
-                "org.springframework.core.ReactiveAdapterRegistry$EmptyCompletableFuture")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.instrument.")) {
-        if (name.equals("org.springframework.instrument.classloading.SimpleThrowawayClassLoader")
-            || name.equals("org.springframework.instrument.classloading.ShadowingClassLoader")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.http.")) {
-        // There are some Mono implementation that get instrumented
-        if (name.startsWith("org.springframework.http.server.reactive.")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.jms.")) {
-        if (name.startsWith("org.springframework.jms.listener.")
-            || name.equals(
-                "org.springframework.jms.config.JmsListenerEndpointRegistry$AggregatingCallback")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.util.")) {
-        if (name.startsWith("org.springframework.util.concurrent.")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.web.")) {
-        if (name.startsWith("org.springframework.web.servlet.")
-            || name.startsWith("org.springframework.web.filter.")
-            || name.startsWith("org.springframework.web.reactive.")
-            || name.startsWith("org.springframework.web.context.request.async.")
-            || name.equals(
-                "org.springframework.web.context.support.AbstractRefreshableWebApplicationContext")
-            || name.equals("org.springframework.web.context.support.GenericWebApplicationContext")
-            || name.equals("org.springframework.web.context.support.XmlWebApplicationContext")) {
-          return false;
-        }
-        return true;
-      }
-
-      return false;
-    }
+  /**
+   * Adds the additional library rules to {@code rules}. The rules are compiled into a {@link
+   * ClassNameTrie}, where the exact class name or else the longest matching prefix decides, so
+   * every exception to an ignored package is simply a more specific rule. The trie is queried on
+   * every class load, so only rules based on the class name can be added here.
+   */
+  static ClassNameTrie.Builder<IgnoreDecision> addRules(
+      ClassNameTrie.Builder<IgnoreDecision> rules) {
+    Rules r = new Rules(rules);
+
+    r.ignore("com.beust.jcommander.")
+        .ignore("com.fasterxml.classmate.")
+        .ignore("com.github.mustachejava.")
+        .ignore("com.jayway.jsonpath.")
+        .ignore("com.lightbend.lagom.")
+        .ignore("javax.el.")
+        .ignore("org.apache.lucene.")
+        .ignore("org.apache.tartarus.")
+        .ignore("org.json.simple.")
+        .ignore("org.yaml.snakeyaml.");
+
+    r.ignore("net.sf.cglib.").allowClass("net.sf.cglib.core.internal.LoadingCache$2");
+
+    // spring packages that are not listed below are not ignored
+    r.allow("org.springframework.")
+        .ignore("org.springframework.aop.")
+        .ignore("org.springframework.cache.")
+        .ignore("org.springframework.dao.")
+        .ignore("org.springframework.ejb.")
+        .ignore("org.springframework.expression.")
+        .ignore("org.springframework.format.")
+        .ignore("org.springframework.jca.")
+        .ignore("org.springframework.jdbc.")
+        .ignore("org.springframework.jmx.")
+        .ignore("org.springframework.jndi.")
+        .ignore("org.springframework.lang.")
+        .ignore("org.springframework.messaging.")
+        .ignore("org.springframework.objenesis.")
+        .ignore("org.springframework.orm.")
+        .ignore("org.springframework.remoting.")
+        .ignore("org.springframework.scripting.")
+        .ignore("org.springframework.stereotype.")
+        .ignore("org.springframework.transaction.")
+        .ignore("org.springframework.ui.")
+        .ignore("org.springframework.validation.");
+
+    r.ignore("org.springframework.data.")
+        .allowClass("org.springframework.data.repository.core.support.RepositoryFactorySupport")
+        .allow("org.springframework.data.convert.ClassGeneratingEntityInstantiator$")
+        .allowClass("org.springframework.data.jpa.repository.config.InspectionClassLoader");
+
+    r.ignore("org.springframework.amqp.").allow("org.springframework.amqp.rabbit.connection.");
+
+    r.ignore("org.springframework.beans.")
+        .allowClass("org.springframework.beans.factory.support.DisposableBeanAdapter")
+        .allow("org.springframework.beans.factory.groovy.GroovyBeanDefinitionReader$");
+
+    r.ignore("org.springframework.boot.")
+        .allow("org.springframework.boot.context.web.")
+        .allow("org.springframework.boot.logging.logback.")
+        .allow("org.springframework.boot.web.filter.")
+        .allow("org.springframework.boot.web.servlet.");
+    // names ending with '$' allow all inner classes of the class, the others only the class itself
+    r.allow("org.springframework.boot.autoconfigure.BackgroundPreinitializer$")
+        .allow("org.springframework.boot.autoconfigure.condition.OnClassCondition$")
+        .allow("org.springframework.boot.web.embedded.netty.NettyWebServer$")
+        .allow("org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainer$")
+        .allowClass(
+            "org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedWebappClassLoader")
+        .allowClass("org.springframework.boot.context.embedded.EmbeddedWebApplicationContext")
+        .allowClass(
+            "org.springframework.boot.context.embedded.AnnotationConfigEmbeddedWebApplicationContext")
+        // spring boot 2 classes
+        .allowClass(
+            "org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext")
+        .allowClass(
+            "org.springframework.boot.web.servlet.context.AnnotationConfigServletWebServerApplicationContext")
+        .allow("org.springframework.boot.web.embedded.tomcat.TomcatWebServer$")
+        .allowClass("org.springframework.boot.web.embedded.tomcat.TomcatEmbeddedWebappClassLoader")
+        .allow("org.springframework.boot.web.servlet.DelegatingFilterProxyRegistrationBean$")
+        .allow("org.springframework.boot.StartupInfoLogger$");
+
+    // This class contains nested Callable instance that we'd happily not touch, but
+    // unfortunately our field injection code is not flexible enough to realize that, so instead
+    // we instrument this Callable to make tests happy.
+    r.ignore("org.springframework.cglib.")
+        .allow("org.springframework.cglib.core.internal.LoadingCache$");
+
+    // More runnables to deal with
+    r.ignore("org.springframework.context.")
+        .allow("org.springframework.context.support.AbstractApplicationContext$")
+        .allowClass("org.springframework.context.support.ContextTypeMatchClassLoader");
+
+    r.ignore("org.springframework.core.")
+        .allow("org.springframework.core.task.")
+        .allowClass("org.springframework.core.DecoratingClassLoader")
+        .allowClass("org.springframework.core.OverridingClassLoader")
+        .allowClass("org.springframework.core.ReactiveAdapterRegistry$EmptyCompletableFuture");
+
+    r.ignore("org.springframework.instrument.")
+        .allowClass("org.springframework.instrument.classloading.SimpleThrowawayClassLoader")
+        .allowClass("org.springframework.instrument.classloading.ShadowingClassLoader");
+
+    // There are some Mono implementation that get instrumented
+    r.ignore("org.springframework.http.").allow("org.springframework.http.server.reactive.");
+
+    r.ignore("org.springframework.jms.")
+        .allow("org.springframework.jms.listener.")
+        .allowClass(
+            "org.springframework.jms.config.JmsListenerEndpointRegistry$AggregatingCallback");
+
+    r.ignore("org.springframework.util.").allow("org.springframework.util.concurrent.");
+
+    r.ignore("org.springframework.web.")
+        .allow("org.springframework.web.servlet.")
+        .allow("org.springframework.web.filter.")
+        .allow("org.springframework.web.reactive.")
+        .allow("org.springframework.web.context.request.async.")
+        .allowClass(
+            "org.springframework.web.context.support.AbstractRefreshableWebApplicationContext")
+        .allowClass("org.springframework.web.context.support.GenericWebApplicationContext")
+        .allowClass("org.springframework.web.context.support.XmlWebApplicationContext");
 
     // xml-apis, xerces, xalan, but not xml web-services
-    if ((name.startsWith("javax.xml.") && !name.startsWith("javax.xml.ws."))
-        || name.startsWith("org.apache.bcel.")
-        || name.startsWith("org.apache.html.")
-        || name.startsWith("org.apache.regexp.")
-        || name.startsWith("org.apache.wml.")
-        || name.startsWith("org.apache.xalan.")
-        || name.startsWith("org.apache.xerces.")
-        || name.startsWith("org.apache.xml.")
-        || name.startsWith("org.apache.xpath.")
-        || name.startsWith("org.xml.")) {
-      return true;
-    }
+    r.ignore("javax.xml.")
+        .allow("javax.xml.ws.")
+        .ignore("org.apache.bcel.")
+        .ignore("org.apache.html.")
+        .ignore("org.apache.regexp.")
+        .ignore("org.apache.wml.")
+        .ignore("org.apache.xalan.")
+        .ignore("org.apache.xerces.")
+        .ignore("org.apache.xml.")
+        .ignore("org.apache.xpath.")
+        .ignore("org.xml.");
+
+    r.ignore("ch.qos.logback.")
+        // We instrument this Runnable
+        .allowClass("ch.qos.logback.core.AsyncAppenderBase$Worker")
+        // Allow instrumenting loggers & events
+        .allowClass("ch.qos.logback.classic.Logger")
+        .allowClass("ch.qos.logback.classic.spi.LoggingEvent")
+        .allowClass("ch.qos.logback.classic.spi.LoggingEventVO");
+
+    // We instrument servlets
+    r.ignore("com.codahale.metrics.").allow("com.codahale.metrics.servlets.");
+
+    // Couchbase library includes some packaged dependencies, unfortunately some of them are
+    // instrumented by executors instrumentation
+    r.ignore("com.couchbase.client.deps.")
+        .allow("com.couchbase.client.deps.io.netty.")
+        .allow("com.couchbase.client.deps.org.LatencyUtils.")
+        .allow("com.couchbase.client.deps.com.lmax.disruptor.");
+
+    r.ignore("com.google.cloud.")
+        .ignore("com.google.instrumentation.")
+        .ignore("com.google.j2objc.")
+        .ignore("com.google.gson.")
+        .ignore("com.google.logging.")
+        .ignore("com.google.longrunning.")
+        .ignore("com.google.protobuf.")
+        .ignore("com.google.rpc.")
+        .ignore("com.google.thirdparty.")
+        .ignore("com.google.type.");
+    r.ignore("com.google.common.")
+        .allow("com.google.common.util.concurrent.")
+        .allowClass("com.google.common.base.internal.Finalizer");
+    r.ignore("com.google.inject.")
+        // We instrument Runnable there
+        .allow("com.google.inject.internal.AbstractBindingProcessor$")
+        .allow("com.google.inject.internal.BytecodeGen$")
+        // We instrument Runnable and Callable there
+        .allow("com.google.inject.internal.cglib.core.internal.$LoadingCache$");
+    r.ignore("com.google.api.").allow("com.google.api.client.http.HttpRequest");
+
+    r.ignore("org.h2.")
+        .allowClass("org.h2.Driver")
+        .allow("org.h2.jdbc.")
+        .allow("org.h2.jdbcx.")
+        // Some runnables that get instrumented
+        .allowClass("org.h2.util.Task")
+        .allowClass("org.h2.store.FileLock")
+        .allowClass("org.h2.engine.DatabaseCloser")
+        .allowClass("org.h2.engine.OnExitDatabaseCloser");
+
+    r.ignore("com.carrotsearch.hppc.").allow("com.carrotsearch.hppc.HashOrderMixing$");
+
+    r.ignore("com.fasterxml.jackson.")
+        .allowClass("com.fasterxml.jackson.module.afterburner.util.MyClassLoader");
 
-    if (name.startsWith("ch.qos.logback.")) {
-      // We instrument this Runnable
-      if (name.equals("ch.qos.logback.core.AsyncAppenderBase$Worker")) {
-        return false;
-      }
-      // Allow instrumenting loggers & events
-      if (name.equals("ch.qos.logback.classic.Logger")
-          || name.equals("ch.qos.logback.classic.spi.LoggingEvent")
-          || name.equals("ch.qos.logback.classic.spi.LoggingEventVO")) {
-        return false;
-      }
-      return true;
-    }
-
-    if (name.startsWith("com.codahale.metrics.")) {
-      // We instrument servlets
-      if (name.startsWith("com.codahale.metrics.servlets.")) {
-        return false;
-      }
-      return true;
-    }
+    // kotlin, note we do not ignore kotlinx because we instrument coroutins code
+    r.ignore("kotlin.").allowClass("kotlin.coroutines.jvm.internal.DebugProbesKt");
 
-    if (name.startsWith("com.couchbase.client.deps.")) {
-      // Couchbase library includes some packaged dependencies, unfortunately some of them are
-      // instrumented by executors instrumentation
-      if (name.startsWith("com.couchbase.client.deps.io.netty.")
-          || name.startsWith("com.couchbase.client.deps.org.LatencyUtils.")
-          || name.startsWith("com.couchbase.client.deps.com.lmax.disruptor.")) {
-        return false;
-      }
-      return true;
-    }
+    return rules;
+  }
 
-    if (name.startsWith("com.google.cloud.")
-        || name.startsWith("com.google.instrumentation.")
-        || name.startsWith("com.google.j2objc.")
-        || name.startsWith("com.google.gson.")
-        || name.startsWith("com.google.logging.")
-        || name.startsWith("com.google.longrunning.")
-        || name.startsWith("com.google.protobuf.")
-        || name.startsWith("com.google.rpc.")
-        || name.startsWith("com.google.thirdparty.")
-        || name.startsWith("com.google.type.")) {
-      return true;
-    }
-    if (name.startsWith("com.google.common.")) {
-      if (name.startsWith("com.google.common.util.concurrent.")
-          || name.equals("com.google.common.base.internal.Finalizer")) {
-        return false;
-      }
-      return true;
-    }
-    if (name.startsWith("com.google.inject.")) {
-      // We instrument Runnable there
-      if (name.startsWith("com.google.inject.internal.AbstractBindingProcessor$")
-          || name.startsWith("com.google.inject.internal.BytecodeGen$")
-          || name.startsWith("com.google.inject.internal.cglib.core.internal.$LoadingCache$")) {
-        return false;
-      }
-      // We instrument Callable there
-      if (name.startsWith("com.google.inject.internal.cglib.core.internal.$LoadingCache$")) {
-        return false;
-      }
-      return true;
-    }
-    if (name.startsWith("com.google.api.")) {
-      if (name.startsWith("com.google.api.client.http.HttpRequest")) {
-        return false;
-      }
-      return true;
-    }
+  private static final class Rules {
+    private final ClassNameTrie.Builder<IgnoreDecision> rules;
 
-    if (name.startsWith("org.h2.")) {
-      if (name.equals("org.h2.Driver")
-          || name.startsWith("org.h2.jdbc.")
-          || name.startsWith("org.h2.jdbcx.")
-          // Some runnables that get instrumented
-          || name.equals("org.h2.util.Task")
-          || name.equals("org.h2.store.FileLock")
-          || name.equals("org.h2.engine.DatabaseCloser")
-          || name.equals("org.h2.engine.OnExitDatabaseCloser")) {
-        return false;
-      }
-      return true;
+    private Rules(ClassNameTrie.Builder<IgnoreDecision> rules) {
+      this.rules = rules;
     }
 
-    if (name.startsWith("com.carrotsearch.hppc.")) {
-      if (name.startsWith("com.carrotsearch.hppc.HashOrderMixing$")) {
-        return false;
-      }
-      return true;
+    Rules ignore(String prefix) {
+      rules.prefix(prefix, IgnoreDecision.LIBRARY_IGNORE);
+      return this;
     }
 
-    if (name.startsWith("com.fasterxml.jackson.")) {
-      if (name.equals("com.fasterxml.jackson.module.afterburner.util.MyClassLoader")) {
-        return false;
-      }
-      return true;
+    Rules allow(String prefix) {
+      rules.prefix(prefix, IgnoreDecision.LIBRARY_ALLOW);
+      return this;
     }
 
-    // kotlin, note we do not ignore kotlinx because we instrument coroutins code
-    if (name.startsWith("kotlin.")) {
-      if (name.equals("kotlin.coroutines.jvm.internal.DebugProbesKt")) {
-        return false;
-      }
-      return true;
+    Rules allowClass(String className) {
+      rules.exact(className, IgnoreDecision.LIBRARY_ALLOW);
+      return this;
     }
-
-    return false;
-  }
-
-  private static final Set<String> INSTRUMENTED_SPRING_BOOT_CLASSES;
-
-  static {
-    Set<String> instrumented = new HashSet<>();
-    instrumented.add("org.springframework.boot.autoconfigure.BackgroundPreinitializer$");
-    instrumented.add("org.springframework.boot.autoconfigure.condition.OnClassCondition$");
-    instrumented.add("org.springframework.boot.web.embedded.netty.NettyWebServer$");
-    instrumented.add(
-        "org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainer$");
-    instrumented.add(
-        "org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedWebappClassLoader");
-    instrumented.add("org.springframework.boot.context.embedded.EmbeddedWebApplicationContext");
-    instrumented.add(
-        "org.springframework.boot.context.embedded.AnnotationConfigEmbeddedWebApplicationContext");
-    // spring boot 2 classes
-    instrumented.add(
-        "org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext");
-    instrumented.add(
-        "org.springframework.boot.web.servlet.context.AnnotationConfigServletWebServerApplicationContext");
-    instrumented.add("org.springframework.boot.web.embedded.tomcat.TomcatWebServer$");
-    instrumented.add(
-        "org.springframework.boot.web.embedded.tomcat.TomcatEmbeddedWebappClassLoader");
-    instrumented.add("org.springframework.boot.web.servlet.DelegatingFilterProxyRegistrationBean$");
-    instrumented.add("org.springframework.boot.StartupInfoLogger$");
-    INSTRUMENTED_SPRING_BOOT_CLASSES = Collections.unmodifiableSet(instrumented);
-  }
-
-  private static String outerClassName(final String name) {
-    int separator = name.indexOf('$');
-    return (separator == -1 ? name : name.substring(0, separator + 1));
-  }
-
-  private static boolean instrumentedSpringBootClasses(final String name) {
-    String outerName = outerClassName(name);
-    return INSTRUMENTED_SPRING_BOOT_CLASSES.contains(outerName);
   }
 
   @Override
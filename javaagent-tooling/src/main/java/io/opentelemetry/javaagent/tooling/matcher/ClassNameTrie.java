@@ -0,0 +1,131 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.matcher;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable character trie which maps class name prefixes and exact class names to values. A
+ * lookup walks the class name once, and returns the value of the exact match if there is one, or
+ * else the value of the longest matching prefix.
+ */
+final class ClassNameTrie<V> {
+
+  static <V> Builder<V> builder() {
+    return new Builder<>();
+  }
+
+  private final Node<V> root;
+
+  private ClassNameTrie(Node<V> root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns the value of {@code className} if it was added as an exact name, or else the value of
+   * the longest prefix of {@code className}, or {@code null} if there is neither.
+   */
+  @Nullable
+  V get(String className) {
+    Node<V> node = root;
+    V match = root.prefixValue;
+    for (int i = 0; i < className.length(); i++) {
+      node = node.child(className.charAt(i));
+      if (node == null) {
+        return match;
+      }
+      if (node.prefixValue != null) {
+        match = node.prefixValue;
+      }
+    }
+    return node.exactValue != null ? node.exactValue : match;
+  }
+
+  private static final class Node<V> {
+    // sorted, for binary search
+    private final char[] keys;
+    private final Node<V>[] children;
+    @Nullable private final V prefixValue;
+    @Nullable private final V exactValue;
+
+    private Node(char[] keys, Node<V>[] children, @Nullable V prefixValue, @Nullable V exactValue) {
+      this.keys = keys;
+      this.children = children;
+      this.prefixValue = prefixValue;
+      this.exactValue = exactValue;
+    }
+
+    @Nullable
+    Node<V> child(char c) {
+      int index = Arrays.binarySearch(keys, c);
+      return index >= 0 ? children[index] : null;
+    }
+  }
+
+  static final class Builder<V> {
+    private final MutableNode<V> root = new MutableNode<>();
+
+    private Builder() {}
+
+    /** Maps all class names starting with {@code prefix} to {@code value}. */
+    Builder<V> prefix(String prefix, V value) {
+      node(prefix).prefixValue = value;
+      return this;
+    }
+
+    /**
+     * Maps all class names starting with {@code prefix} to {@code value}, discarding every more
+     * specific prefix or exact name under {@code prefix} that was added before.
+     */
+    Builder<V> replacePrefix(String prefix, V value) {
+      MutableNode<V> node = node(prefix);
+      node.children.clear();
+      node.exactValue = null;
+      node.prefixValue = value;
+      return this;
+    }
+
+    /** Maps the class name {@code className} to {@code value}. */
+    Builder<V> exact(String className, V value) {
+      node(className).exactValue = value;
+      return this;
+    }
+
+    ClassNameTrie<V> build() {
+      return new ClassNameTrie<>(root.compile());
+    }
+
+    private MutableNode<V> node(String name) {
+      MutableNode<V> node = root;
+      for (int i = 0; i < name.length(); i++) {
+        node = node.children.computeIfAbsent(name.charAt(i), c -> new MutableNode<>());
+      }
+      return node;
+    }
+  }
+
+  private static final class MutableNode<V> {
+    private final Map<Character, MutableNode<V>> children = new TreeMap<>();
+    @Nullable private V prefixValue;
+    @Nullable private V exactValue;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Node<V> compile() {
+      char[] keys = new char[children.size()];
+      Node<V>[] compiled = new Node[children.size()];
+      int i = 0;
+      for (Map.Entry<Character, MutableNode<V>> entry : children.entrySet()) {
+        keys[i] = entry.getKey();
+        compiled[i] = entry.getValue().compile();
+        i++;
+      }
+      return new Node<>(keys, compiled, prefixValue, exactValue);
+    }
+  }
+}
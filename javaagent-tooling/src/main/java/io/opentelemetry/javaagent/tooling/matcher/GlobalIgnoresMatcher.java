@@ -5,7 +5,13 @@
 
 package io.opentelemetry.javaagent.tooling.matcher;
 
+import static io.opentelemetry.javaagent.tooling.matcher.IgnoreDecision.ALLOW;
+import static io.opentelemetry.javaagent.tooling.matcher.IgnoreDecision.EXCLUDE;
+import static io.opentelemetry.javaagent.tooling.matcher.IgnoreDecision.IGNORE;
+import static io.opentelemetry.javaagent.tooling.matcher.IgnoreDecision.LIBRARY_IGNORE;
+
 import io.opentelemetry.javaagent.spi.IgnoreMatcherProvider;
+import java.util.List;
 import java.util.regex.Pattern;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
@@ -25,6 +31,11 @@ import net.bytebuddy.matcher.ElementMatcher;
  *   Uses {@link AdditionalLibraryIgnoresMatcher} to also ignore additional classes to minimize
  *   number of classes we apply expensive matchers to.
  * </ul>
+ *
+ * <p>All rules based on a class name prefix or an exact class name, including the additional
+ * library rules and the classes excluded with {@code otel.javaagent.exclude-classes}, are compiled
+ * into a single {@link ClassNameTrie}, so that a class name is classified in one pass over its
+ * characters.
  */
 public class GlobalIgnoresMatcher extends ElementMatcher.Junction.AbstractBase<TypeDescription> {
 
@@ -32,19 +43,121 @@ public class GlobalIgnoresMatcher extends ElementMatcher.Junction.AbstractBase<T
       Pattern.compile("com\\.mchange\\.v2\\.c3p0\\..*Proxy");
 
   public static ElementMatcher.Junction<TypeDescription> globalIgnoresMatcher(
-      boolean additionalLibraryMatcher, IgnoreMatcherProvider ignoreMatcherProviders) {
-    return new GlobalIgnoresMatcher(additionalLibraryMatcher, ignoreMatcherProviders);
+      boolean additionalLibraryMatcher,
+      IgnoreMatcherProvider ignoreMatcherProviders,
+      List<String> excludedClasses) {
+    return new GlobalIgnoresMatcher(
+        additionalLibraryMatcher, ignoreMatcherProviders, excludedClasses);
   }
 
-  private final ElementMatcher<TypeDescription> additionalLibraryIgnoreMatcher =
-      AdditionalLibraryIgnoresMatcher.additionalLibraryIgnoresMatcher();
   private final boolean additionalLibraryMatcher;
   private final IgnoreMatcherProvider ignoreMatcherProvider;
+  private final List<String> excludedClasses;
+  private final ClassNameTrie<IgnoreDecision> rules;
 
   private GlobalIgnoresMatcher(
-      boolean additionalLibraryMatcher, IgnoreMatcherProvider ignoreMatcherProvider) {
+      boolean additionalLibraryMatcher,
+      IgnoreMatcherProvider ignoreMatcherProvider,
+      List<String> excludedClasses) {
     this.additionalLibraryMatcher = additionalLibraryMatcher;
     this.ignoreMatcherProvider = ignoreMatcherProvider;
+    this.excludedClasses = excludedClasses;
+    this.rules = buildRules(additionalLibraryMatcher, excludedClasses);
+  }
+
+  private static ClassNameTrie<IgnoreDecision> buildRules(
+      boolean additionalLibraryMatcher, List<String> excludedClasses) {
+    ClassNameTrie.Builder<IgnoreDecision> rules = ClassNameTrie.builder();
+
+    rules
+        .prefix("org.gradle.", IGNORE)
+        .prefix("net.bytebuddy.", IGNORE)
+        .prefix("jdk.", IGNORE)
+        .prefix("jdk.internal.net.http.", ALLOW)
+        .prefix("org.aspectj.", IGNORE)
+        .prefix("datadog.", IGNORE)
+        .prefix("com.intellij.rt.debugger.", IGNORE)
+        .prefix("com.p6spy.", IGNORE)
+        .prefix("com.dynatrace.", IGNORE)
+        .prefix("com.jloadtrace.", IGNORE)
+        .prefix("com.appdynamics.", IGNORE)
+        .prefix("com.newrelic.agent.", IGNORE)
+        .prefix("com.newrelic.api.agent.", IGNORE)
+        .prefix("com.nr.agent.", IGNORE)
+        .prefix("com.singularity.", IGNORE)
+        .prefix("com.jinspired.", IGNORE)
+        .prefix("org.jinspired.", IGNORE);
+
+    // groovy
+    rules
+        .prefix("org.groovy.", IGNORE)
+        .prefix("org.apache.groovy.", IGNORE)
+        .prefix("org.codehaus.groovy.", IGNORE)
+        // We seem to instrument some classes in runtime
+        .prefix("org.codehaus.groovy.runtime.", ALLOW);
+
+    // clojure
+    rules.prefix("clojure.", IGNORE);
+
+    rules
+        .prefix("io.opentelemetry.javaagent.", IGNORE)
+        // FIXME: We should remove this once
+        // https://github.com/raphw/byte-buddy/issues/558 is fixed
+        .exact("io.opentelemetry.javaagent.instrumentation.api.concurrent.RunnableWrapper", ALLOW)
+        .exact("io.opentelemetry.javaagent.instrumentation.api.concurrent.CallableWrapper", ALLOW);
+
+    rules
+        .prefix("java.", IGNORE)
+        .exact("java.net.URL", ALLOW)
+        .exact("java.net.HttpURLConnection", ALLOW)
+        .exact("java.net.URLClassLoader", ALLOW)
+        .prefix("java.rmi.", ALLOW)
+        .prefix("java.util.concurrent.", ALLOW)
+        .exact("java.lang.reflect.Proxy", ALLOW)
+        .exact("java.lang.ClassLoader", ALLOW)
+        .exact("java.lang.VirtualThread", ALLOW)
+        // Concurrent instrumentation modifies the structure of
+        // Cleaner class incompatibly with java9+ modules.
+        // Working around until a long-term fix for modules can be
+        // put in place.
+        .prefix("java.util.logging.", ALLOW)
+        .exact("java.util.logging.LogManager$Cleaner", IGNORE);
+
+    rules
+        .prefix("com.sun.", IGNORE)
+        .prefix("com.sun.messaging.", ALLOW)
+        .prefix("com.sun.jersey.api.client", ALLOW)
+        .prefix("com.sun.appserv", ALLOW)
+        .prefix("com.sun.faces", ALLOW)
+        .prefix("com.sun.xml.ws", ALLOW);
+
+    rules
+        .prefix("sun.", IGNORE)
+        .prefix("sun.net.www.protocol.", ALLOW)
+        .prefix("sun.rmi.server", ALLOW)
+        .prefix("sun.rmi.transport", ALLOW)
+        .exact("sun.net.www.http.HttpClient", ALLOW);
+
+    rules.prefix("org.slf4j.", IGNORE).exact("org.slf4j.MDC", ALLOW);
+
+    rules.prefix("org.springframework.core.$Proxy", IGNORE);
+
+    if (additionalLibraryMatcher) {
+      AdditionalLibraryIgnoresMatcher.addRules(rules);
+    }
+
+    // added last, so that excluded prefixes replace all more specific rules
+    for (String excludedClass : excludedClasses) {
+      excludedClass = excludedClass.trim();
+      if (excludedClass.endsWith("*")) {
+        // remove the trailing *
+        rules.replacePrefix(excludedClass.substring(0, excludedClass.length() - 1), EXCLUDE);
+      } else {
+        rules.exact(excludedClass, EXCLUDE);
+      }
+    }
+
+    return rules.build();
   }
 
   /**
@@ -55,123 +168,28 @@ public class GlobalIgnoresMatcher extends ElementMatcher.Junction.AbstractBase<T
   @Override
   public boolean matches(TypeDescription target) {
     IgnoreMatcherProvider.Result ignoreResult = ignoreMatcherProvider.type(target);
+    String name = target.getActualName();
+    IgnoreDecision decision = rules.get(name);
+
     switch (ignoreResult) {
       case IGNORE:
         return true;
       case ALLOW:
-        return false;
+        // excluded classes are ignored even when the provider allows them
+        return decision == EXCLUDE;
       case DEFAULT:
       default:
     }
 
-    String name = target.getActualName();
-
-    if (name.startsWith("jdk.internal.net.http.")) {
-      return false;
-    }
-
-    if (name.startsWith("org.gradle.")
-        || name.startsWith("net.bytebuddy.")
-        || name.startsWith("jdk.")
-        || name.startsWith("org.aspectj.")
-        || name.startsWith("datadog.")
-        || name.startsWith("com.intellij.rt.debugger.")
-        || name.startsWith("com.p6spy.")
-        || name.startsWith("com.dynatrace.")
-        || name.startsWith("com.jloadtrace.")
-        || name.startsWith("com.appdynamics.")
-        || name.startsWith("com.newrelic.agent.")
-        || name.startsWith("com.newrelic.api.agent.")
-        || name.startsWith("com.nr.agent.")
-        || name.startsWith("com.singularity.")
-        || name.startsWith("com.jinspired.")
-        || name.startsWith("org.jinspired.")) {
-      return true;
-    }
-
-    // groovy
-    if (name.startsWith("org.groovy.") || name.startsWith("org.apache.groovy.")) {
-      return true;
-    }
-    if (name.startsWith("org.codehaus.groovy.")) {
-      // We seem to instrument some classes in runtime
-      if (name.startsWith("org.codehaus.groovy.runtime.")) {
-        return false;
-      }
-      return true;
-    }
-    // clojure
-    if (name.startsWith("clojure.") || name.contains("$fn__")) {
-      return true;
-    }
-
-    if (name.startsWith("io.opentelemetry.javaagent.")) {
-      // FIXME: We should remove this once
-      // https://github.com/raphw/byte-buddy/issues/558 is fixed
-      if (name.equals("io.opentelemetry.javaagent.instrumentation.api.concurrent.RunnableWrapper")
-          || name.equals(
-              "io.opentelemetry.javaagent.instrumentation.api.concurrent.CallableWrapper")) {
-        return false;
-      }
+    if (decision == EXCLUDE || decision == IGNORE) {
       return true;
     }
-
-    if (name.startsWith("java.")) {
-      if (name.equals("java.net.URL")
-          || name.equals("java.net.HttpURLConnection")
-          || name.equals("java.net.URLClassLoader")) {
-        return false;
-      }
-      if (name.startsWith("java.rmi.") || name.startsWith("java.util.concurrent.")) {
-        return false;
-      }
-      if (name.equals("java.lang.reflect.Proxy")) {
-        return false;
-      }
-      if (name.equals("java.lang.ClassLoader")) {
-        return false;
-      }
-
-      // Concurrent instrumentation modifies the structure of
-      // Cleaner class incompatibly with java9+ modules.
-      // Working around until a long-term fix for modules can be
-      // put in place.
-      if (name.startsWith("java.util.logging.")
-          && !name.equals("java.util.logging.LogManager$Cleaner")) {
-        return false;
-      }
-
-      return true;
-    }
-
-    if (name.startsWith("com.sun.")) {
-      if (name.startsWith("com.sun.messaging.")
-          || name.startsWith("com.sun.jersey.api.client")
-          || name.startsWith("com.sun.appserv")
-          || name.startsWith("com.sun.faces")
-          || name.startsWith("com.sun.xml.ws")) {
-        return false;
-      }
-
-      return true;
-    }
-
-    if (name.startsWith("sun.")) {
-      if (name.startsWith("sun.net.www.protocol.")
-          || name.startsWith("sun.rmi.server")
-          || name.startsWith("sun.rmi.transport")
-          || name.equals("sun.net.www.http.HttpClient")) {
-        return false;
-      }
-
-      return true;
+    if (decision == ALLOW) {
+      return false;
     }
 
-    if (name.startsWith("org.slf4j.")) {
-      if (name.equals("org.slf4j.MDC")) {
-        return false;
-      }
-
+    // clojure
+    if (name.contains("$fn__")) {
       return true;
     }
 
@@ -195,8 +213,7 @@ public class GlobalIgnoresMatcher extends ElementMatcher.Junction.AbstractBase<T
         // that are annotated with @Path in an interface implemented by the class. We don't really
         // want to instrument these methods in generated classes as this would create spans that
         // have the generated class name in them instead of the actual class that handles the call.
-        || name.contains("__EJB31_Generated__")
-        || name.startsWith("org.springframework.core.$Proxy")) {
+        || name.contains("__EJB31_Generated__")) {
       return true;
     }
 
@@ -204,16 +221,15 @@ public class GlobalIgnoresMatcher extends ElementMatcher.Junction.AbstractBase<T
       return true;
     }
 
-    if (additionalLibraryMatcher && additionalLibraryIgnoreMatcher.matches(target)) {
-      return true;
-    }
-
-    return false;
+    // the additional library rules are only applied after all the checks above
+    return decision == LIBRARY_IGNORE;
   }
 
   @Override
   public String toString() {
-    return "globalIgnoresMatcher(" + additionalLibraryIgnoreMatcher.toString() + ")";
+    return "globalIgnoresMatcher("
+        + (additionalLibraryMatcher ? "additionalLibraryIgnoresMatcher()" : "")
+        + ")";
   }
 
   @Override
@@ -225,11 +241,13 @@ public class GlobalIgnoresMatcher extends ElementMatcher.Junction.AbstractBase<T
       return false;
     }
     GlobalIgnoresMatcher other = (GlobalIgnoresMatcher) obj;
-    return additionalLibraryIgnoreMatcher.equals(other.additionalLibraryIgnoreMatcher);
+    return additionalLibraryMatcher == other.additionalLibraryMatcher
+        && ignoreMatcherProvider.equals(other.ignoreMatcherProvider)
+        && excludedClasses.equals(other.excludedClasses);
   }
 
   @Override
   public int hashCode() {
-    return additionalLibraryIgnoreMatcher.hashCode();
+    return excludedClasses.hashCode();
   }
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.matcher;
+
+/** The values of the {@link ClassNameTrie} used by {@link GlobalIgnoresMatcher}. */
+enum IgnoreDecision {
+  /** Ignored by the global rules. */
+  IGNORE,
+  /** Not ignored by the global rules, no further checks are done. */
+  ALLOW,
+  /**
+   * Ignored by the {@link AdditionalLibraryIgnoresMatcher} rules, which are only applied after the
+   * global checks which are not based on a name prefix (e.g. bytecode proxy names).
+   */
+  LIBRARY_IGNORE,
+  /** Not ignored by the {@link AdditionalLibraryIgnoresMatcher} rules. */
+  LIBRARY_ALLOW,
+  /**
+   * Excluded with the {@code otel.javaagent.exclude-classes} property, always ignored. Excluded
+   * prefixes replace all more specific rules.
+   */
+  EXCLUDE
+}
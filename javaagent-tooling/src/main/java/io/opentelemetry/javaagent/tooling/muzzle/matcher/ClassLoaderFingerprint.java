@@ -0,0 +1,244 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle.matcher;
+
+import io.opentelemetry.instrumentation.api.InstrumentationVersion;
+import io.opentelemetry.instrumentation.api.caching.Cache;
+import io.opentelemetry.javaagent.bootstrap.AgentClassLoader.BootstrapClassLoaderProxy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Computes a fingerprint of the classes a class loader can see: the agent and JVM versions, and
+ * the class and jar files (paths, sizes and checksums) of every class loader in its parent chain.
+ * Two class loaders with the same fingerprint resolve muzzle references the same way, which allows
+ * muzzle verdicts to be reused for class loaders that are created again with identical contents,
+ * e.g. after a restart or a redeployment.
+ *
+ * <p>Only class loaders whose classes come from local files can be fingerprinted: a class loader
+ * that is not a {@link URLClassLoader} (other than the JDK's own class loaders), or one that loads
+ * from a non-file URL, has no fingerprint. Directories are fingerprinted by the paths, sizes and
+ * modification times of the files they contain, up to {@link #MAX_DIRECTORY_FILES} files.
+ */
+final class ClassLoaderFingerprint {
+
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_ZIP_COMMENT_SIZE = 0xFFFF;
+  // 0xFFFFFFFF marks a zip64 archive, whose central directory is located elsewhere
+  private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+  private static final int MAX_DIRECTORY_FILES = 10_000;
+  private static final String NO_FINGERPRINT = "";
+
+  private static final Cache<ClassLoader, String> fingerprints =
+      Cache.newBuilder().setWeakKeys().build();
+  // jar path -> checksum, reused while the size and modification time of the jar don't change
+  private static final ConcurrentMap<String, JarChecksum> jarChecksums = new ConcurrentHashMap<>();
+
+  /** Returns the fingerprint of {@code classLoader}, or {@code null} if it has none. */
+  @Nullable
+  static String of(ClassLoader classLoader) {
+    String fingerprint = fingerprints.computeIfAbsent(classLoader, ClassLoaderFingerprint::compute);
+    return fingerprint.isEmpty() ? null : fingerprint;
+  }
+
+  private static String compute(ClassLoader classLoader) {
+    MessageDigest digest = sha256();
+    update(digest, InstrumentationVersion.VERSION);
+    update(digest, System.getProperty("java.vm.version"));
+    ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+    for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+      update(digest, loader.getClass().getName());
+      if (loader instanceof BootstrapClassLoaderProxy || isAncestor(loader, systemClassLoader)) {
+        // the JDK's class loaders and the agent's bootstrap classes are covered by the versions
+        continue;
+      }
+      if (loader == systemClassLoader) {
+        // on Java 9+ the system class loader is not a URLClassLoader
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+          if (!update(digest, new File(path))) {
+            return NO_FINGERPRINT;
+          }
+        }
+        continue;
+      }
+      if (!(loader instanceof URLClassLoader)) {
+        return NO_FINGERPRINT;
+      }
+      for (URL url : ((URLClassLoader) loader).getURLs()) {
+        if (!"file".equals(url.getProtocol())) {
+          return NO_FINGERPRINT;
+        }
+        try {
+          if (!update(digest, new File(url.toURI()))) {
+            return NO_FINGERPRINT;
+          }
+        } catch (URISyntaxException | IllegalArgumentException e) {
+          return NO_FINGERPRINT;
+        }
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  private static boolean isAncestor(ClassLoader loader, ClassLoader classLoader) {
+    ClassLoader parent = classLoader.getParent();
+    while (parent != null) {
+      if (parent == loader) {
+        return true;
+      }
+      parent = parent.getParent();
+    }
+    return false;
+  }
+
+  private static boolean update(MessageDigest digest, File file) {
+    if (file.isDirectory()) {
+      update(digest, file.getAbsolutePath());
+      return updateDirectory(digest, file, new int[] {0});
+    }
+    if (!file.exists()) {
+      // class paths commonly contain entries that don't exist
+      update(digest, "missing:" + file.getAbsolutePath());
+      return true;
+    }
+    if (!file.isFile()) {
+      return false;
+    }
+    String path = file.getAbsolutePath();
+    long size = file.length();
+    long lastModified = file.lastModified();
+    JarChecksum checksum = jarChecksums.get(path);
+    if (checksum == null || checksum.size != size || checksum.lastModified != lastModified) {
+      String centralDirectoryChecksum = centralDirectoryChecksum(file);
+      if (centralDirectoryChecksum == null) {
+        return false;
+      }
+      checksum = new JarChecksum(size, lastModified, centralDirectoryChecksum);
+      jarChecksums.put(path, checksum);
+    }
+    update(digest, path);
+    update(digest, Long.toString(size));
+    update(digest, checksum.checksum);
+    return true;
+  }
+
+  private static boolean updateDirectory(MessageDigest digest, File directory, int[] fileCount) {
+    String[] names = directory.list();
+    if (names == null) {
+      return false;
+    }
+    // the listing order is unspecified
+    Arrays.sort(names);
+    for (String name : names) {
+      File file = new File(directory, name);
+      if (file.isDirectory()) {
+        update(digest, name + "/");
+        if (!updateDirectory(digest, file, fileCount)) {
+          return false;
+        }
+      } else {
+        if (++fileCount[0] > MAX_DIRECTORY_FILES) {
+          return false;
+        }
+        update(digest, name);
+        update(digest, Long.toString(file.length()));
+        update(digest, Long.toString(file.lastModified()));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns a checksum of the central directory of the zip file, which contains the name, size and
+   * CRC-32 of every entry. This avoids reading the whole file.
+   */
+  @Nullable
+  private static String centralDirectoryChecksum(File file) {
+    try (RandomAccessFile zip = new RandomAccessFile(file, "r")) {
+      long length = zip.length();
+      long searchStart =
+          Math.max(0, length - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_ZIP_COMMENT_SIZE);
+      byte[] tail = new byte[(int) (length - searchStart)];
+      zip.seek(searchStart);
+      zip.readFully(tail);
+      for (int i = tail.length - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+        if (readInt(tail, i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+          long centralDirectorySize = readInt(tail, i + 12) & 0xFFFFFFFFL;
+          long centralDirectoryOffset = readInt(tail, i + 16) & 0xFFFFFFFFL;
+          if (centralDirectorySize == ZIP64_MARKER
+              || centralDirectoryOffset == ZIP64_MARKER
+              || centralDirectoryOffset + centralDirectorySize > length) {
+            return null;
+          }
+          byte[] centralDirectory = new byte[(int) centralDirectorySize];
+          zip.seek(centralDirectoryOffset);
+          zip.readFully(centralDirectory);
+          return toHex(sha256().digest(centralDirectory));
+        }
+      }
+      return null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    // zip files are little endian
+    return (bytes[offset] & 0xFF)
+        | (bytes[offset + 1] & 0xFF) << 8
+        | (bytes[offset + 2] & 0xFF) << 16
+        | (bytes[offset + 3] & 0xFF) << 24;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+      hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+    }
+    return new String(hex);
+  }
+
+  private static final class JarChecksum {
+    private final long size;
+    private final long lastModified;
+    private final String checksum;
+
+    private JarChecksum(long size, long lastModified, String checksum) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.checksum = checksum;
+    }
+  }
+
+  private ClassLoaderFingerprint() {}
+}
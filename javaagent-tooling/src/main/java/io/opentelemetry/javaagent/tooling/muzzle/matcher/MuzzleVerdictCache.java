@@ -0,0 +1,162 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle.matcher;
+
+import io.opentelemetry.instrumentation.api.InstrumentationVersion;
+import io.opentelemetry.instrumentation.api.config.Config;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Muzzle verdicts of instrumentation modules, keyed by the module and the {@link
+ * ClassLoaderFingerprint} of the class loader they were computed for. When {@code
+ * otel.javaagent.experimental.muzzle-cache.dir} is set, the verdicts are also stored in a file in
+ * that directory, one per agent version, so that they survive restarts.
+ *
+ * <p>Verdicts are appended to the file as they are computed, so it accumulates duplicates when
+ * several JVMs share it and stale verdicts when class paths or extensions change. The file is
+ * compacted when it is loaded, and dropped entirely once it holds more than {@link #MAX_VERDICTS}
+ * verdicts; new verdicts beyond that limit are only kept in memory.
+ */
+final class MuzzleVerdictCache {
+
+  private static final Logger log = LoggerFactory.getLogger(MuzzleVerdictCache.class);
+
+  static final String CACHE_DIR_CONFIG = "otel.javaagent.experimental.muzzle-cache.dir";
+
+  static final int MAX_VERDICTS = 10_000;
+
+  private static final MuzzleVerdictCache INSTANCE =
+      new MuzzleVerdictCache(cacheFile(Config.get().getProperty(CACHE_DIR_CONFIG)));
+
+  static MuzzleVerdictCache get() {
+    return INSTANCE;
+  }
+
+  @Nullable
+  private static Path cacheFile(@Nullable String directory) {
+    if (directory == null) {
+      return null;
+    }
+    return Paths.get(directory, "muzzle-verdicts-" + InstrumentationVersion.VERSION + ".txt");
+  }
+
+  private final ConcurrentMap<String, Boolean> verdicts = new ConcurrentHashMap<>();
+  @Nullable private final Path file;
+
+  // visible for testing
+  MuzzleVerdictCache(@Nullable Path file) {
+    this.file = file;
+    if (file != null) {
+      load(file);
+    }
+  }
+
+  /**
+   * Returns the verdict of the module {@code moduleKey} for class loaders with the given {@code
+   * fingerprint}, or {@code null} if it is not known.
+   */
+  @Nullable
+  Boolean getVerdict(String moduleKey, String fingerprint) {
+    return verdicts.get(key(moduleKey, fingerprint));
+  }
+
+  void putVerdict(String moduleKey, String fingerprint, boolean matches) {
+    String key = key(moduleKey, fingerprint);
+    if (verdicts.putIfAbsent(key, matches) == null
+        && file != null
+        && verdicts.size() <= MAX_VERDICTS) {
+      store(file, key, matches);
+    }
+  }
+
+  private static String key(String moduleKey, String fingerprint) {
+    return moduleKey + '@' + fingerprint;
+  }
+
+  private void load(Path file) {
+    int lineCount = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineCount++;
+        int separator = line.lastIndexOf('=');
+        // a line may be incomplete if a JVM was stopped while writing it
+        if (separator > 0 && (line.endsWith("=true") || line.endsWith("=false"))) {
+          verdicts.put(
+              line.substring(0, separator), Boolean.parseBoolean(line.substring(separator + 1)));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // nothing stored yet
+      return;
+    } catch (IOException e) {
+      log.debug("Unable to read muzzle verdicts from {}", file, e);
+      return;
+    }
+    if (verdicts.size() > MAX_VERDICTS) {
+      // most of them are probably stale, start over
+      verdicts.clear();
+      rewrite(file);
+    } else if (lineCount > verdicts.size()) {
+      rewrite(file);
+    }
+  }
+
+  /**
+   * Replaces the file with one that contains each loaded verdict once. Verdicts that another JVM
+   * appends meanwhile may be lost, they're computed again later.
+   */
+  private synchronized void rewrite(Path file) {
+    Path tempFile = null;
+    try {
+      tempFile = Files.createTempFile(file.getParent(), "muzzle-verdicts-", ".tmp");
+      try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, Boolean> verdict : verdicts.entrySet()) {
+          writer.write(verdict.getKey() + '=' + verdict.getValue() + '\n');
+        }
+      }
+      Files.move(
+          tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      log.debug("Unable to compact muzzle verdicts in {}", file, e);
+      if (tempFile != null) {
+        tempFile.toFile().delete();
+      }
+    }
+  }
+
+  private synchronized void store(Path file, String key, boolean matches) {
+    try {
+      Files.createDirectories(file.getParent());
+      // several JVMs may share the file; each verdict is appended with a single small write
+      try (Writer writer =
+          Files.newBufferedWriter(
+              file,
+              StandardCharsets.UTF_8,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.APPEND)) {
+        writer.write(key + '=' + matches + '\n');
+      }
+    } catch (IOException e) {
+      log.debug("Unable to write muzzle verdict to {}", file, e);
+    }
+  }
+}
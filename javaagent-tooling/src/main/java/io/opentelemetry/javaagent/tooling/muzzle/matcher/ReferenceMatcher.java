@@ -14,12 +14,17 @@ import io.opentelemetry.javaagent.extension.muzzle.ClassRef;
 import io.opentelemetry.javaagent.extension.muzzle.FieldRef;
 import io.opentelemetry.javaagent.extension.muzzle.Flag;
 import io.opentelemetry.javaagent.extension.muzzle.MethodRef;
+import io.opentelemetry.javaagent.extension.muzzle.Source;
 import io.opentelemetry.javaagent.tooling.AgentTooling;
 import io.opentelemetry.javaagent.tooling.Utils;
 import io.opentelemetry.javaagent.tooling.muzzle.InstrumentationClassPredicate;
 import io.opentelemetry.javaagent.tooling.muzzle.matcher.HelperReferenceWrapper.Factory;
 import io.opentelemetry.javaagent.tooling.muzzle.matcher.HelperReferenceWrapper.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,11 +33,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import net.bytebuddy.description.field.FieldDescription;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.jar.asm.Type;
 import net.bytebuddy.pool.TypePool;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Matches a set of references against a classloader. */
 public final class ReferenceMatcher {
@@ -42,11 +49,27 @@ public final class ReferenceMatcher {
   private final Map<String, ClassRef> references;
   private final Set<String> helperClassNames;
   private final InstrumentationClassPredicate instrumentationClassPredicate;
+  @Nullable private final String moduleKey;
+  // the module key followed by a hash of the references, computed when it's first needed
+  @Nullable private volatile String verdictCacheKey;
 
   public ReferenceMatcher(
       List<String> helperClassNames,
       ClassRef[] references,
       Predicate<String> libraryInstrumentationPredicate) {
+    this(helperClassNames, references, libraryInstrumentationPredicate, null);
+  }
+
+  /**
+   * Creates a matcher whose verdicts are also shared, through {@link MuzzleVerdictCache}, with
+   * every other class loader that has the same {@link ClassLoaderFingerprint}. {@code
+   * verdictCacheKey} must identify the instrumentation module the references belong to.
+   */
+  public ReferenceMatcher(
+      List<String> helperClassNames,
+      ClassRef[] references,
+      Predicate<String> libraryInstrumentationPredicate,
+      @Nullable String verdictCacheKey) {
     this.references = new HashMap<>(references.length);
     for (ClassRef reference : references) {
       this.references.put(reference.getClassName(), reference);
@@ -54,6 +77,7 @@ public final class ReferenceMatcher {
     this.helperClassNames = new HashSet<>(helperClassNames);
     this.instrumentationClassPredicate =
         new InstrumentationClassPredicate(libraryInstrumentationPredicate);
+    this.moduleKey = verdictCacheKey;
   }
 
   /**
@@ -66,7 +90,106 @@ public final class ReferenceMatcher {
     if (userClassLoader == BOOTSTRAP_LOADER) {
       userClassLoader = Utils.getBootstrapProxy();
     }
-    return mismatchCache.computeIfAbsent(userClassLoader, this::doesMatch);
+    return mismatchCache.computeIfAbsent(userClassLoader, this::doesMatchFingerprinted);
+  }
+
+  private boolean doesMatchFingerprinted(ClassLoader loader) {
+    if (moduleKey == null) {
+      return doesMatch(loader);
+    }
+    String fingerprint = ClassLoaderFingerprint.of(loader);
+    if (fingerprint == null) {
+      return doesMatch(loader);
+    }
+    String verdictCacheKey = this.verdictCacheKey;
+    if (verdictCacheKey == null) {
+      // extension modules can change without a change of the agent version
+      verdictCacheKey = moduleKey + '#' + hashReferences(references.values(), helperClassNames);
+      this.verdictCacheKey = verdictCacheKey;
+    }
+    MuzzleVerdictCache verdictCache = MuzzleVerdictCache.get();
+    Boolean verdict = verdictCache.getVerdict(verdictCacheKey, fingerprint);
+    if (verdict == null) {
+      verdict = doesMatch(loader);
+      verdictCache.putVerdict(verdictCacheKey, fingerprint, verdict);
+    }
+    return verdict;
+  }
+
+  /**
+   * Returns a SHA-256 hash of everything muzzle checks: the names, sources, flags, super types,
+   * fields and methods of the references, and the helper class names. Sets are sorted first, so
+   * that the hash does not depend on their iteration order.
+   */
+  // visible for testing
+  static String hashReferences(Collection<ClassRef> references, Collection<String> helperClasses) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+    references.stream()
+        .map(ReferenceMatcher::describe)
+        .sorted()
+        .forEach(description -> update(digest, description));
+    update(digest, sorted(helperClasses.stream()));
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static String describe(ClassRef reference) {
+    return reference.getClassName()
+        + ' '
+        + reference.getSuperClassName()
+        + ' '
+        + sorted(reference.getInterfaceNames().stream())
+        + ' '
+        + describe(reference.getFlags(), reference.getSources())
+        + ' '
+        + sorted(
+            reference.getFields().stream()
+                .map(
+                    field ->
+                        field.getName()
+                            + field.getDescriptor()
+                            + (field.isDeclared() ? " declared " : " used ")
+                            + describe(field.getFlags(), field.getSources())))
+        + ' '
+        + sorted(
+            reference.getMethods().stream()
+                .map(
+                    method ->
+                        method.getName()
+                            + method.getDescriptor()
+                            + ' '
+                            + describe(method.getFlags(), method.getSources())));
+  }
+
+  private static String describe(Set<Flag> flags, Set<Source> sources) {
+    return sorted(flags.stream().map(ReferenceMatcher::describeFlag))
+        + sorted(sources.stream().map(source -> source.getName() + ':' + source.getLine()));
+  }
+
+  private static String describeFlag(Flag flag) {
+    // the same names are used by different kinds of flags, e.g. PUBLIC
+    if (flag instanceof Enum) {
+      return ((Enum<?>) flag).getDeclaringClass().getSimpleName() + '.' + flag.name();
+    }
+    return flag.name();
+  }
+
+  private static String sorted(Stream<String> values) {
+    return values.sorted().collect(Collectors.joining(",", "[", "]"));
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) '\n');
   }
 
   private boolean doesMatch(ClassLoader loader) {
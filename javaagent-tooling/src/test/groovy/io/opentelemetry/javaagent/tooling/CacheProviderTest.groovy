@@ -202,6 +202,95 @@ class CacheProviderTest extends Specification {
     poolStrat.approximateSize() > 0.8 * capacity
   }
 
+  def "test capacity grows when hit rate is low"() {
+    setup:
+    def poolStrat = new AgentCachingPoolStrategy()
+    def loader = newClassLoader()
+    def cacheProvider = poolStrat.createCacheProvider(loader.hashCode(), new WeakReference<ClassLoader>(loader))
+
+    when:
+    AgentCachingPoolStrategy.RESIZE_WINDOW.times {
+      cacheProvider.find("foo${it}")
+    }
+
+    then:
+    poolStrat.stats().missCount() == AgentCachingPoolStrategy.RESIZE_WINDOW
+    poolStrat.stats().capacity() == 2 * AgentCachingPoolStrategy.STARTUP_TYPE_CAPACITY
+  }
+
+  def "test frequently resolved bootstrap types are pinned"() {
+    setup:
+    def poolStrat = new AgentCachingPoolStrategy()
+    def cacheProvider = poolStrat.bootstrapCacheProvider
+
+    when:
+    cacheProvider.register("java.lang.Runnable", newVoid())
+    AgentCachingPoolStrategy.PIN_THRESHOLD.times {
+      cacheProvider.find("java.lang.Runnable")
+    }
+
+    then:
+    poolStrat.stats().pinnedCount() == 1
+    poolStrat.stats().hitCount() == AgentCachingPoolStrategy.PIN_THRESHOLD
+
+    when:
+    poolStrat.sharedResolutionCache.invalidateAll()
+
+    then:
+    cacheProvider.find("java.lang.Runnable") != null
+    poolStrat.stats().pinnedHitCount() == 1
+  }
+
+  def "test types of other class loaders are not pinned"() {
+    setup:
+    def poolStrat = new AgentCachingPoolStrategy()
+    def loader = newClassLoader()
+    def cacheProvider = poolStrat.createCacheProvider(loader.hashCode(), new WeakReference<ClassLoader>(loader))
+
+    when:
+    cacheProvider.register("java.lang.Runnable", newVoid())
+    AgentCachingPoolStrategy.PIN_THRESHOLD.times {
+      cacheProvider.find("java.lang.Runnable")
+    }
+
+    then:
+    poolStrat.stats().pinnedCount() == 0
+    poolStrat.stats().hitCount() == AgentCachingPoolStrategy.PIN_THRESHOLD
+  }
+
+  def "test java.lang.Object is not counted"() {
+    setup:
+    def poolStrat = new AgentCachingPoolStrategy()
+
+    when:
+    def resolution = poolStrat.bootstrapCacheProvider.find("java.lang.Object")
+
+    then:
+    resolution.resolve().name == "java.lang.Object"
+    poolStrat.stats().hitCount() == 0
+    poolStrat.stats().pinnedHitCount() == 0
+    poolStrat.stats().missCount() == 0
+  }
+
+  def "test resizing keeps the cached types"() {
+    setup:
+    def poolStrat = new AgentCachingPoolStrategy()
+    def loader = newClassLoader()
+    def cacheProvider = poolStrat.createCacheProvider(loader.hashCode(), new WeakReference<ClassLoader>(loader))
+    cacheProvider.register("foo", newVoid())
+
+    when:
+    AgentCachingPoolStrategy.RESIZE_WINDOW.times {
+      cacheProvider.find("bar${it}")
+    }
+    cacheProvider.register("baz", newVoid())
+
+    then:
+    poolStrat.stats().capacity() == 2 * AgentCachingPoolStrategy.STARTUP_TYPE_CAPACITY
+    cacheProvider.find("foo") != null
+    cacheProvider.find("baz") != null
+  }
+
   static newVoid() {
     return new TypePool.Resolution.Simple(TypeDescription.VOID)
   }
@@ -0,0 +1,66 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling
+
+import static io.opentelemetry.instrumentation.test.utils.ClasspathUtils.isClassLoaded
+
+import io.opentelemetry.javaagent.test.HelperClass
+import net.bytebuddy.description.type.TypeDescription
+import spock.lang.Specification
+
+class HelperInjectionServiceTest extends Specification {
+
+  def "helpers are injected when the transformation of the type completes"() {
+    setup:
+    String helperClassName = HelperClass.name
+    def injector1 = new HelperInjector("test1", [helperClassName], [], this.class.classLoader)
+    def injector2 = new HelperInjector("test2", [helperClassName], [], this.class.classLoader)
+    def classLoader = new URLClassLoader(new URL[0], (ClassLoader) null)
+    def type = new TypeDescription.ForLoadedType(Object)
+    def listener = HelperInjectionService.listener()
+
+    when:
+    listener.onDiscovery(type.name, classLoader, null, false)
+    injector1.transform(null, type, classLoader, null)
+    injector2.transform(null, type, classLoader, null)
+
+    then:
+    !isClassLoaded(helperClassName, classLoader)
+
+    when:
+    listener.onTransformation(type, classLoader, null, false, null)
+
+    then:
+    isClassLoaded(helperClassName, classLoader)
+    HelperInjector.isInjectedClass(classLoader.loadClass(helperClassName))
+
+    cleanup:
+    listener.onComplete(type.name, classLoader, null, false)
+  }
+
+  def "pending helpers are dropped when the transformation fails"() {
+    setup:
+    String helperClassName = HelperClass.name
+    def injector = new HelperInjector("test", [helperClassName], [], this.class.classLoader)
+    def classLoader = new URLClassLoader(new URL[0], (ClassLoader) null)
+    def type = new TypeDescription.ForLoadedType(Object)
+    def listener = HelperInjectionService.listener()
+
+    when:
+    listener.onDiscovery(type.name, classLoader, null, false)
+    injector.transform(null, type, classLoader, null)
+    listener.onComplete(type.name, classLoader, null, false)
+
+    then:
+    !isClassLoaded(helperClassName, classLoader)
+
+    when: "the helpers are requested outside of a transformation"
+    injector.transform(null, type, classLoader, null)
+
+    then:
+    isClassLoaded(helperClassName, classLoader)
+  }
+}
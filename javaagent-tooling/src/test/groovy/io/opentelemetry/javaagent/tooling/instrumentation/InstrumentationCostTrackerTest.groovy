@@ -0,0 +1,109 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation
+
+import static io.opentelemetry.javaagent.tooling.instrumentation.InstrumentationCostTracker.Phase.MUZZLE
+import static io.opentelemetry.javaagent.tooling.instrumentation.InstrumentationCostTracker.Phase.TYPE_MATCHING
+
+import net.bytebuddy.agent.builder.AgentBuilder
+import net.bytebuddy.description.type.TypeDescription
+import net.bytebuddy.dynamic.DynamicType
+import net.bytebuddy.matcher.ElementMatcher
+import spock.lang.Specification
+
+// runs in its own test task, with cost accounting enabled
+class InstrumentationCostTrackerTest extends Specification {
+
+  def setup() {
+    // drop the costs recorded by other tests
+    InstrumentationCostTracker.report(null)
+  }
+
+  def "phases are accounted through the wrapped matchers"() {
+    setup:
+    def cost = InstrumentationCostTracker.moduleCost("matchers")
+    def typeMatcher = cost.typeMatcher({ Thread.sleep(1); true } as ElementMatcher<TypeDescription>)
+    def classLoaderMatcher = cost.classLoaderMatcher({ Thread.sleep(1); false } as ElementMatcher<ClassLoader>)
+    def muzzleMatcher = cost.muzzleMatcher({ type, loader, module, redefined, domain ->
+      Thread.sleep(1)
+      true
+    } as AgentBuilder.RawMatcher)
+
+    when:
+    typeMatcher.matches(TypeDescription.OBJECT)
+    typeMatcher.matches(TypeDescription.STRING)
+    classLoaderMatcher.matches(null)
+    muzzleMatcher.matches(TypeDescription.OBJECT, null, null, null, null)
+    def lines = InstrumentationCostTracker.report(null)
+
+    then:
+    lines.size() == 1
+    lines[0] ==~ /matchers: type matching [0-9.]+ ms \(2\) class loader matching [0-9.]+ ms \(1\) muzzle [0-9.]+ ms \(1\)/
+  }
+
+  def "advice transformation is split between the modules that transform a type"() {
+    setup:
+    def first = InstrumentationCostTracker.moduleCost("first transformer")
+    def second = InstrumentationCostTracker.moduleCost("second transformer")
+    def transformer = { builder, type, loader, module ->
+      Thread.sleep(1)
+      builder
+    } as AgentBuilder.Transformer
+    def listener = InstrumentationCostTracker.listener()
+    def builder = Mock(DynamicType.Builder)
+
+    when:
+    listener.onDiscovery("a.A", null, null, false)
+    first.transformation(transformer).transform(builder, TypeDescription.OBJECT, null, null)
+    second.transformation(transformer).transform(builder, TypeDescription.OBJECT, null, null)
+    // transforming a type twice with the same module doesn't count it twice
+    first.transformation(transformer).transform(builder, TypeDescription.OBJECT, null, null)
+    listener.onTransformation(TypeDescription.OBJECT, null, null, false, Mock(DynamicType))
+    listener.onComplete("a.A", null, null, false)
+    def lines = InstrumentationCostTracker.report(null)
+
+    then:
+    lines.size() == 2
+    lines.every { it ==~ /(first|second) transformer: advice transformation [0-9.]+ ms \(1\)/ }
+  }
+
+  def "reports are ordered by cost and reset the costs"() {
+    setup:
+    InstrumentationCostTracker.record("cheap", MUZZLE, 1_000_000)
+    InstrumentationCostTracker.record("expensive", TYPE_MATCHING, 2_000_000)
+    InstrumentationCostTracker.record("expensive", MUZZLE, 500_000)
+    InstrumentationCostTracker.record("free", MUZZLE, 0)
+
+    expect:
+    InstrumentationCostTracker.report(null) == [
+      "expensive: type matching 2.000 ms (1) muzzle 0.500 ms (1)",
+      "cheap: muzzle 1.000 ms (1)"
+    ]
+    InstrumentationCostTracker.report(null).isEmpty()
+
+    when:
+    InstrumentationCostTracker.record("cheap", MUZZLE, 3_000_000)
+
+    then:
+    InstrumentationCostTracker.report(null) == ["cheap: muzzle 3.000 ms (1)"]
+  }
+
+  def "JFR events are not created without JFR"() {
+    setup:
+    def withoutJfr = new ClassLoader(null) {
+      @Override
+      protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (name.startsWith("jdk.jfr.")) {
+          throw new ClassNotFoundException(name)
+        }
+        return super.loadClass(name, resolve)
+      }
+    }
+
+    expect:
+    JfrInstrumentationCostEvents.create(withoutJfr) == null
+  }
+}
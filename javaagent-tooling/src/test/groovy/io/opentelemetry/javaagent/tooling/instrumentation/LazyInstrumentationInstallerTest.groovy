@@ -0,0 +1,137 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation
+
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.implementsInterface
+import static net.bytebuddy.matcher.ElementMatchers.nameStartsWith
+import static net.bytebuddy.matcher.ElementMatchers.named
+
+import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule
+import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation
+import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer
+import java.lang.instrument.Instrumentation
+import java.util.concurrent.Executor
+import net.bytebuddy.agent.builder.AgentBuilder
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer
+import net.bytebuddy.description.type.TypeDescription
+import net.bytebuddy.matcher.ElementMatcher
+import spock.lang.Specification
+
+class LazyInstrumentationInstallerTest extends Specification {
+
+  def instrumentation = Mock(Instrumentation) {
+    getAllLoadedClasses() >> ([String] as Class[])
+  }
+  def parentAgentBuilder = Mock(AgentBuilder)
+  def callbacks = [:].withDefault { [] }
+  // the agent builders returned after installing the first and the second module
+  def extendedAgentBuilders = [Mock(AgentBuilder), Mock(AgentBuilder)]
+  def installedModules = []
+  def lazyInstaller = new LazyInstrumentationInstaller(
+    { module, agentBuilder ->
+      def previous = installedModules.isEmpty() ? parentAgentBuilder : extendedAgentBuilders[installedModules.size() - 1]
+      assert agentBuilder.is(previous)
+      installedModules.add(module)
+      return extendedAgentBuilders[installedModules.size() - 1]
+    },
+    parentAgentBuilder,
+    instrumentation,
+    { className, callback -> callbacks[className].add(callback) },
+    // install on the triggering thread
+    { it.run() } as Executor)
+
+  def "module is deferred until one of its classes is loaded"() {
+    setup:
+    def module = new TestModule("test", named("com.example.A"), implementsInterface(named("com.example.B")))
+
+    expect:
+    lazyInstaller.defer(module)
+    callbacks.keySet() == ["com.example.A", "com.example.B"] as Set
+    installedModules.isEmpty()
+  }
+
+  def "module is not deferred when #description"() {
+    expect:
+    !lazyInstaller.defer(new TestModule("test", matcher))
+    callbacks.isEmpty()
+
+    where:
+    description                        | matcher
+    "its class is already loaded"      | named(String.name)
+    "its matcher doesn't name a class" | nameStartsWith("com.example.")
+  }
+
+  def "triggered module is installed once"() {
+    setup:
+    def module = new TestModule("test", named("com.example.A"), named("com.example.B"))
+    def transformer = Mock(ResettableClassFileTransformer)
+    lazyInstaller.defer(module)
+
+    when:
+    callbacks["com.example.A"].each { it.run() }
+    callbacks["com.example.B"].each { it.run() }
+    callbacks["com.example.A"].each { it.run() }
+
+    then:
+    installedModules == [module]
+    1 * extendedAgentBuilders[0].installOn(instrumentation) >> transformer
+    0 * parentAgentBuilder.installOn(_)
+  }
+
+  def "later modules extend the active modules and replace their transformer"() {
+    setup:
+    def first = new TestModule("first", named("com.example.A"))
+    def second = new TestModule("second", named("com.example.B"))
+    def firstTransformer = Mock(ResettableClassFileTransformer)
+    def secondTransformer = Mock(ResettableClassFileTransformer)
+    lazyInstaller.defer(first)
+    lazyInstaller.defer(second)
+
+    when:
+    callbacks["com.example.A"].each { it.run() }
+
+    then:
+    installedModules == [first]
+    1 * extendedAgentBuilders[0].installOn(instrumentation) >> firstTransformer
+
+    when:
+    callbacks["com.example.B"].each { it.run() }
+
+    then:
+    // the second module is added to the agent builder of the first one
+    installedModules == [first, second]
+    1 * firstTransformer.reset(instrumentation, AgentBuilder.RedefinitionStrategy.DISABLED) >> true
+
+    then:
+    1 * extendedAgentBuilders[1].installOn(instrumentation) >> secondTransformer
+    0 * secondTransformer.reset(*_)
+  }
+
+  static class TestModule extends InstrumentationModule {
+    private final List<ElementMatcher<TypeDescription>> typeMatchers
+
+    TestModule(String name, ElementMatcher<TypeDescription>... typeMatchers) {
+      super(name)
+      this.typeMatchers = typeMatchers.toList()
+    }
+
+    @Override
+    List<TypeInstrumentation> typeInstrumentations() {
+      return typeMatchers.collect { typeMatcher ->
+        new TypeInstrumentation() {
+          @Override
+          ElementMatcher<TypeDescription> typeMatcher() {
+            return typeMatcher
+          }
+
+          @Override
+          void transform(TypeTransformer transformer) {
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation
+
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.extendsClass
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.implementsInterface
+import static net.bytebuddy.matcher.ElementMatchers.nameStartsWith
+import static net.bytebuddy.matcher.ElementMatchers.named
+
+import io.opentelemetry.javaagent.tooling.AgentTooling
+import io.opentelemetry.javaagent.tooling.bytebuddy.matcher.testclasses.A
+import io.opentelemetry.javaagent.tooling.bytebuddy.matcher.testclasses.B
+import io.opentelemetry.javaagent.tooling.bytebuddy.matcher.testclasses.E
+import io.opentelemetry.javaagent.tooling.bytebuddy.matcher.testclasses.F
+import io.opentelemetry.javaagent.tooling.bytebuddy.matcher.testclasses.G
+import spock.lang.Shared
+import spock.lang.Specification
+
+class TypeInstrumentationIndexTest extends Specification {
+  @Shared
+  def typePool =
+    AgentTooling.poolStrategy()
+      .typePool(AgentTooling.locationStrategy().classFileLocator(this.class.classLoader, null), this.class.classLoader)
+
+  def "indexed matcher #description -> #type.simpleName"() {
+    setup:
+    def index = new TypeInstrumentationIndex()
+    def indexed = index.index(matcher)
+    // other entries in the index must not change the result
+    index.index(named(B.name))
+    index.index(implementsInterface(named(E.name)))
+
+    expect:
+    !indexed.is(matcher)
+    indexed.matches(typePool.describe(type.name).resolve()) == result
+
+    where:
+    description                       | matcher                            | type | result
+    "named(A)"                        | named(A.name)                      | A    | true
+    "named(A)"                        | named(A.name)                      | B    | false
+    "implementsInterface(named(A))"   | implementsInterface(named(A.name)) | B    | true
+    "implementsInterface(named(A))"   | implementsInterface(named(A.name)) | G    | true
+    "implementsInterface(named(F))"   | implementsInterface(named(F.name)) | G    | false
+    "extendsClass(named(F))"          | extendsClass(named(F.name))        | G    | true
+    "extendsClass(named(F))"          | extendsClass(named(F.name))        | F    | true
+    "extendsClass(named(G))"          | extendsClass(named(G.name))        | F    | false
+  }
+
+  def "matcher that can't be indexed is used as is"() {
+    setup:
+    def matcher = nameStartsWith(A.package.name).and(named(A.name).or(named(B.name)))
+
+    expect:
+    new TypeInstrumentationIndex().index(matcher).is(matcher)
+  }
+}
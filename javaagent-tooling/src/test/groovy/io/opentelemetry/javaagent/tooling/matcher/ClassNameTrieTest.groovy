@@ -0,0 +1,52 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.matcher
+
+import spock.lang.Specification
+
+class ClassNameTrieTest extends Specification {
+
+  def "longest prefix or exact name decides"() {
+    setup:
+    def trie = ClassNameTrie.<String> builder()
+      .prefix("java.", "ignore")
+      .prefix("java.util.concurrent.", "allow")
+      .exact("java.net.URL", "allow")
+      .exact("java.util.concurrent.Internal", "ignore")
+      .build()
+
+    expect:
+    trie.get(name) == expected
+
+    where:
+    name                                   | expected
+    "java.lang.String"                     | "ignore"
+    "java."                                | "ignore"
+    "java"                                 | null
+    "javax.servlet.Servlet"                | null
+    "java.net.URL"                         | "allow"
+    "java.net.URLDecoder"                  | "ignore"
+    "java.util.concurrent.Executor"        | "allow"
+    "java.util.concurrent.Internal"        | "ignore"
+    "java.util.concurrent.Internal\$Inner" | "allow"
+    ""                                     | null
+  }
+
+  def "replaced prefix discards more specific rules"() {
+    setup:
+    def trie = ClassNameTrie.<String> builder()
+      .prefix("java.", "ignore")
+      .prefix("java.util.concurrent.", "allow")
+      .exact("java.util.concurrent.Executor", "allow")
+      .replacePrefix("java.util.", "exclude")
+      .build()
+
+    expect:
+    trie.get("java.util.concurrent.Executor") == "exclude"
+    trie.get("java.util.List") == "exclude"
+    trie.get("java.lang.String") == "ignore"
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.matcher
+
+import io.opentelemetry.javaagent.spi.IgnoreMatcherProvider
+import net.bytebuddy.description.type.TypeDescription
+import spock.lang.Specification
+
+class GlobalIgnoresMatcherTest extends Specification {
+
+  def provider = Mock(IgnoreMatcherProvider)
+
+  def underTest = GlobalIgnoresMatcher.globalIgnoresMatcher(
+    true, provider, ["com.example.excluded.*", "java.util.concurrent.Excluded"])
+
+  def "matches #typeName: #ignored"() {
+    setup:
+    provider.type(_) >> IgnoreMatcherProvider.Result.DEFAULT
+    def type = Mock(TypeDescription)
+    type.getActualName() >> typeName
+
+    expect:
+    underTest.matches(type) == ignored
+
+    where:
+    typeName                                                        | ignored
+    "java.lang.String"                                              | true
+    "java.net.URL"                                                  | false
+    "java.lang.VirtualThread"                                       | false
+    "java.util.concurrent.ThreadPoolExecutor"                       | false
+    "java.util.logging.LogManager\$Cleaner"                         | true
+    "jdk.internal.net.http.HttpClientImpl"                          | false
+    "org.codehaus.groovy.runtime.InvokerHelper"                     | false
+    "org.codehaus.groovy.ast.ASTNode"                               | true
+    "com.example.App"                                               | false
+    "com.example.App\$\$EnhancerBySpringCGLIB\$\$1234"              | true
+    "com.example.App\$\$anon\$1"                                    | false
+    "com.mchange.v2.c3p0.impl.NewPooledConnectionProxy"             | true
+    // the additional library rules come after the proxy checks
+    "org.springframework.web.servlet.DispatcherServlet"             | false
+    "org.springframework.web.servlet.Foo\$\$EnhancerBySpringCGLIB"  | true
+    "org.springframework.aop.framework.ProxyFactory"                | true
+    "com.example.excluded.Foo"                                      | true
+    "java.util.concurrent.Excluded"                                 | true
+  }
+
+  def "excluded classes are ignored even when the provider allows them"() {
+    setup:
+    provider.type(_) >> IgnoreMatcherProvider.Result.ALLOW
+    def type = Mock(TypeDescription)
+    type.getActualName() >> typeName
+
+    expect:
+    underTest.matches(type) == ignored
+
+    where:
+    typeName                   | ignored
+    "java.lang.String"         | false
+    "com.example.excluded.Foo" | true
+  }
+}
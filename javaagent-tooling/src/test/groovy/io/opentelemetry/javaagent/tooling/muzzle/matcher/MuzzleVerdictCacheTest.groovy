@@ -0,0 +1,136 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle.matcher
+
+import io.opentelemetry.javaagent.extension.muzzle.ClassRef
+import io.opentelemetry.javaagent.extension.muzzle.Flag
+import io.opentelemetry.javaagent.extension.muzzle.Source
+import java.nio.file.Files
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import net.bytebuddy.jar.asm.Type
+import spock.lang.Specification
+
+class MuzzleVerdictCacheTest extends Specification {
+
+  def "verdicts are stored and loaded again"() {
+    setup:
+    def file = Files.createTempDirectory("muzzle-cache").resolve("verdicts.txt")
+
+    when:
+    def cache = new MuzzleVerdictCache(file)
+    cache.putVerdict("module1", "fingerprint", true)
+    cache.putVerdict("module2", "fingerprint", false)
+    def reloaded = new MuzzleVerdictCache(file)
+
+    then:
+    reloaded.getVerdict("module1", "fingerprint") == true
+    reloaded.getVerdict("module2", "fingerprint") == false
+    reloaded.getVerdict("module1", "other") == null
+  }
+
+  def "incomplete lines are ignored"() {
+    setup:
+    def file = Files.createTempFile("muzzle-verdicts", ".txt")
+    file.write("module1@fingerprint=true\nmodule2@fingerprint=fa")
+
+    when:
+    def cache = new MuzzleVerdictCache(file)
+
+    then:
+    cache.getVerdict("module1", "fingerprint") == true
+    cache.getVerdict("module2", "fingerprint") == null
+  }
+
+  def "duplicate and incomplete lines are compacted"() {
+    setup:
+    def file = Files.createTempFile("muzzle-verdicts", ".txt")
+    file.write("module1@fingerprint=true\nmodule1@fingerprint=true\nmodule2@fingerprint=fa")
+
+    when:
+    def cache = new MuzzleVerdictCache(file)
+
+    then:
+    cache.getVerdict("module1", "fingerprint") == true
+    file.readLines() == ["module1@fingerprint=true"]
+  }
+
+  def "verdicts are dropped when there are too many of them"() {
+    setup:
+    def file = Files.createTempFile("muzzle-verdicts", ".txt")
+    file.withWriter { writer ->
+      (MuzzleVerdictCache.MAX_VERDICTS + 1).times {
+        writer.write("module${it}@fingerprint=true\n")
+      }
+    }
+
+    when:
+    def cache = new MuzzleVerdictCache(file)
+
+    then:
+    cache.getVerdict("module0", "fingerprint") == null
+    file.readLines().isEmpty()
+  }
+
+  def "references hash covers flags, fields and methods but not the set order"() {
+    setup:
+    def reference = { Flag methodFlag ->
+      ClassRef.newBuilder("a.A")
+        .addFlag(Flag.ManifestationFlag.NON_FINAL)
+        .addFlag(Flag.VisibilityFlag.PUBLIC)
+        .addField(new Source[0], new Flag[0], "field", Type.INT_TYPE, false)
+        .addMethod(new Source[0], [methodFlag] as Flag[], "method", Type.VOID_TYPE)
+        .build()
+    }
+    def hash = ReferenceMatcher.hashReferences([reference(Flag.OwnershipFlag.STATIC)], ["a.Helper"])
+
+    expect:
+    hash.length() == 64
+    ReferenceMatcher.hashReferences([reference(Flag.OwnershipFlag.STATIC)], ["a.Helper"]) == hash
+    ReferenceMatcher.hashReferences([reference(Flag.OwnershipFlag.NON_STATIC)], ["a.Helper"]) != hash
+    ReferenceMatcher.hashReferences([reference(Flag.OwnershipFlag.STATIC)], []) != hash
+    ReferenceMatcher.hashReferences([reference(Flag.VisibilityFlag.PUBLIC)], ["a.Helper"]) !=
+      ReferenceMatcher.hashReferences([reference(Flag.MinimumVisibilityFlag.PUBLIC)], ["a.Helper"])
+    ReferenceMatcher.hashReferences(
+      [ClassRef.newBuilder("a.A")
+         .addFlag(Flag.VisibilityFlag.PUBLIC)
+         .addFlag(Flag.ManifestationFlag.NON_FINAL)
+         .addField(new Source[0], new Flag[0], "field", Type.INT_TYPE, false)
+         .addMethod(new Source[0], [Flag.OwnershipFlag.STATIC] as Flag[], "method", Type.VOID_TYPE)
+         .build()],
+      ["a.Helper"]) == hash
+  }
+
+  def "class loaders with the same jars have the same fingerprint"() {
+    setup:
+    def jar = createJar("a/A.class")
+    def otherJar = createJar("a/B.class")
+
+    expect:
+    ClassLoaderFingerprint.of(new URLClassLoader([jar] as URL[], (ClassLoader) null)) != null
+    ClassLoaderFingerprint.of(new URLClassLoader([jar] as URL[], (ClassLoader) null)) ==
+      ClassLoaderFingerprint.of(new URLClassLoader([jar] as URL[], (ClassLoader) null))
+    ClassLoaderFingerprint.of(new URLClassLoader([jar] as URL[], (ClassLoader) null)) !=
+      ClassLoaderFingerprint.of(new URLClassLoader([otherJar] as URL[], (ClassLoader) null))
+  }
+
+  def "class loaders that don't load from files have no fingerprint"() {
+    expect:
+    ClassLoaderFingerprint.of(new URLClassLoader([new URL("http://localhost/a.jar")] as URL[], (ClassLoader) null)) == null
+    ClassLoaderFingerprint.of(new ClassLoader(null) {}) == null
+  }
+
+  private static URL createJar(String entryName) {
+    def file = File.createTempFile("muzzle-fingerprint-", ".jar")
+    file.deleteOnExit()
+    new JarOutputStream(new FileOutputStream(file)).withCloseable {
+      it.putNextEntry(new JarEntry(entryName))
+      it.write(new byte[8])
+      it.closeEntry()
+    }
+    return file.toURI().toURL()
+  }
+}
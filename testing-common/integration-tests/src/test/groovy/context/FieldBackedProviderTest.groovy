@@ -42,10 +42,12 @@ class FieldBackedProviderTest extends AgentInstrumentationSpecification {
     boolean hasField = false
     boolean isPrivate = false
     boolean isTransient = false
+    boolean isVolatile = false
     for (Field field : keyClass.getDeclaredFields()) {
-      if (field.getName().startsWith("__opentelemetry")) {
+      if (field.getName().startsWith("__opentelemetryContext\$")) {
         isPrivate = Modifier.isPrivate(field.getModifiers())
         isTransient = Modifier.isTransient(field.getModifiers())
+        isVolatile = Modifier.isVolatile(field.getModifiers())
         hasField = true
         break
       }
@@ -66,6 +68,7 @@ class FieldBackedProviderTest extends AgentInstrumentationSpecification {
     hasField == shouldModifyStructure
     isPrivate == shouldModifyStructure
     isTransient == shouldModifyStructure
+    isVolatile == shouldModifyStructure
     hasMarkerInterface == shouldModifyStructure
     hasAccessorInterface == shouldModifyStructure
     keyClass.newInstance().isInstrumented() == shouldModifyStructure